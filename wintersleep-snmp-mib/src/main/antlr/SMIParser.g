@@ -25,6 +25,8 @@ import org.wintersleep.snmp.mib.phase.file.*;
 import org.wintersleep.snmp.util.location.Location;
 
 import antlr.*;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import java.lang.* ;
 import java.math.*;
 import java.util.*;
@@ -138,6 +140,31 @@ VISIBLE_STR_KW = "VisibleString" ;
 WITH_KW = "WITH" ;
 }
 
+{
+    // offset of the next character, counting only the characters that are consumed while not guessing
+    private int offset;
+    private int tokenStartOffset;
+
+    public void consume() throws CharStreamException {
+        if (inputState.guessing == 0) {
+            offset++;
+        }
+        super.consume();
+    }
+
+    public void resetText() {
+        super.resetText();
+        tokenStartOffset = offset;
+    }
+
+    protected Token makeToken(int t) {
+        OffsetToken token = new OffsetToken(t, tokenStartOffset);
+        token.setLine(inputState.getTokenStartLine());
+        token.setColumn(inputState.getTokenStartColumn());
+        return token;
+    }
+}
+
 // Operators
 
 ASSIGN_OP:	"::=";
@@ -302,11 +329,52 @@ options	{
 {
     private SmiMib mib;
     private String locationPath;
+    private Interner<String> interner;
+    private boolean rereadable = true;
+    private boolean skim;
 	private ModuleParser mp;
 
     public void init(SmiMib mib, String locationPath) {
+        init(mib, locationPath, Interners.<String>newStrongInterner());
+    }
+
+    public void init(SmiMib mib, String locationPath, Interner<String> interner) {
+        init(mib, locationPath, interner, true);
+    }
+
+    /**
+     * @param rereadable False if the mib file cannot be read again from the locationPath, in which case
+     *                   the DESCRIPTION and REFERENCE texts are always kept in memory.
+     */
+    public void init(SmiMib mib, String locationPath, Interner<String> interner, boolean rereadable) {
         this.mib = mib;
         this.locationPath = locationPath;
+        this.interner = interner;
+        this.rereadable = rereadable;
+    }
+
+    /**
+     * In skim mode, only the EXPORTS, the IMPORTS and the MODULE-IDENTITY of each module are parsed,
+     * the rest of the module body is skipped.
+     */
+    public void setSkim(boolean skim) {
+        this.skim = skim;
+    }
+
+    private void skimModuleBody() throws RecognitionException, TokenStreamException {
+        if (LA(1) == LOWER && "MODULE-IDENTITY".equals(LT(2).getText())) {
+            assignment();
+        }
+        // macro definitions have a BEGIN and END too
+        int depth = 0;
+        while (LA(1) != EOF && (LA(1) != END_KW || depth > 0)) {
+            if (LA(1) == BEGIN_KW) {
+                depth++;
+            } else if (LA(1) == END_KW) {
+                depth--;
+            }
+            consume();
+        }
     }
 
     SmiModule beginModule(Token idToken) {
@@ -314,7 +382,7 @@ options	{
             throw new IllegalStateException("Module " + mp.getModule().getIdToken() + " is still being parsed when trying to create new module " + idToken);
         }
         SmiModule module = mib.createModule(idt(idToken));
-        mp = new ModuleParser(module);
+        mp = new ModuleParser(module, interner, rereadable);
         return module;
     }
 
@@ -325,12 +393,8 @@ options	{
         mp = null;
     }
 
-    private Location makeLocation(Token token) {
-        return new Location(locationPath, token.getLine(), token.getColumn());
-    }
-
     private IdToken idt(Token idToken) {
-        return new IdToken(makeLocation(idToken), idToken.getText());
+        return new IdToken(locationPath, idToken.getLine(), idToken.getColumn(), interner.intern(idToken.getText()));
     }
 
 }
@@ -359,6 +423,7 @@ module_body
 :
 	(exports)?
 	(imports)?
+	{ if (skim) { skimModuleBody(); } }
 	(assignment)*
 ;
 
@@ -754,7 +819,8 @@ objecttype_macro[IdToken idToken] returns [SmiObjectType ot = null]
     	    ot.setMaxAccessToken(mp.idt(maxAccess));
     	}
 	    ot.setStatus(status);
-	    ot.setDescription(mp.getOptCStr(desc));
+	    ot.setDescription(mp.getText(desc));
+	    ot.setDescriptionRef(mp.getTextRef(desc));
 	}
 ;
 
@@ -853,7 +919,7 @@ notificationtype_macro[IdToken idToken] returns [SmiNotificationType nt = null]
 	"DESCRIPTION" description:C_STRING
 	("REFERENCE" reference:C_STRING)?
 	{
-		nt = mp.createNotification(idToken, objectTokens, status, mp.getCStr(description), mp.getOptCStr(reference));
+		nt = mp.createNotification(idToken, objectTokens, status, description, reference);
 	}
 ;
 
@@ -1003,7 +1069,7 @@ traptype_macro[IdToken idToken] returns [SmiTrapType tt = null]
 	("DESCRIPTION" description:C_STRING)?
 	("REFERENCE" reference:C_STRING)?
 	{
-		tt = mp.createTrap(idToken, mp.idt(enterprise), variables, mp.getOptCStr(description), mp.getOptCStr(reference));
+		tt = mp.createTrap(idToken, mp.idt(enterprise), variables, description, reference);
 	}
 ;
 
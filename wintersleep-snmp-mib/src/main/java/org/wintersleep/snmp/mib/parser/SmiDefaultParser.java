@@ -29,6 +29,10 @@ import org.wintersleep.snmp.util.problem.DefaultProblemEventHandler;
 import org.wintersleep.snmp.util.problem.DefaultProblemReporterFactory;
 import org.wintersleep.snmp.util.problem.ProblemEventHandler;
 import org.wintersleep.snmp.util.problem.ProblemReporterFactory;
+import org.wintersleep.snmp.util.url.ModuleURLResolver;
+
+import java.util.List;
+import java.util.concurrent.Executor;
 
 public class SmiDefaultParser implements SmiParser {
 
@@ -55,6 +59,10 @@ public class SmiDefaultParser implements SmiParser {
         SmiMib mib = new SmiMib(options, new SmiJavaCodeNamingStrategy("org.wintersleep.snmp.mib")); // TODO
         
         Phase[] phases = new Phase[]{getFileParserPhase(), getXRefPhase(), getErrorCheckPhase()};
+        if (getFileParserPhase().isSkim()) {
+            // there is nothing to resolve in the module stubs
+            phases = new Phase[]{getFileParserPhase()};
+        }
         for (Phase phase : phases) {
             phase.process(mib);
         }
@@ -130,6 +138,38 @@ public class SmiDefaultParser implements SmiParser {
         this.errorCheckPhase = errorCheckPhase;
     }
 
+    /**
+     * @see FileParserPhase#setRootModules(List)
+     */
+    public void setRootModules(List<String> rootModules) {
+        getFileParserPhase().setRootModules(rootModules);
+    }
+
+    /**
+     * @see FileParserPhase#setModuleResolver(ModuleURLResolver)
+     */
+    public void setModuleResolver(ModuleURLResolver moduleResolver) {
+        getFileParserPhase().setModuleResolver(moduleResolver);
+    }
+
+    /**
+     * @see FileParserPhase#setParallelism(int)
+     * @see XRefPhase#setParallelism(int)
+     */
+    public void setParallelism(int parallelism) {
+        getFileParserPhase().setParallelism(parallelism);
+        getXRefPhase().setParallelism(parallelism);
+    }
+
+    /**
+     * @see FileParserPhase#setExecutor(Executor)
+     * @see XRefPhase#setExecutor(Executor)
+     */
+    public void setExecutor(Executor executor) {
+        getFileParserPhase().setExecutor(executor);
+        getXRefPhase().setExecutor(executor);
+    }
+
     public boolean isFailOnError() {
         return failOnError;
     }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.parser;
+
+import com.google.common.io.ByteStreams;
+import org.wintersleep.snmp.mib.phase.file.SmiSource;
+import org.wintersleep.snmp.mib.smi.SmiConstants;
+import org.wintersleep.snmp.mib.smi.SmiMib;
+import org.wintersleep.snmp.mib.smi.SmiOptions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A fully resolved SmiMib, stored in a binary format that can be loaded without parsing the mib files again.
+ * <p>
+ * The snapshot starts with a small header that contains the fingerprint of the mib files the SmiMib was parsed from,
+ * and the ids of the modules that were looked up through the module resolver, so that a stale snapshot can be
+ * detected without loading the whole object graph. The header is followed by
+ * the class table (including the fields of each class, so that changed classes are detected too),
+ * the string table, the object table, and finally the contents of all objects, in which all references are
+ * indexes in those tables. The shared builtin types of {@link SmiConstants} are written as references,
+ * so that they are still the same instances after loading.
+ */
+public class SmiMibSnapshot {
+
+    private static final int MAGIC = 0x534D4942; // SMIB
+    private static final int FORMAT_VERSION = 2;
+
+    private final String fingerprint;
+    private final List<String> resolvedModuleIds;
+    private final SmiMib mib;
+
+    public SmiMibSnapshot(String fingerprint, SmiMib mib) {
+        this(fingerprint, Collections.<String>emptyList(), mib);
+    }
+
+    public SmiMibSnapshot(String fingerprint, List<String> resolvedModuleIds, SmiMib mib) {
+        this.fingerprint = fingerprint;
+        this.resolvedModuleIds = resolvedModuleIds;
+        this.mib = mib;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return The ids of the modules that were looked up through the module resolver while parsing the mib;
+     * they are needed to compute the fingerprint again.
+     */
+    public List<String> getResolvedModuleIds() {
+        return resolvedModuleIds;
+    }
+
+    public SmiMib getMib() {
+        return mib;
+    }
+
+    /**
+     * @return A digest of the contents of all the urls, in the given order.
+     */
+    public static String computeFingerprint(List<URL> urls) throws IOException {
+        List<SmiSource> sources = new ArrayList<SmiSource>(urls.size());
+        for (URL url : urls) {
+            sources.add(SmiSource.forUrl(url));
+        }
+        return computeFingerprint(sources, null, Collections.<String, URL>emptyMap(), null);
+    }
+
+    /**
+     * @return A digest of the locations and the contents of all the sources, in the given order. The location
+     * is included because it is stored in the tokens of the mib.
+     */
+    public static String computeFingerprint(Collection<SmiSource> sources) throws IOException {
+        return computeFingerprint(sources, null, Collections.<String, URL>emptyMap(), null);
+    }
+
+    /**
+     * @param rootModules     The root modules of the FileParserPhase, or null.
+     * @param resolvedModules The url that the module resolver returns for each of the resolved module ids,
+     *                        or null for the modules it cannot find.
+     * @param options         The options of the parser, or null.
+     * @return A digest of the sources (as above), the root modules, the ids, urls and contents
+     * of the resolved modules, and the serialized options.
+     */
+    public static String computeFingerprint(Collection<SmiSource> sources, List<String> rootModules,
+                                            Map<String, URL> resolvedModules, SmiOptions options) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (SmiSource source : sources) {
+            update(digest, source.getLocation().getBytes(StandardCharsets.UTF_8));
+            update(digest, source.readBytes());
+        }
+        if (rootModules != null) {
+            for (String rootModule : rootModules) {
+                update(digest, rootModule.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        for (Map.Entry<String, URL> entry : resolvedModules.entrySet()) {
+            update(digest, entry.getKey().getBytes(StandardCharsets.UTF_8));
+            if (entry.getValue() == null) {
+                digest.update((byte) 0);
+            } else {
+                SmiSource source = SmiSource.forUrl(entry.getValue());
+                digest.update((byte) 1);
+                update(digest, source.getLocation().getBytes(StandardCharsets.UTF_8));
+                update(digest, source.readBytes());
+            }
+        }
+        if (options != null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(options);
+            }
+            update(digest, bytes.toByteArray());
+        }
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest()) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16));
+            result.append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Adds the length before the bytes, so that the boundaries between the parts are part of the digest too.
+     */
+    private static void update(MessageDigest digest, byte[] bytes) {
+        for (int i = 0; i < 8; i++) {
+            digest.update((byte) ((long) bytes.length >>> (i * 8)));
+        }
+        digest.update(bytes);
+    }
+
+    public void write(OutputStream os) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os, 65536));
+        dos.writeInt(MAGIC);
+        dos.writeInt(FORMAT_VERSION);
+        dos.writeUTF(fingerprint);
+        dos.writeInt(resolvedModuleIds.size());
+        for (String moduleId : resolvedModuleIds) {
+            dos.writeUTF(moduleId);
+        }
+        new SnapshotWriter().write(mib, dos);
+        dos.flush();
+    }
+
+    /**
+     * Only reads the header of the snapshot.
+     *
+     * @return The fingerprint of the mib files from which the snapshot was made.
+     */
+    public static String readFingerprint(InputStream is) throws IOException {
+        return readHeader(is).getFingerprint();
+    }
+
+    /**
+     * Only reads the header of the snapshot.
+     *
+     * @return A snapshot without the mib.
+     */
+    public static SmiMibSnapshot readHeader(InputStream is) throws IOException {
+        return readHeader(new DataInputStream(is));
+    }
+
+    public static SmiMibSnapshot read(InputStream is) throws IOException, ClassNotFoundException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(is, 65536));
+        SmiMibSnapshot header = readHeader(dis);
+        Object root = new SnapshotReader(ByteStreams.toByteArray(dis)).read();
+        if (!(root instanceof SmiMib)) {
+            throw new StreamCorruptedException("The mib snapshot does not contain an SmiMib, but: " + root.getClass().getName());
+        }
+        return new SmiMibSnapshot(header.getFingerprint(), header.getResolvedModuleIds(), (SmiMib) root);
+    }
+
+    private static SmiMibSnapshot readHeader(DataInputStream dis) throws IOException {
+        if (dis.readInt() != MAGIC) {
+            throw new IOException("Not a mib snapshot");
+        }
+        int formatVersion = dis.readInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported mib snapshot format version: " + formatVersion);
+        }
+        String fingerprint = dis.readUTF();
+        int resolvedModuleCount = dis.readInt();
+        List<String> resolvedModuleIds = new ArrayList<String>(resolvedModuleCount);
+        for (int i = 0; i < resolvedModuleCount; i++) {
+            resolvedModuleIds.add(dis.readUTF());
+        }
+        return new SmiMibSnapshot(fingerprint, resolvedModuleIds, null);
+    }
+}
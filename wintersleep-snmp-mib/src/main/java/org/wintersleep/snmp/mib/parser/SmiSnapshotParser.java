@@ -0,0 +1,137 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.parser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wintersleep.snmp.mib.exception.SmiException;
+import org.wintersleep.snmp.mib.phase.file.FileParserPhase;
+import org.wintersleep.snmp.mib.smi.SmiMib;
+import org.wintersleep.snmp.util.url.ModuleURLResolver;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the mib from a snapshot file when that snapshot was made from the same input urls and sources,
+ * root modules, modules found by the module resolver, and options, otherwise does a full parse with the delegate
+ * parser and (re)writes the snapshot file.
+ * <p>
+ * Note that problems are only reported during a full parse; they are not stored in the snapshot.
+ */
+public class SmiSnapshotParser implements SmiParser {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SmiSnapshotParser.class);
+
+    private final SmiDefaultParser parser;
+    private final File snapshotFile;
+
+    public SmiSnapshotParser(SmiDefaultParser parser, File snapshotFile) {
+        this.parser = parser;
+        this.snapshotFile = snapshotFile;
+    }
+
+    public SmiDefaultParser getParser() {
+        return parser;
+    }
+
+    public File getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public SmiMib parse() throws SmiException {
+        SmiMib mib = load();
+        if (mib == null) {
+            mib = parser.parse();
+            if (parser.getProblemEventHandler().isOk()) {
+                List<String> resolvedModuleIds = parser.getFileParserPhase().getResolvedModuleIds();
+                String fingerprint = computeFingerprint(resolvedModuleIds);
+                if (fingerprint != null) {
+                    save(new SmiMibSnapshot(fingerprint, resolvedModuleIds, mib));
+                }
+            }
+        }
+        return mib;
+    }
+
+    /**
+     * The modules that were looked up through the module resolver are only known after parsing,
+     * so the fingerprint of the snapshot is computed with the module ids from its header.
+     */
+    private SmiMib load() {
+        if (!snapshotFile.isFile()) {
+            return null;
+        }
+        try {
+            SmiMibSnapshot header;
+            try (InputStream is = new FileInputStream(snapshotFile)) {
+                header = SmiMibSnapshot.readHeader(is);
+            }
+            if (!header.getFingerprint().equals(computeFingerprint(header.getResolvedModuleIds()))) {
+                LOGGER.info("Snapshot is stale: " + snapshotFile);
+                return null;
+            }
+            try (InputStream is = new FileInputStream(snapshotFile)) {
+                return SmiMibSnapshot.read(is).getMib();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            LOGGER.warn("Could not load snapshot " + snapshotFile + ": " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * @return The fingerprint of the current input, or null if it cannot be computed.
+     */
+    private String computeFingerprint(List<String> resolvedModuleIds) {
+        FileParserPhase phase = parser.getFileParserPhase();
+        try {
+            Map<String, URL> resolvedModules = new LinkedHashMap<String, URL>();
+            for (String moduleId : resolvedModuleIds) {
+                ModuleURLResolver resolver = phase.getModuleResolver();
+                resolvedModules.put(moduleId, resolver == null ? null : resolver.findModule(moduleId));
+            }
+            return SmiMibSnapshot.computeFingerprint(phase.createSources(), phase.getRootModules(), resolvedModules,
+                    parser.getOptions());
+        } catch (Exception e) {
+            LOGGER.warn("Could not compute the fingerprint of the input files: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private void save(SmiMibSnapshot snapshot) {
+        File tmpFile = new File(snapshotFile.getPath() + ".tmp");
+        try {
+            try (OutputStream os = new FileOutputStream(tmpFile)) {
+                snapshot.write(os);
+            }
+            if (!tmpFile.renameTo(snapshotFile) && !(snapshotFile.delete() && tmpFile.renameTo(snapshotFile))) {
+                throw new IOException("Could not rename " + tmpFile + " to " + snapshotFile);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not write snapshot " + snapshotFile + ": " + e.getMessage(), e);
+            tmpFile.delete();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.parser;
+
+import org.apache.commons.collections.map.MultiValueMap;
+import org.wintersleep.snmp.mib.smi.SmiConstants;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamConstants;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * How the instances of a class are laid out in a snapshot: either as one of the supported collection kinds,
+ * or as the values of all the non-static non-transient fields of a Serializable class.
+ */
+final class SnapshotLayout {
+
+    static final int TAG_NULL = 0;
+    static final int TAG_REF = 1;
+    static final int TAG_STRING = 2;
+    static final int TAG_BUILTIN = 3;
+    static final int TAG_ENUM = 4;
+    static final int TAG_BIG_INTEGER = 5;
+    static final int TAG_INTEGER = 6;
+    static final int TAG_LONG = 7;
+    static final int TAG_TRUE = 8;
+    static final int TAG_FALSE = 9;
+    static final int TAG_EMPTY_LIST = 10;
+    static final int TAG_EMPTY_MAP = 11;
+    static final int TAG_EMPTY_SET = 12;
+    static final int TAG_CLASS = 13;
+
+    enum Kind {
+        OBJECT,
+        ARRAY_LIST,
+        HASH_MAP,
+        LINKED_HASH_MAP,
+        TREE_MAP,
+        HASH_SET,
+        LINKED_HASH_SET,
+        UNMODIFIABLE_LIST,
+        UNMODIFIABLE_MAP,
+        UNMODIFIABLE_SET,
+        MULTI_VALUE_MAP,
+        INT_ARRAY,
+        BYTE_ARRAY,
+        OBJECT_ARRAY,
+        ENUM
+    }
+
+    /**
+     * Objects that are shared by all mibs: these are written as references, so that they are still the same
+     * instances after loading.
+     */
+    static final Object[] BUILTINS = {
+            SmiConstants.WINTERSLEEP_SNMP_BUILTIN_MIB,
+            SmiConstants.WINTERSLEEP_SNMP_BUILTIN_MODULE,
+            SmiConstants.OBJECT_IDENTIFIER_TYPE,
+            SmiConstants.OCTET_STRING_TYPE,
+            SmiConstants.BITS_TYPE,
+            SmiConstants.INTEGER_TYPE,
+            SmiConstants.LOCATION
+    };
+
+    private static final Map<Class<?>, Kind> COLLECTION_KINDS = new HashMap<Class<?>, Kind>();
+
+    static {
+        COLLECTION_KINDS.put(ArrayList.class, Kind.ARRAY_LIST);
+        COLLECTION_KINDS.put(HashMap.class, Kind.HASH_MAP);
+        COLLECTION_KINDS.put(LinkedHashMap.class, Kind.LINKED_HASH_MAP);
+        COLLECTION_KINDS.put(TreeMap.class, Kind.TREE_MAP);
+        COLLECTION_KINDS.put(HashSet.class, Kind.HASH_SET);
+        COLLECTION_KINDS.put(LinkedHashSet.class, Kind.LINKED_HASH_SET);
+        COLLECTION_KINDS.put(Collections.unmodifiableList(new ArrayList<Object>()).getClass(), Kind.UNMODIFIABLE_LIST);
+        COLLECTION_KINDS.put(Collections.unmodifiableList(new LinkedList<Object>()).getClass(), Kind.UNMODIFIABLE_LIST);
+        COLLECTION_KINDS.put(Collections.unmodifiableMap(new HashMap<Object, Object>()).getClass(), Kind.UNMODIFIABLE_MAP);
+        COLLECTION_KINDS.put(Collections.unmodifiableSet(new HashSet<Object>()).getClass(), Kind.UNMODIFIABLE_SET);
+        COLLECTION_KINDS.put(MultiValueMap.class, Kind.MULTI_VALUE_MAP);
+        COLLECTION_KINDS.put(int[].class, Kind.INT_ARRAY);
+        COLLECTION_KINDS.put(byte[].class, Kind.BYTE_ARRAY);
+    }
+
+    private static final Map<Class<?>, SnapshotLayout> LAYOUTS = new ConcurrentHashMap<Class<?>, SnapshotLayout>();
+
+    private final Class<?> type;
+    private final Kind kind;
+    private final Field[] fields;
+    private final String[] fieldSignatures;
+
+    private SnapshotLayout(Class<?> type, Kind kind, Field[] fields) {
+        this.type = type;
+        this.kind = kind;
+        this.fields = fields;
+        fieldSignatures = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            fieldSignatures[i] = fields[i].getName() + ":" + fields[i].getType().getName();
+        }
+    }
+
+    static SnapshotLayout forClass(Class<?> type) throws NotSerializableException {
+        SnapshotLayout result = LAYOUTS.get(type);
+        if (result == null) {
+            result = create(type);
+            LAYOUTS.put(type, result);
+        }
+        return result;
+    }
+
+    private static SnapshotLayout create(Class<?> type) throws NotSerializableException {
+        Kind kind = COLLECTION_KINDS.get(type);
+        if (kind != null) {
+            return new SnapshotLayout(type, kind, new Field[0]);
+        }
+        if (type.isEnum()) {
+            return new SnapshotLayout(type, Kind.ENUM, new Field[0]);
+        }
+        if (type.isArray() && !type.getComponentType().isPrimitive()) {
+            return new SnapshotLayout(type, Kind.OBJECT_ARRAY, new Field[0]);
+        }
+        if (!Serializable.class.isAssignableFrom(type) || !type.getName().startsWith("org.wintersleep.")) {
+            throw new NotSerializableException("Cannot store instances of " + type.getName() + " in a mib snapshot");
+        }
+        List<Field> fields = new ArrayList<Field>();
+        addFields(type, fields);
+        return new SnapshotLayout(type, Kind.OBJECT, fields.toArray(new Field[fields.size()]));
+    }
+
+    private static void addFields(Class<?> type, List<Field> result) {
+        if (type.getSuperclass() != null && type.getSuperclass() != Object.class) {
+            addFields(type.getSuperclass(), result);
+        }
+        Field[] declaredFields = type.getDeclaredFields();
+        Arrays.sort(declaredFields, new Comparator<Field>() {
+            public int compare(Field f1, Field f2) {
+                return f1.getName().compareTo(f2.getName());
+            }
+        });
+        for (Field field : declaredFields) {
+            int modifiers = field.getModifiers();
+            if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+                field.setAccessible(true);
+                result.add(field);
+            }
+        }
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    Field[] getFields() {
+        return fields;
+    }
+
+    String[] getFieldSignatures() {
+        return fieldSignatures;
+    }
+
+    /**
+     * Creates instances without running any of the constructors of the class, through java serialization:
+     * the instances are read from a stream in which the class and its superclasses have no fields, so that
+     * all the fields keep their default values.
+     */
+    Object[] newInstances(int count) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(bytes);
+        dos.writeShort(ObjectStreamConstants.STREAM_MAGIC);
+        dos.writeShort(ObjectStreamConstants.STREAM_VERSION);
+        for (int i = 0; i < count; i++) {
+            dos.writeByte(ObjectStreamConstants.TC_OBJECT);
+            if (i == 0) {
+                for (Class<?> c = type; Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+                    dos.writeByte(ObjectStreamConstants.TC_CLASSDESC);
+                    dos.writeUTF(c.getName());
+                    dos.writeLong(ObjectStreamClass.lookup(c).getSerialVersionUID());
+                    dos.writeByte(ObjectStreamConstants.SC_SERIALIZABLE);
+                    dos.writeShort(0);
+                    dos.writeByte(ObjectStreamConstants.TC_ENDBLOCKDATA);
+                }
+                dos.writeByte(ObjectStreamConstants.TC_NULL);
+            } else {
+                // the class descriptor of the first instance
+                dos.writeByte(ObjectStreamConstants.TC_REFERENCE);
+                dos.writeInt(ObjectStreamConstants.baseWireHandle);
+            }
+        }
+        dos.flush();
+
+        Object[] result = new Object[count];
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws ClassNotFoundException {
+                return Class.forName(desc.getName(), false, type.getClassLoader());
+            }
+        }) {
+            for (int i = 0; i < count; i++) {
+                result[i] = ois.readObject();
+            }
+        }
+        return result;
+    }
+}
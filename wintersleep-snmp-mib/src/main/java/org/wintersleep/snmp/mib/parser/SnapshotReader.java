@@ -0,0 +1,388 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.parser;
+
+import org.apache.commons.collections.map.MultiValueMap;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Reads an object graph written by {@link SnapshotWriter}: first all objects are allocated, without running
+ * their constructors, and then their contents are filled in.
+ */
+class SnapshotReader {
+
+    private final byte[] buffer;
+    private int pos;
+
+    private SnapshotLayout[] layouts;
+    private String[] strings;
+    private Object[] objects;
+    private SnapshotLayout[] objectLayouts;
+    private Object[] modifiables;
+    private final List<Object> hashedCollections = new ArrayList<Object>();
+    private final List<Object[]> hashedContents = new ArrayList<Object[]>();
+
+    SnapshotReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    Object read() throws IOException, ClassNotFoundException {
+        try {
+            readClasses();
+            readStrings();
+            allocateObjects();
+            for (int i = 0; i < objects.length; i++) {
+                readContents(i);
+            }
+            fillHashedCollections();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new EOFException("Truncated mib snapshot");
+        } catch (ReflectiveOperationException e) {
+            throw new InvalidClassException(e.getMessage());
+        }
+        if (objects.length == 0) {
+            throw new StreamCorruptedException("Empty mib snapshot");
+        }
+        return objects[0];
+    }
+
+    private void readClasses() throws IOException, ClassNotFoundException {
+        ClassLoader classLoader = SnapshotReader.class.getClassLoader();
+        layouts = new SnapshotLayout[readVarInt()];
+        for (int i = 0; i < layouts.length; i++) {
+            String name = readString();
+            String[] signatures = new String[readVarInt()];
+            for (int j = 0; j < signatures.length; j++) {
+                signatures[j] = readString();
+            }
+            SnapshotLayout layout = SnapshotLayout.forClass(Class.forName(name, false, classLoader));
+            if (!Arrays.equals(signatures, layout.getFieldSignatures())) {
+                throw new InvalidClassException(name, "The fields of the class have changed since the mib snapshot was written");
+            }
+            layouts[i] = layout;
+        }
+    }
+
+    private void readStrings() {
+        strings = new String[readVarInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString();
+        }
+    }
+
+    private void allocateObjects() throws IOException, ClassNotFoundException {
+        objects = new Object[readVarInt()];
+        objectLayouts = new SnapshotLayout[objects.length];
+        modifiables = new Object[objects.length];
+        int[] layoutIndexes = new int[objects.length];
+        int[] instanceCounts = new int[layouts.length];
+        for (int i = 0; i < objects.length; i++) {
+            layoutIndexes[i] = readVarInt();
+            SnapshotLayout layout = layouts[layoutIndexes[i]];
+            objectLayouts[i] = layout;
+            switch (layout.getKind()) {
+                case OBJECT:
+                    // allocated below, all instances of the same class at once
+                    instanceCounts[layoutIndexes[i]]++;
+                    break;
+                case ARRAY_LIST:
+                    objects[i] = new ArrayList<Object>();
+                    break;
+                case HASH_MAP:
+                    objects[i] = new HashMap<Object, Object>();
+                    break;
+                case LINKED_HASH_MAP:
+                    objects[i] = new LinkedHashMap<Object, Object>();
+                    break;
+                case TREE_MAP:
+                    objects[i] = new TreeMap<Object, Object>();
+                    break;
+                case HASH_SET:
+                    objects[i] = new HashSet<Object>();
+                    break;
+                case LINKED_HASH_SET:
+                    objects[i] = new LinkedHashSet<Object>();
+                    break;
+                case UNMODIFIABLE_LIST:
+                    List<Object> list = new ArrayList<Object>();
+                    modifiables[i] = list;
+                    objects[i] = Collections.unmodifiableList(list);
+                    break;
+                case UNMODIFIABLE_MAP:
+                    Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+                    modifiables[i] = map;
+                    objects[i] = Collections.unmodifiableMap(map);
+                    break;
+                case UNMODIFIABLE_SET:
+                    Set<Object> set = new LinkedHashSet<Object>();
+                    modifiables[i] = set;
+                    objects[i] = Collections.unmodifiableSet(set);
+                    break;
+                case MULTI_VALUE_MAP:
+                    boolean sorted = readVarInt() != 0;
+                    objects[i] = MultiValueMap.decorate(sorted ? new TreeMap<Object, Object>() : new HashMap<Object, Object>(), ArrayList.class);
+                    break;
+                case INT_ARRAY:
+                    objects[i] = new int[readVarInt()];
+                    break;
+                case BYTE_ARRAY:
+                    objects[i] = new byte[readVarInt()];
+                    break;
+                case OBJECT_ARRAY:
+                    Class<?> componentType = layouts[readVarInt()].getType();
+                    objects[i] = Array.newInstance(componentType, readVarInt());
+                    break;
+                default:
+                    throw new InvalidClassException(layout.getType().getName(), "Unexpected kind of object: " + layout.getKind());
+            }
+        }
+
+        Object[][] instances = new Object[layouts.length][];
+        for (int i = 0; i < layouts.length; i++) {
+            if (instanceCounts[i] > 0) {
+                instances[i] = layouts[i].newInstances(instanceCounts[i]);
+                instanceCounts[i] = 0;
+            }
+        }
+        for (int i = 0; i < objects.length; i++) {
+            if (objectLayouts[i].getKind() == SnapshotLayout.Kind.OBJECT) {
+                objects[i] = instances[layoutIndexes[i]][instanceCounts[layoutIndexes[i]]++];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readContents(int index) throws IOException, ReflectiveOperationException {
+        Object object = objects[index];
+        Object modifiable = modifiables[index] != null ? modifiables[index] : object;
+        SnapshotLayout layout = objectLayouts[index];
+        switch (layout.getKind()) {
+            case OBJECT:
+                for (Field field : layout.getFields()) {
+                    readField(object, field);
+                }
+                break;
+            case ARRAY_LIST:
+            case UNMODIFIABLE_LIST:
+                List<Object> list = (List<Object>) modifiable;
+                int size = readVarInt();
+                ((ArrayList<Object>) list).ensureCapacity(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue());
+                }
+                break;
+            case HASH_SET:
+            case LINKED_HASH_SET:
+            case UNMODIFIABLE_SET:
+                Object[] elements = new Object[readVarInt()];
+                for (int i = 0; i < elements.length; i++) {
+                    elements[i] = readValue();
+                }
+                defer(modifiable, elements);
+                break;
+            case HASH_MAP:
+            case LINKED_HASH_MAP:
+            case TREE_MAP:
+            case UNMODIFIABLE_MAP:
+                Object[] entries = new Object[readVarInt() * 2];
+                for (int i = 0; i < entries.length; i++) {
+                    entries[i] = readValue();
+                }
+                defer(modifiable, entries);
+                break;
+            case MULTI_VALUE_MAP:
+                Object[] multiEntries = new Object[readVarInt() * 2];
+                for (int i = 0; i < multiEntries.length; i += 2) {
+                    multiEntries[i] = readValue();
+                    Object[] values = new Object[readVarInt()];
+                    for (int j = 0; j < values.length; j++) {
+                        values[j] = readValue();
+                    }
+                    multiEntries[i + 1] = Arrays.asList(values);
+                }
+                defer(modifiable, multiEntries);
+                break;
+            case INT_ARRAY:
+                int[] ints = (int[]) object;
+                for (int i = 0; i < ints.length; i++) {
+                    ints[i] = readVarInt();
+                }
+                break;
+            case BYTE_ARRAY:
+                byte[] bytes = (byte[]) object;
+                System.arraycopy(buffer, pos, bytes, 0, bytes.length);
+                pos += bytes.length;
+                break;
+            case OBJECT_ARRAY:
+                Object[] array = (Object[]) object;
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = readValue();
+                }
+                break;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * The keys of sets and maps may use hashCode() or compareTo(), which only works once their fields are filled in.
+     */
+    private void defer(Object collection, Object[] contents) {
+        hashedCollections.add(collection);
+        hashedContents.add(contents);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fillHashedCollections() {
+        for (int i = 0; i < hashedCollections.size(); i++) {
+            Object collection = hashedCollections.get(i);
+            Object[] contents = hashedContents.get(i);
+            if (collection instanceof MultiValueMap) {
+                MultiValueMap multiMap = (MultiValueMap) collection;
+                for (int j = 0; j < contents.length; j += 2) {
+                    multiMap.putAll(contents[j], (Collection) contents[j + 1]);
+                }
+            } else if (collection instanceof Map) {
+                Map<Object, Object> map = (Map<Object, Object>) collection;
+                for (int j = 0; j < contents.length; j += 2) {
+                    map.put(contents[j], contents[j + 1]);
+                }
+            } else {
+                Collections.addAll((Set<Object>) collection, contents);
+            }
+        }
+    }
+
+    private void readField(Object object, Field field) throws IOException, IllegalAccessException {
+        Class<?> type = field.getType();
+        if (!type.isPrimitive()) {
+            field.set(object, readValue());
+        } else if (type == int.class) {
+            field.setInt(object, readSignedVarInt());
+        } else if (type == boolean.class) {
+            field.setBoolean(object, buffer[pos++] != 0);
+        } else if (type == long.class) {
+            field.setLong(object, readSignedVarLong());
+        } else if (type == char.class) {
+            field.setChar(object, (char) readVarInt());
+        } else if (type == byte.class) {
+            field.setByte(object, buffer[pos++]);
+        } else if (type == short.class) {
+            field.setShort(object, (short) readSignedVarInt());
+        } else {
+            throw new InvalidClassException("Cannot read field " + field + " from a mib snapshot");
+        }
+    }
+
+    private Object readValue() throws IOException {
+        int tag = buffer[pos++];
+        switch (tag) {
+            case SnapshotLayout.TAG_NULL:
+                return null;
+            case SnapshotLayout.TAG_REF:
+                return objects[readVarInt()];
+            case SnapshotLayout.TAG_STRING:
+                return strings[readVarInt()];
+            case SnapshotLayout.TAG_BUILTIN:
+                return SnapshotLayout.BUILTINS[readVarInt()];
+            case SnapshotLayout.TAG_ENUM:
+                Class<?> enumClass = layouts[readVarInt()].getType();
+                return enumClass.getEnumConstants()[readVarInt()];
+            case SnapshotLayout.TAG_BIG_INTEGER:
+                int length = readVarInt();
+                pos += length;
+                return new BigInteger(Arrays.copyOfRange(buffer, pos - length, pos));
+            case SnapshotLayout.TAG_INTEGER:
+                return readSignedVarInt();
+            case SnapshotLayout.TAG_LONG:
+                return readSignedVarLong();
+            case SnapshotLayout.TAG_TRUE:
+                return Boolean.TRUE;
+            case SnapshotLayout.TAG_FALSE:
+                return Boolean.FALSE;
+            case SnapshotLayout.TAG_EMPTY_LIST:
+                return Collections.emptyList();
+            case SnapshotLayout.TAG_EMPTY_MAP:
+                return Collections.emptyMap();
+            case SnapshotLayout.TAG_EMPTY_SET:
+                return Collections.emptySet();
+            case SnapshotLayout.TAG_CLASS:
+                try {
+                    return Class.forName(strings[readVarInt()], false, SnapshotReader.class.getClassLoader());
+                } catch (ClassNotFoundException e) {
+                    throw new InvalidClassException(e.getMessage());
+                }
+            default:
+                throw new StreamCorruptedException("Invalid tag in mib snapshot: " + tag);
+        }
+    }
+
+    private int readVarInt() {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer[pos++];
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return result;
+    }
+
+    private int readSignedVarInt() {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readSignedVarLong() {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return (result >>> 1) ^ -(result & 1);
+    }
+
+    private String readString() {
+        int length = readVarInt();
+        String result = new String(buffer, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return result;
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.parser;
+
+import org.apache.commons.collections.map.MultiValueMap;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * Writes an object graph breadth first: every object gets a handle, and references are written as handles.
+ * Strings are written once in a string table. This avoids the deep recursion and the per-object overhead
+ * of java serialization.
+ */
+class SnapshotWriter {
+
+    private final Map<Class<?>, Integer> classIndexes = new HashMap<Class<?>, Integer>();
+    private final List<SnapshotLayout> layouts = new ArrayList<SnapshotLayout>();
+
+    private final Map<String, Integer> stringIndexes = new HashMap<String, Integer>();
+    private final List<String> strings = new ArrayList<String>();
+
+    private final Map<Object, Integer> builtinIndexes = new IdentityHashMap<Object, Integer>();
+    private final Map<Object, Integer> handles = new IdentityHashMap<Object, Integer>();
+    private final List<Object> objects = new ArrayList<Object>();
+
+    private final SnapshotOutput objectTable = new SnapshotOutput();
+    private final SnapshotOutput contents = new SnapshotOutput();
+
+    SnapshotWriter() {
+        for (int i = 0; i < SnapshotLayout.BUILTINS.length; i++) {
+            builtinIndexes.put(SnapshotLayout.BUILTINS[i], i);
+        }
+    }
+
+    void write(Object root, OutputStream os) throws IOException {
+        handle(root);
+        try {
+            for (int i = 0; i < objects.size(); i++) {
+                writeContents(objects.get(i));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+        SnapshotOutput header = new SnapshotOutput();
+        header.writeVarInt(layouts.size());
+        for (SnapshotLayout layout : layouts) {
+            header.writeString(layout.getType().getName());
+            String[] signatures = layout.getFieldSignatures();
+            header.writeVarInt(signatures.length);
+            for (String signature : signatures) {
+                header.writeString(signature);
+            }
+        }
+        header.writeVarInt(strings.size());
+        for (String string : strings) {
+            header.writeString(string);
+        }
+        header.writeVarInt(objects.size());
+        header.writeTo(os);
+        objectTable.writeTo(os);
+        contents.writeTo(os);
+    }
+
+    private int classIndex(Class<?> type) throws NotSerializableException {
+        Integer result = classIndexes.get(type);
+        if (result == null) {
+            result = layouts.size();
+            layouts.add(SnapshotLayout.forClass(type));
+            classIndexes.put(type, result);
+        }
+        return result;
+    }
+
+    private int stringIndex(String string) {
+        Integer result = stringIndexes.get(string);
+        if (result == null) {
+            result = strings.size();
+            strings.add(string);
+            stringIndexes.put(string, result);
+        }
+        return result;
+    }
+
+    private int handle(Object object) throws NotSerializableException {
+        Integer result = handles.get(object);
+        if (result == null) {
+            result = objects.size();
+            int classIndex = classIndex(object.getClass());
+            SnapshotLayout layout = layouts.get(classIndex);
+            objects.add(object);
+            handles.put(object, result);
+            objectTable.writeVarInt(classIndex);
+            switch (layout.getKind()) {
+                case INT_ARRAY:
+                    objectTable.writeVarInt(((int[]) object).length);
+                    break;
+                case BYTE_ARRAY:
+                    objectTable.writeVarInt(((byte[]) object).length);
+                    break;
+                case OBJECT_ARRAY:
+                    objectTable.writeVarInt(classIndex(object.getClass().getComponentType()));
+                    objectTable.writeVarInt(((Object[]) object).length);
+                    break;
+                case TREE_MAP:
+                    if (((SortedMap) object).comparator() != null) {
+                        throw new NotSerializableException("Cannot store a TreeMap with a comparator in a mib snapshot");
+                    }
+                    break;
+                case MULTI_VALUE_MAP:
+                    objectTable.writeVarInt(((MultiValueMap) object).keySet() instanceof SortedSet ? 1 : 0);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return result;
+    }
+
+    private void writeContents(Object object) throws IOException, IllegalAccessException {
+        SnapshotLayout layout = layouts.get(classIndexes.get(object.getClass()));
+        switch (layout.getKind()) {
+            case OBJECT:
+                for (Field field : layout.getFields()) {
+                    writeField(object, field);
+                }
+                break;
+            case ARRAY_LIST:
+            case UNMODIFIABLE_LIST:
+            case HASH_SET:
+            case LINKED_HASH_SET:
+            case UNMODIFIABLE_SET:
+                Collection<?> collection = (Collection<?>) object;
+                contents.writeVarInt(collection.size());
+                for (Object element : collection) {
+                    writeValue(element);
+                }
+                break;
+            case HASH_MAP:
+            case LINKED_HASH_MAP:
+            case TREE_MAP:
+            case UNMODIFIABLE_MAP:
+                Map<?, ?> map = (Map<?, ?>) object;
+                contents.writeVarInt(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    writeValue(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+                break;
+            case MULTI_VALUE_MAP:
+                MultiValueMap multiMap = (MultiValueMap) object;
+                contents.writeVarInt(multiMap.keySet().size());
+                for (Object key : multiMap.keySet()) {
+                    writeValue(key);
+                    Collection<?> values = multiMap.getCollection(key);
+                    contents.writeVarInt(values.size());
+                    for (Object value : values) {
+                        writeValue(value);
+                    }
+                }
+                break;
+            case INT_ARRAY:
+                for (int i : (int[]) object) {
+                    contents.writeVarInt(i);
+                }
+                break;
+            case BYTE_ARRAY:
+                contents.writeBytes((byte[]) object);
+                break;
+            case OBJECT_ARRAY:
+                for (Object element : (Object[]) object) {
+                    writeValue(element);
+                }
+                break;
+            default:
+                throw new IllegalStateException(layout.getKind().toString());
+        }
+    }
+
+    private void writeField(Object object, Field field) throws IOException, IllegalAccessException {
+        Class<?> type = field.getType();
+        if (!type.isPrimitive()) {
+            writeValue(field.get(object));
+        } else if (type == int.class) {
+            contents.writeSignedVarInt(field.getInt(object));
+        } else if (type == boolean.class) {
+            contents.writeByte(field.getBoolean(object) ? 1 : 0);
+        } else if (type == long.class) {
+            contents.writeSignedVarLong(field.getLong(object));
+        } else if (type == char.class) {
+            contents.writeVarInt(field.getChar(object));
+        } else if (type == byte.class) {
+            contents.writeByte(field.getByte(object));
+        } else if (type == short.class) {
+            contents.writeSignedVarInt(field.getShort(object));
+        } else {
+            throw new NotSerializableException("Cannot store field " + field + " in a mib snapshot");
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            contents.writeByte(SnapshotLayout.TAG_NULL);
+        } else if (value instanceof String) {
+            contents.writeByte(SnapshotLayout.TAG_STRING);
+            contents.writeVarInt(stringIndex((String) value));
+        } else if (value instanceof Enum) {
+            contents.writeByte(SnapshotLayout.TAG_ENUM);
+            contents.writeVarInt(classIndex(((Enum) value).getDeclaringClass()));
+            contents.writeVarInt(((Enum) value).ordinal());
+        } else if (value instanceof Integer) {
+            contents.writeByte(SnapshotLayout.TAG_INTEGER);
+            contents.writeSignedVarInt((Integer) value);
+        } else if (value instanceof Long) {
+            contents.writeByte(SnapshotLayout.TAG_LONG);
+            contents.writeSignedVarLong((Long) value);
+        } else if (value instanceof Boolean) {
+            contents.writeByte((Boolean) value ? SnapshotLayout.TAG_TRUE : SnapshotLayout.TAG_FALSE);
+        } else if (value instanceof BigInteger) {
+            byte[] bytes = ((BigInteger) value).toByteArray();
+            contents.writeByte(SnapshotLayout.TAG_BIG_INTEGER);
+            contents.writeVarInt(bytes.length);
+            contents.writeBytes(bytes);
+        } else if (value instanceof Class) {
+            contents.writeByte(SnapshotLayout.TAG_CLASS);
+            contents.writeVarInt(stringIndex(((Class) value).getName()));
+        } else if (value == Collections.emptyList()) {
+            contents.writeByte(SnapshotLayout.TAG_EMPTY_LIST);
+        } else if (value == Collections.emptyMap()) {
+            contents.writeByte(SnapshotLayout.TAG_EMPTY_MAP);
+        } else if (value == Collections.emptySet()) {
+            contents.writeByte(SnapshotLayout.TAG_EMPTY_SET);
+        } else {
+            Integer builtinIndex = builtinIndexes.get(value);
+            if (builtinIndex != null) {
+                contents.writeByte(SnapshotLayout.TAG_BUILTIN);
+                contents.writeVarInt(builtinIndex);
+            } else {
+                contents.writeByte(SnapshotLayout.TAG_REF);
+                contents.writeVarInt(handle(value));
+            }
+        }
+    }
+
+    /**
+     * A growable byte buffer with variable length integer encoding.
+     */
+    static class SnapshotOutput {
+
+        private byte[] buffer = new byte[65536];
+        private int size;
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > buffer.length) {
+                byte[] newBuffer = new byte[Math.max(buffer.length * 2, size + extra)];
+                System.arraycopy(buffer, 0, newBuffer, 0, size);
+                buffer = newBuffer;
+            }
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) b;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeSignedVarInt(int value) {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        void writeSignedVarLong(long value) {
+            long v = (value << 1) ^ (value >> 63);
+            ensureCapacity(10);
+            while ((v & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buffer[size++] = (byte) v;
+        }
+
+        void writeString(String string) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            writeBytes(bytes);
+        }
+
+        void writeTo(OutputStream os) throws IOException {
+            os.write(buffer, 0, size);
+        }
+    }
+}
@@ -0,0 +1,557 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.phase.file;
+
+import antlr.MismatchedCharException;
+import antlr.NoViableAltForCharException;
+import antlr.RecognitionException;
+import antlr.Token;
+import antlr.TokenStream;
+import antlr.TokenStreamException;
+import antlr.TokenStreamRecognitionException;
+import org.wintersleep.snmp.mib.phase.file.antlr.SMILexer;
+import org.wintersleep.snmp.mib.phase.file.antlr.SMIParser;
+import org.wintersleep.snmp.mib.phase.file.antlr.SMITokenTypes;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hand-written replacement for the generated {@link SMILexer}, that scans a byte array directly.
+ * <p>
+ * It produces exactly the same tokens as the generated lexer: the same types, texts, lines, columns (with tabs
+ * of 8 characters) and offsets, and it fails with the same exceptions and messages on the same input. It avoids
+ * the per-character virtual calls, the text buffer and the mark/rewind guessing of the generated lexer.
+ * The keywords are the literals of the generated lexer, and they are looked up with a perfect hash
+ * that is computed while the identifier is being scanned. The keyword tokens share the same String instances.
+ */
+public final class ByteArraySMILexer implements TokenStream, SMITokenTypes {
+
+    private static final int EOF_CHAR = 0xFFFF;
+    private static final int TAB_SIZE = 8;
+
+    // character classes
+    private static final int IDENTIFIER_PART = 1;
+    private static final int DIGIT = 2;
+    private static final int HEX_DIGIT = 4;
+    private static final int LINE_CHAR = 8; // any character in the vocabulary, except newlines
+    private static final int INCLUDE_CHAR = 16; // line characters, except '-'
+    private static final int QUOTE_OR_HEX_DIGIT = 32;
+    private static final int QUOTE_OR_HEX_DIGIT_OR_H = 64;
+    private static final int QUOTE_OR_BIT = 128;
+    private static final int QUOTE_OR_BIT_OR_B = 256;
+
+    private static final int[] CHAR_CLASSES = new int[256];
+
+    static {
+        for (int c = 3; c < 256; c++) {
+            if (c != '\n' && c != '\r') {
+                CHAR_CLASSES[c] |= LINE_CHAR;
+                if (c != '-') {
+                    CHAR_CLASSES[c] |= INCLUDE_CHAR;
+                }
+            }
+        }
+        for (int c = '0'; c <= '9'; c++) {
+            CHAR_CLASSES[c] |= IDENTIFIER_PART | DIGIT | HEX_DIGIT;
+        }
+        for (int c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASSES[c] |= IDENTIFIER_PART;
+            CHAR_CLASSES[Character.toUpperCase(c)] |= IDENTIFIER_PART;
+        }
+        for (int c = 'a'; c <= 'f'; c++) {
+            CHAR_CLASSES[c] |= HEX_DIGIT;
+            CHAR_CLASSES[Character.toUpperCase(c)] |= HEX_DIGIT;
+        }
+        CHAR_CLASSES['-'] |= IDENTIFIER_PART;
+        CHAR_CLASSES['_'] |= IDENTIFIER_PART;
+        for (int c = 0; c < 256; c++) {
+            if ((CHAR_CLASSES[c] & HEX_DIGIT) != 0 || c == '\'') {
+                CHAR_CLASSES[c] |= QUOTE_OR_HEX_DIGIT | QUOTE_OR_HEX_DIGIT_OR_H;
+            }
+        }
+        CHAR_CLASSES['H'] |= QUOTE_OR_HEX_DIGIT_OR_H;
+        CHAR_CLASSES['h'] |= QUOTE_OR_HEX_DIGIT_OR_H;
+        for (char c : new char[]{'\'', '0', '1'}) {
+            CHAR_CLASSES[c] |= QUOTE_OR_BIT | QUOTE_OR_BIT_OR_B;
+        }
+        CHAR_CLASSES['B'] |= QUOTE_OR_BIT_OR_B;
+        CHAR_CLASSES['b'] |= QUOTE_OR_BIT_OR_B;
+    }
+
+    private static final KeywordTable KEYWORDS = new KeywordTable();
+
+    private final byte[] buffer;
+    private final int end;
+    private final int start;
+    private int pos;
+    private int line = 1;
+    private int column = 1;
+
+    private int tokenStart;
+    private int tokenLine;
+    private int tokenColumn;
+
+    public ByteArraySMILexer(byte[] buffer) {
+        this(buffer, 0, buffer.length);
+    }
+
+    /**
+     * The offsets of the tokens are relative to the offset in the buffer.
+     */
+    public ByteArraySMILexer(byte[] buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IllegalArgumentException("Invalid range " + offset + "+" + length + " in buffer of " + buffer.length + " bytes");
+        }
+        this.buffer = buffer;
+        this.start = offset;
+        this.end = offset + length;
+        this.pos = offset;
+    }
+
+    public Token nextToken() throws TokenStreamException {
+        try {
+            for (;;) {
+                tokenStart = pos;
+                tokenLine = line;
+                tokenColumn = column;
+                int c = la(1);
+                switch (c) {
+                    case '|':
+                        return singleCharToken(BAR);
+                    case ',':
+                        return singleCharToken(COMMA);
+                    case '!':
+                        return singleCharToken(EXCLAMATION);
+                    case '^':
+                        return singleCharToken(INTERSECTION);
+                    case '<':
+                        return singleCharToken(LESS);
+                    case '{':
+                        return singleCharToken(L_BRACE);
+                    case '[':
+                        return singleCharToken(L_BRACKET);
+                    case '(':
+                        return singleCharToken(L_PAREN);
+                    case '+':
+                        return singleCharToken(PLUS);
+                    case '}':
+                        return singleCharToken(R_BRACE);
+                    case ']':
+                        return singleCharToken(R_BRACKET);
+                    case ')':
+                        return singleCharToken(R_PAREN);
+                    case ';':
+                        return singleCharToken(SEMI);
+                    case '\t':
+                    case '\n':
+                    case '\f':
+                    case '\r':
+                    case ' ':
+                        whitespace();
+                        continue;
+                    case '#':
+                        include();
+                        continue;
+                    case '"':
+                        return cString();
+                    default:
+                        break;
+                }
+                if (c >= '0' && c <= '9') {
+                    return number();
+                }
+                if (c >= 'a' && c <= 'z') {
+                    return identifier(LOWER);
+                }
+                int c2 = la(2);
+                int c3 = la(3);
+                if (c == '.' && c2 == '.' && c3 == '.') {
+                    pos += 3;
+                    column += 3;
+                    return token(ELLIPSIS);
+                } else if (c == 'S' && c2 == 'M' && c3 == 'I') {
+                    smicDirective();
+                    continue;
+                } else if (c == '-' && c2 == '-' && isInVocabulary(c3)) {
+                    singleLineComment();
+                    continue;
+                } else if (c == '\'' && is(c2, QUOTE_OR_HEX_DIGIT) && is(c3, QUOTE_OR_HEX_DIGIT_OR_H)) {
+                    return bitOrHexString();
+                } else if (c == ':' && c2 == ':') {
+                    match("::=");
+                    return token(ASSIGN_OP);
+                } else if (c == '-' && c2 == '-') {
+                    return doubleCharToken(COMMENT);
+                } else if (c == '.' && c2 == '.') {
+                    return doubleCharToken(DOTDOT);
+                } else if (c == '\'' && c2 == 'B') {
+                    return doubleCharToken(CHARB);
+                } else if (c == '\'' && c2 == 'H') {
+                    return doubleCharToken(CHARH);
+                } else if (c == ':') {
+                    return singleCharToken(COLON);
+                } else if (c == '.') {
+                    return singleCharToken(DOT);
+                } else if (c == '-') {
+                    return singleCharToken(MINUS);
+                } else if (c == '\'') {
+                    return singleCharToken(SINGLE_QUOTE);
+                } else if (c >= 'A' && c <= 'Z') {
+                    return identifier(UPPER);
+                } else if (c == EOF_CHAR) {
+                    OffsetToken token = new OffsetToken(Token.EOF_TYPE, tokenStart - start);
+                    token.setLine(tokenLine);
+                    token.setColumn(tokenColumn);
+                    return token;
+                } else {
+                    throw noViableAlt();
+                }
+            }
+        } catch (RecognitionException e) {
+            throw new TokenStreamRecognitionException(e);
+        }
+    }
+
+    private int la(int i) {
+        int p = pos + i - 1;
+        return p < end ? buffer[p] & 0xFF : EOF_CHAR;
+    }
+
+    private static boolean is(int c, int charClass) {
+        return c < 256 && (CHAR_CLASSES[c] & charClass) != 0;
+    }
+
+    private static boolean isInVocabulary(int c) {
+        return c >= 3 && c <= 255;
+    }
+
+    /**
+     * Consumes a character that is not a tab or a newline.
+     */
+    private void consume() {
+        pos++;
+        column++;
+    }
+
+    private void consumeAny() {
+        if (buffer[pos] == '\t') {
+            column = ((column - 1) / TAB_SIZE + 1) * TAB_SIZE + 1;
+        } else {
+            column++;
+        }
+        pos++;
+    }
+
+    private void newline() {
+        line++;
+        column = 1;
+    }
+
+    private void match(int c) throws MismatchedCharException {
+        if (la(1) != c) {
+            throw mismatch(c);
+        }
+        consume();
+    }
+
+    private void match(String s) throws MismatchedCharException {
+        for (int i = 0; i < s.length(); i++) {
+            match(s.charAt(i));
+        }
+    }
+
+    private OffsetToken token(int type) {
+        OffsetToken token = new OffsetToken(type, tokenStart - start);
+        token.setLine(tokenLine);
+        token.setColumn(tokenColumn);
+        token.setText(new String(buffer, tokenStart, pos - tokenStart, StandardCharsets.ISO_8859_1));
+        return token;
+    }
+
+    private OffsetToken singleCharToken(int type) {
+        consume();
+        return token(type);
+    }
+
+    private OffsetToken doubleCharToken(int type) {
+        pos += 2;
+        column += 2;
+        return token(type);
+    }
+
+    private void whitespace() {
+        for (;;) {
+            switch (la(1)) {
+                case ' ':
+                case '\f':
+                    consume();
+                    break;
+                case '\t':
+                    consumeAny();
+                    break;
+                case '\r':
+                    if (la(2) == '\n') {
+                        pos++;
+                    }
+                    pos++;
+                    newline();
+                    break;
+                case '\n':
+                    pos++;
+                    newline();
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+
+    private void include() throws RecognitionException {
+        match("#include");
+        while (is(la(1), INCLUDE_CHAR)) {
+            consumeAny();
+        }
+        lineEnd();
+    }
+
+    private void singleLineComment() throws RecognitionException {
+        pos += 2;
+        column += 2;
+        while (is(la(1), LINE_CHAR)) {
+            consumeAny();
+        }
+        lineEnd();
+    }
+
+    private void lineEnd() throws RecognitionException {
+        int c = la(1);
+        if (c == '\r') {
+            consume();
+        } else if (c != '\n') {
+            throw noViableAlt();
+        }
+        match('\n');
+        newline();
+    }
+
+    private void smicDirective() throws RecognitionException {
+        pos += 3;
+        column += 3;
+        int c = la(1);
+        if (c != ' ' && c != '\t' && c != '\f' && c != '\n' && c != '\r') {
+            throw noViableAlt();
+        }
+        whitespace();
+        switch (la(1)) {
+            case 'O':
+                match("OBJECT-TYPE");
+                break;
+            case 'T':
+                match("TRAP-TYPE");
+                break;
+            default:
+                throw noViableAlt();
+        }
+    }
+
+    private OffsetToken number() {
+        do {
+            consume();
+        } while (is(la(1), DIGIT));
+        return token(NUMBER);
+    }
+
+    private OffsetToken identifier(int type) {
+        int hash = buffer[pos];
+        consume();
+        int c;
+        while (pos < end && is(c = buffer[pos] & 0xFF, IDENTIFIER_PART)) {
+            hash = 31 * hash + c;
+            consume();
+        }
+        OffsetToken token = new OffsetToken(type, tokenStart - start);
+        token.setLine(tokenLine);
+        token.setColumn(tokenColumn);
+        int keyword = KEYWORDS.find(hash, buffer, tokenStart, pos - tokenStart);
+        if (keyword >= 0) {
+            token.setType(KEYWORDS.types[keyword]);
+            token.setText(KEYWORDS.texts[keyword]);
+        } else {
+            token.setText(new String(buffer, tokenStart, pos - tokenStart, StandardCharsets.ISO_8859_1));
+        }
+        return token;
+    }
+
+    private OffsetToken cString() throws RecognitionException {
+        consume();
+        for (;;) {
+            int c = la(1);
+            if (c == '"') {
+                break;
+            } else if (c == '\r' && la(2) == '\n' && isInVocabulary(la(3))) {
+                pos += 2;
+                newline();
+            } else if (c == '\r' && isInVocabulary(la(2))) {
+                pos++;
+                newline();
+            } else if (is(c, LINE_CHAR) && isInVocabulary(la(2))) {
+                consumeAny();
+            } else if (c == '\n') {
+                pos++;
+                newline();
+            } else {
+                break;
+            }
+        }
+        match('"');
+        return token(C_STRING);
+    }
+
+    private OffsetToken bitOrHexString() throws RecognitionException {
+        if (is(la(2), QUOTE_OR_BIT) && is(la(3), QUOTE_OR_BIT_OR_B) && isBitString()) {
+            consume();
+            while (la(1) == '0' || la(1) == '1') {
+                consume();
+            }
+            pos += 2;
+            column += 2;
+            return token(B_STRING);
+        }
+        consume();
+        while (is(la(1), HEX_DIGIT)) {
+            consume();
+        }
+        match('\'');
+        int c = la(1);
+        if (c != 'H' && c != 'h') {
+            throw noViableAlt();
+        }
+        consume();
+        return token(H_STRING);
+    }
+
+    /**
+     * The syntactic predicate of the generated lexer, without consuming anything.
+     */
+    private boolean isBitString() {
+        int p = pos + 1;
+        while (p < end && (buffer[p] == '0' || buffer[p] == '1')) {
+            p++;
+        }
+        return p + 1 < end && buffer[p] == '\'' && (buffer[p + 1] == 'B' || buffer[p + 1] == 'b');
+    }
+
+    private NoViableAltForCharException noViableAlt() {
+        return new NoViableAltForCharException((char) la(1), null, line, column);
+    }
+
+    /**
+     * Fills in the fields like SMILexer does, without the CharScanner that its constructors take the position from.
+     */
+    private MismatchedCharException mismatch(int expected) {
+        MismatchedCharException result = new MismatchedCharException();
+        result.mismatchType = MismatchedCharException.CHAR;
+        result.foundChar = (char) la(1);
+        result.expecting = (char) expected;
+        result.line = line;
+        result.column = column;
+        return result;
+    }
+
+    /**
+     * An open addressing table without collisions: the multiplier is searched when the table is created.
+     */
+    private static final class KeywordTable {
+
+        private final int multiplier;
+        private final int shift;
+        private final byte[][] bytes;
+        private final String[] texts;
+        private final int[] types;
+
+        private KeywordTable() {
+            SMILexer lexer = new SMILexer((InputStream) null);
+            List<String> keywords = new ArrayList<String>();
+            List<Integer> keywordTypes = new ArrayList<Integer>();
+            for (int type = 0; type < SMIParser._tokenNames.length; type++) {
+                String name = SMIParser._tokenNames[type];
+                if (name.length() > 2 && name.startsWith("\"")) {
+                    String keyword = name.substring(1, name.length() - 1).intern();
+                    if (lexer.testLiteralsTable(keyword, Token.INVALID_TYPE) == type) {
+                        keywords.add(keyword);
+                        keywordTypes.add(type);
+                    }
+                }
+            }
+            int count = keywords.size();
+            for (int bits = 32 - Integer.numberOfLeadingZeros(count * 2); bits < 16; bits++) {
+                int size = 1 << bits;
+                for (int candidate = 1; candidate < 100000; candidate += 2) {
+                    int m = candidate * 0x9E3779B1;
+                    if (!isPerfect(keywords, m, 32 - bits, size)) {
+                        continue;
+                    }
+                    multiplier = m;
+                    shift = 32 - bits;
+                    bytes = new byte[size][];
+                    texts = new String[size];
+                    types = new int[size];
+                    for (int i = 0; i < count; i++) {
+                        String keyword = keywords.get(i);
+                        int slot = (keyword.hashCode() * m) >>> shift;
+                        bytes[slot] = keyword.getBytes(StandardCharsets.ISO_8859_1);
+                        texts[slot] = keyword;
+                        types[slot] = keywordTypes.get(i);
+                    }
+                    return;
+                }
+            }
+            throw new IllegalStateException("Cannot find a perfect hash for the keywords");
+        }
+
+        private static boolean isPerfect(List<String> keywords, int multiplier, int shift, int size) {
+            boolean[] used = new boolean[size];
+            for (String keyword : keywords) {
+                int slot = (keyword.hashCode() * multiplier) >>> shift;
+                if (used[slot]) {
+                    return false;
+                }
+                used[slot] = true;
+            }
+            return true;
+        }
+
+        /**
+         * @return The slot of the keyword, or -1 if the bytes are not a keyword.
+         */
+        int find(int hash, byte[] buffer, int offset, int length) {
+            int slot = (hash * multiplier) >>> shift;
+            byte[] keyword = bytes[slot];
+            if (keyword == null || keyword.length != length) {
+                return -1;
+            }
+            for (int i = 0; i < length; i++) {
+                if (keyword[i] != buffer[offset + i]) {
+                    return -1;
+                }
+            }
+            return slot;
+        }
+    }
+}
@@ -16,18 +16,26 @@
 package org.wintersleep.snmp.mib.phase.file;
 
 import antlr.RecognitionException;
+import antlr.TokenStream;
 import antlr.TokenStreamException;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.wintersleep.snmp.mib.exception.SmiException;
 import org.wintersleep.snmp.mib.phase.Phase;
 import org.wintersleep.snmp.mib.phase.file.antlr.SMILexer;
 import org.wintersleep.snmp.mib.phase.file.antlr.SMIParser;
+import org.wintersleep.snmp.mib.smi.SmiImports;
 import org.wintersleep.snmp.mib.smi.SmiMib;
 import org.wintersleep.snmp.mib.smi.SmiModule;
 import org.wintersleep.snmp.mib.smi.SmiVersion;
 import org.wintersleep.snmp.util.location.Location;
+import org.wintersleep.snmp.util.pair.Pair;
 import org.wintersleep.snmp.util.problem.DefaultProblemReporterFactory;
+import org.wintersleep.snmp.util.problem.DeferredProblemReporter;
 import org.wintersleep.snmp.util.problem.ProblemEventHandler;
 import org.wintersleep.snmp.util.problem.ProblemReporterFactory;
+import org.wintersleep.snmp.util.token.IdToken;
+import org.wintersleep.snmp.util.url.ModuleURLResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,10 +43,17 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-
-// TODO allow any URL's
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 public class FileParserPhase implements Phase {
 
@@ -47,6 +62,18 @@ public class FileParserPhase implements Phase {
     private FileParserProblemReporter reporter;
 
     private List<URL> inputUrls;
+    private List<SmiSource> inputSources;
+
+    private List<String> rootModules;
+    private ModuleURLResolver moduleResolver;
+
+    private Executor executor;
+    private int parallelism = 1;
+
+    private boolean byteArrayLexer;
+    private boolean skim;
+
+    private List<String> resolvedModuleIds = new ArrayList<String>();
 
     public FileParserPhase(FileParserProblemReporter reporter) {
         this.reporter = reporter;
@@ -73,9 +100,129 @@ public class FileParserPhase implements Phase {
         this.inputUrls = inputUrls;
     }
 
+    public List<SmiSource> getInputSources() {
+        return inputSources;
+    }
+
+    /**
+     * Sources that are parsed after the input urls, for instance mibs that are already in memory.
+     */
+    public void setInputSources(List<SmiSource> inputSources) {
+        this.inputSources = inputSources;
+    }
+
+    public List<String> getRootModules() {
+        return rootModules;
+    }
+
+    /**
+     * The ids of the modules that must be loaded through the module resolver, together with all the modules
+     * they import, directly or indirectly.
+     */
+    public void setRootModules(List<String> rootModules) {
+        this.rootModules = rootModules;
+    }
+
+    public ModuleURLResolver getModuleResolver() {
+        return moduleResolver;
+    }
+
+    /**
+     * When a module resolver is set, the root modules and all the modules imported by the parsed modules
+     * (including those from the input urls) that are not in the mib yet, are looked up and parsed on demand.
+     * Imported modules that cannot be found are left to the XRefPhase to report.
+     */
+    public void setModuleResolver(ModuleURLResolver moduleResolver) {
+        this.moduleResolver = moduleResolver;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Parse the input files concurrently on the given executor. The modules are still added to the mib
+     * in the order of the input urls, and the problems are reported in that order too.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * When no executor is set, and the parallelism is larger than 1, a thread pool with that many threads
+     * is created for the duration of each call to process().
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public boolean isByteArrayLexer() {
+        return byteArrayLexer;
+    }
+
+    /**
+     * Read each file into memory and scan it with the {@link ByteArraySMILexer}, instead of streaming it
+     * through the generated ANTLR lexer. Both produce the same tokens. Local files are read with one call,
+     * and in-memory sources are scanned without copying them.
+     */
+    public void setByteArrayLexer(boolean byteArrayLexer) {
+        this.byteArrayLexer = byteArrayLexer;
+    }
+
+    public boolean isSkim() {
+        return skim;
+    }
+
+    /**
+     * Only parse the module headers: the modules will only have their imports and module identity,
+     * which is enough to find out which modules depend on which, at a fraction of the cost of a full parse.
+     * The resulting mib cannot be resolved by the XRefPhase.
+     */
+    public void setSkim(boolean skim) {
+        this.skim = skim;
+    }
+
+    /**
+     * @return The sources for the input urls, followed by the input sources: everything that is parsed
+     * before the module resolver is used.
+     */
+    public List<SmiSource> createSources() {
+        List<SmiSource> result = new ArrayList<SmiSource>();
+        if (inputUrls != null) {
+            for (URL url : inputUrls) {
+                result.add(SmiSource.forUrl(url));
+            }
+        }
+        if (inputSources != null) {
+            result.addAll(inputSources);
+        }
+        return result;
+    }
+
+    /**
+     * @return The ids of all the modules that the last call to process() looked up through the module resolver,
+     * including the ones that were not found, in the order in which they were looked up.
+     */
+    public List<String> getResolvedModuleIds() {
+        return Collections.unmodifiableList(resolvedModuleIds);
+    }
+
     public SmiMib process(SmiMib mib) throws SmiException {
-        for (URL url : getInputUrls()) {
-            parse(mib, url, determineResourceLocation(url));
+        resolvedModuleIds = new ArrayList<String>();
+        // all identifiers of the modules that are parsed together share the same String instances
+        Interner<String> interner = Interners.newStrongInterner();
+        parse(mib, createSources(), interner);
+        if (moduleResolver != null) {
+            loadModules(mib, interner);
+        } else if (rootModules != null) {
+            throw new IllegalStateException("Root modules require a module resolver");
         }
 
         if (LOGGER.isDebugEnabled()) {
@@ -85,23 +232,177 @@ public class FileParserPhase implements Phase {
         return mib;
     }
 
-    private String determineResourceLocation(URL url) {
-        if ("file".equals(url.getProtocol())) {
-            return "file://" + url.getPath();
+    private void parse(SmiMib mib, List<SmiSource> sources, Interner<String> interner) {
+        if (sources.size() > 1 && (executor != null || parallelism > 1)) {
+            parseConcurrently(mib, sources, interner);
+        } else {
+            for (SmiSource source : sources) {
+                parse(mib, source, reporter, interner);
+            }
+        }
+    }
+
+    /**
+     * Loads the root modules and the imported modules in waves: each wave parses all the modules that were
+     * found to be missing by the previous wave, so that they can still be parsed concurrently.
+     */
+    private void loadModules(SmiMib mib, Interner<String> interner) {
+        Set<String> requestedModuleIds = new HashSet<String>();
+        Set<URL> parsedUrls = new HashSet<URL>();
+        Set<SmiModule> scannedModules = new HashSet<SmiModule>();
+        Set<String> rootModuleIds = new LinkedHashSet<String>();
+        if (rootModules != null) {
+            rootModuleIds.addAll(rootModules);
+        }
+        Set<String> wave = new LinkedHashSet<String>(rootModuleIds);
+        wave.addAll(findMissingImports(mib, scannedModules));
+        while (!wave.isEmpty()) {
+            List<SmiSource> sources = new ArrayList<SmiSource>();
+            for (String moduleId : wave) {
+                if (mib.findModule(moduleId) == null && requestedModuleIds.add(moduleId)) {
+                    resolvedModuleIds.add(moduleId);
+                    URL url = findModule(moduleId);
+                    if (url == null) {
+                        if (rootModuleIds.contains(moduleId)) {
+                            reporter.reportModuleNotFound(moduleId);
+                        } else {
+                            LOGGER.debug("Cannot find imported module: " + moduleId);
+                        }
+                    } else if (parsedUrls.add(url)) {
+                        sources.add(SmiSource.forUrl(url));
+                    }
+                }
+            }
+            parse(mib, sources, interner);
+            wave = findMissingImports(mib, scannedModules);
+        }
+    }
+
+    private URL findModule(String moduleId) {
+        try {
+            return moduleResolver.findModule(moduleId);
+        } catch (Exception e) {
+            throw new SmiException("Error while looking for module " + moduleId + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Set<String> findMissingImports(SmiMib mib, Set<SmiModule> scannedModules) {
+        Set<String> result = new LinkedHashSet<String>();
+        for (SmiModule module : mib.getModules()) {
+            if (scannedModules.add(module)) {
+                for (SmiImports imports : module.getImports()) {
+                    String moduleId = imports.getModuleToken().getId();
+                    if (mib.findModule(moduleId) == null) {
+                        result.add(moduleId);
+                        if (mib.getOptions().isConvertV1ImportsToV2()) {
+                            addV2Modules(imports, result);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The SMIv1 modules are often not available, while the XRefPhase can take the symbols from their SMIv2
+     * replacements instead.
+     */
+    private void addV2Modules(SmiImports imports, Set<String> result) {
+        for (IdToken symbolToken : imports.getSymbolTokens()) {
+            Pair<String, String> v2Definition = imports.findV2Definition(symbolToken.getId());
+            if (v2Definition != null) {
+                result.add(v2Definition.getFirst());
+            }
+        }
+    }
+
+    private void parseConcurrently(final SmiMib mib, List<SmiSource> sources, final Interner<String> interner) {
+        ExecutorService ownExecutor = null;
+        Executor executor = this.executor;
+        if (executor == null) {
+            ownExecutor = Executors.newFixedThreadPool(Math.min(parallelism, sources.size()));
+            executor = ownExecutor;
+        }
+        try {
+            List<FutureTask<StagedParse>> tasks = new ArrayList<FutureTask<StagedParse>>(sources.size());
+            for (final SmiSource source : sources) {
+                FutureTask<StagedParse> task = new FutureTask<StagedParse>(() -> stage(mib, source, interner));
+                tasks.add(task);
+                executor.execute(task);
+            }
+            for (FutureTask<StagedParse> task : tasks) {
+                StagedParse stagedParse = getResult(task);
+                stagedParse.reporter.replay(reporter);
+                mib.adoptModules(stagedParse.mib);
+            }
+        } finally {
+            if (ownExecutor != null) {
+                ownExecutor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Parses the source into a separate staging mib, recording all problems instead of reporting them.
+     */
+    private StagedParse stage(SmiMib mib, SmiSource source, Interner<String> interner) {
+        StagedParse result = new StagedParse(new SmiMib(mib.getOptions(), mib.getCodeNamingStrategy()));
+        parse(result.mib, source, result.reporter.getReporter(), interner);
+        return result;
+    }
+
+    private static StagedParse getResult(FutureTask<StagedParse> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static class StagedParse {
+        private final SmiMib mib;
+        private final DeferredProblemReporter<FileParserProblemReporter> reporter = new DeferredProblemReporter<FileParserProblemReporter>(FileParserProblemReporter.class);
+
+        private StagedParse(SmiMib mib) {
+            this.mib = mib;
         }
-        return url.toString();
     }
 
     public void parse(SmiMib mib, URL url, String resourceLocation) {
+        parse(mib, SmiSource.forUrl(url, resourceLocation));
+    }
+
+    public void parse(SmiMib mib, SmiSource source) {
+        parse(mib, source, reporter, Interners.<String>newStrongInterner());
+    }
+
+    private void parse(SmiMib mib, SmiSource source, FileParserProblemReporter reporter, Interner<String> interner) {
+        String resourceLocation = source.getLocation();
         InputStream is = null;
         try {
-            LOGGER.debug("Parsing :" + url);
-            is = url.openStream();
-            is = new BufferedInputStream(is);
-            SMILexer lexer = new SMILexer(is);
+            LOGGER.debug("Parsing :" + source);
+            TokenStream lexer;
+            if (byteArrayLexer) {
+                lexer = new ByteArraySMILexer(source.readBytes());
+            } else {
+                is = new BufferedInputStream(source.openStream());
+                lexer = new SMILexer(is);
+            }
 
             SMIParser parser = new SMIParser(lexer);
-            parser.init(mib, resourceLocation);
+            parser.init(mib, resourceLocation, interner, source.isRereadable());
+            parser.setSkim(skim);
 
             // TODO should define this in the grammar
             SmiModule module = parser.module_definition();
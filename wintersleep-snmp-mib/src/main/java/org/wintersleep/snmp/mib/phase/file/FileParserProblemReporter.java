@@ -33,5 +33,8 @@ public interface FileParserProblemReporter {
 
     @ProblemMethod(message="IO error: %s")
     void reportIoException(Location location, String message);
+
+    @ProblemMethod(message = "Cannot find module %s in the module search path")
+    void reportModuleNotFound(String moduleId);
 }
 
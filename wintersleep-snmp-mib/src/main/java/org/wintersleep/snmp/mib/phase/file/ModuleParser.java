@@ -16,6 +16,8 @@
 package org.wintersleep.snmp.mib.phase.file;
 
 import antlr.Token;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import org.wintersleep.snmp.mib.smi.*;
 import org.wintersleep.snmp.util.location.Location;
 import org.wintersleep.snmp.util.token.BigIntegerToken;
@@ -37,9 +39,31 @@ public class ModuleParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(ModuleParser.class);
 
     private final SmiModule module;
+    private final String source;
+    private final Interner<String> interner;
+    private final boolean rereadable;
 
     public ModuleParser(SmiModule module) {
+        this(module, Interners.<String>newStrongInterner());
+    }
+
+    /**
+     * @param interner Shared by all the modules that are parsed together, so that they all use the same String
+     *                 instance for the same identifier.
+     */
+    public ModuleParser(SmiModule module, Interner<String> interner) {
+        this(module, interner, true);
+    }
+
+    /**
+     * @param rereadable Whether the mib file can be read again from the source of the locations, which is needed
+     *                   to leave the texts in the file.
+     */
+    public ModuleParser(SmiModule module, Interner<String> interner, boolean rereadable) {
         this.module = module;
+        this.source = module.getIdToken().getLocation().getSource();
+        this.interner = interner;
+        this.rereadable = rereadable;
     }
 
     public SmiModule getModule() {
@@ -47,12 +71,11 @@ public class ModuleParser {
     }
 
     private Location makeLocation(Token token) {
-        String source = module.getIdToken().getLocation().getSource();
         return new Location(source, token.getLine(), token.getColumn());
     }
 
     public IdToken idt(Token idToken) {
-        return new IdToken(makeLocation(idToken), idToken.getText());
+        return new IdToken(source, idToken.getLine(), idToken.getColumn(), interner.intern(idToken.getText()));
     }
 
     public IdToken idt(Token... tokens) {
@@ -90,17 +113,39 @@ public class ModuleParser {
         return null;
     }
 
+    private boolean isLazyText(Token t) {
+        return rereadable && t instanceof OffsetToken && module.getMib().getOptions().isLazyText();
+    }
+
+    /**
+     * @return The text of the optional DESCRIPTION or REFERENCE clause, or null if it is not kept in memory.
+     */
+    public String getText(Token t) {
+        return isLazyText(t) ? null : getOptCStr(t);
+    }
+
+    /**
+     * @return The position of the text of the optional DESCRIPTION or REFERENCE clause in the mib file,
+     * if the text is not kept in memory.
+     */
+    public SmiTextRef getTextRef(Token t) {
+        if (!isLazyText(t)) {
+            return null;
+        }
+        return new SmiTextRef(source, ((OffsetToken) t).getOffset() + 1, t.getText().length() - 2);
+    }
+
     public IntegerToken intt(Token t) {
         int value = Integer.parseInt(t.getText());
-        return new IntegerToken(makeLocation(t), value);
+        return new IntegerToken(source, t.getLine(), t.getColumn(), value);
     }
 
     public BigIntegerToken bintt(Token t) {
-        return new BigIntegerToken(makeLocation(t), false, t.getText());
+        return new BigIntegerToken(source, t.getLine(), t.getColumn(), false, t.getText());
     }
 
     public BigIntegerToken bintt(Token minusToken, Token t) {
-        return new BigIntegerToken(makeLocation(t), minusToken != null, t.getText());
+        return new BigIntegerToken(source, t.getLine(), t.getColumn(), minusToken != null, t.getText());
     }
 
     public List<IdToken> makeIdTokenList() {
@@ -144,20 +189,26 @@ public class ModuleParser {
     }
 
     public SmiNotificationType createNotification(IdToken idToken, List<IdToken> objectTokens,
-                                                  StatusV2 status, String description, String reference) {
+                                                  StatusV2 status, Token description, Token reference) {
         final String methodWithParams = "createNotification(" + idToken.getId() + ")";
         LOGGER.debug(methodWithParams);
 
-        return new SmiNotificationType(idToken, module, objectTokens, status, description, reference);
+        SmiNotificationType result = new SmiNotificationType(idToken, module, objectTokens, status, getText(description), getText(reference));
+        result.setDescriptionRef(getTextRef(description));
+        result.setReferenceRef(getTextRef(reference));
+        return result;
     }
 
     public SmiTrapType createTrap(IdToken idToken, IdToken enterpriseIdToken,
-                                  List<IdToken> objectTokens, String description, String reference) {
+                                  List<IdToken> objectTokens, Token description, Token reference) {
         final String methodWithParams = "createTrap(" + idToken.getId() + ")";
         LOGGER.debug(methodWithParams);
 
-        return new SmiTrapType(idToken, module, enterpriseIdToken, objectTokens,
-                description, reference);
+        SmiTrapType result = new SmiTrapType(idToken, module, enterpriseIdToken, objectTokens,
+                getText(description), getText(reference));
+        result.setDescriptionRef(getTextRef(description));
+        result.setReferenceRef(getTextRef(reference));
+        return result;
     }
 
     public SmiRow createRow(IdToken idToken, SmiType t) {
@@ -179,7 +230,9 @@ public class ModuleParser {
     }
 
     public SmiTextualConvention createTextualConvention(IdToken idToken, Token displayHint, StatusV2 status, Token description, Token reference, SmiType type) {
-        SmiTextualConvention result = new SmiTextualConvention(idToken, module, getOptCStr(displayHint), status, getCStr(description), getOptCStr(reference));
+        SmiTextualConvention result = new SmiTextualConvention(idToken, module, getOptCStr(displayHint), status, getText(description), getText(reference));
+        result.setDescriptionRef(getTextRef(description));
+        result.setReferenceRef(getTextRef(reference));
 
         if (type.getBaseType() == null) {
             result.setBaseType(type);
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.phase.file;
+
+import antlr.CommonToken;
+
+/**
+ * A token that also knows the offset of its first character in the input, so that its text can be read again
+ * from the input later on.
+ */
+public class OffsetToken extends CommonToken {
+
+    private final int offset;
+
+    public OffsetToken(int type, int offset) {
+        super(type, null);
+        this.offset = offset;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.phase.file;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The contents of a mib file, that are parsed by the {@link FileParserPhase}.
+ * <p>
+ * Urls of which the path ends with .gz are decompressed while they are parsed.
+ * Besides urls, mibs can also be parsed from memory, for instance when they were received through some other API,
+ * without writing them to a temporary file first.
+ */
+public abstract class SmiSource {
+
+    private final String location;
+
+    protected SmiSource(String location) {
+        if (location == null) {
+            throw new IllegalArgumentException("A source needs a location");
+        }
+        this.location = location;
+    }
+
+    /**
+     * @return The location that is used in all the Locations of the tokens that are parsed from this source.
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * @return True if the source can be read again later on, from its location. Only then the DESCRIPTION and
+     * REFERENCE texts can be left in the mib file when {@link org.wintersleep.snmp.mib.smi.SmiOptions#isLazyText()}
+     * is set.
+     */
+    public boolean isRereadable() {
+        return false;
+    }
+
+    public abstract InputStream openStream() throws IOException;
+
+    /**
+     * @return All the bytes of the source. The caller must not modify the result.
+     */
+    public byte[] readBytes() throws IOException {
+        try (InputStream is = openStream()) {
+            return ByteStreams.toByteArray(is);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return location;
+    }
+
+    public static SmiSource forUrl(URL url) {
+        return forUrl(url, determineLocation(url));
+    }
+
+    public static SmiSource forUrl(URL url, String location) {
+        return new UrlSource(url, location);
+    }
+
+    /**
+     * The bytes are used directly, without copying them.
+     */
+    public static SmiSource forBytes(String location, byte[] bytes) {
+        return new ByteArraySource(location, bytes);
+    }
+
+    /**
+     * Mib files are plain ASCII: each character is turned into one byte, characters that are not in ISO-8859-1
+     * become '?'.
+     */
+    public static SmiSource forText(String location, CharSequence text) {
+        return new ByteArraySource(location, text.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    static boolean isGzipped(String path) {
+        return path.endsWith(".gz");
+    }
+
+    static String determineLocation(URL url) {
+        if ("file".equals(url.getProtocol())) {
+            return "file://" + url.getPath();
+        }
+        return url.toString();
+    }
+
+    private static class UrlSource extends SmiSource {
+
+        private final URL url;
+
+        private UrlSource(URL url, String location) {
+            super(location);
+            this.url = url;
+        }
+
+        @Override
+        public boolean isRereadable() {
+            return getLocation().equals(determineLocation(url));
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            InputStream result = url.openStream();
+            if (isGzipped(url.getPath())) {
+                result = new GZIPInputStream(result);
+            }
+            return result;
+        }
+
+        /**
+         * Local files are read in one call, instead of through a stream.
+         */
+        @Override
+        public byte[] readBytes() throws IOException {
+            if ("file".equals(url.getProtocol()) && !isGzipped(url.getPath())) {
+                try {
+                    return Files.readAllBytes(Paths.get(url.toURI()));
+                } catch (URISyntaxException | IllegalArgumentException e) {
+                    // fall back to the stream
+                }
+            }
+            return super.readBytes();
+        }
+    }
+
+    private static class ByteArraySource extends SmiSource {
+
+        private final byte[] bytes;
+
+        private ByteArraySource(String location, byte[] bytes) {
+            super(location);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream openStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public byte[] readBytes() {
+            return bytes;
+        }
+    }
+}
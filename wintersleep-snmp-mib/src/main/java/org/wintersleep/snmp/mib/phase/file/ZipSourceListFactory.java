@@ -0,0 +1,117 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.phase.file;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Creates the sources for all the mib files in a zip or jar archive, which are all read through the same
+ * open ZipFile, without extracting them first. Entries with a .gz extension are decompressed while they are parsed.
+ * <p>
+ * The archive must stay open until the mib has been parsed:
+ * <pre>
+ * try (ZipSourceListFactory factory = new ZipSourceListFactory(file)) {
+ *     parser.getFileParserPhase().setInputSources(factory.create());
+ *     mib = parser.parse();
+ * }
+ * </pre>
+ */
+public class ZipSourceListFactory implements Closeable {
+
+    private final File file;
+    private final ZipFile zipFile;
+
+    public ZipSourceListFactory(File file) throws IOException {
+        this.file = file;
+        this.zipFile = new ZipFile(file);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return A source for each file in the archive, in the order of the archive, except for hidden files and
+     * the META-INF directory.
+     */
+    public List<SmiSource> create() {
+        List<SmiSource> result = new ArrayList<SmiSource>();
+        String prefix = "jar:" + file.toURI() + "!/";
+        for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements(); ) {
+            ZipEntry entry = e.nextElement();
+            String name = entry.getName();
+            String baseName = name.substring(name.lastIndexOf('/') + 1);
+            if (!entry.isDirectory() && !baseName.startsWith(".") && !name.startsWith("META-INF/")) {
+                result.add(new EntrySource(prefix + name, entry));
+            }
+        }
+        return result;
+    }
+
+    public void close() throws IOException {
+        zipFile.close();
+    }
+
+    private class EntrySource extends SmiSource {
+
+        private final ZipEntry entry;
+
+        private EntrySource(String location, ZipEntry entry) {
+            super(location);
+            this.entry = entry;
+        }
+
+        /**
+         * The location is a jar url, which can still be read after the archive has been closed.
+         */
+        @Override
+        public boolean isRereadable() {
+            return true;
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            InputStream result = zipFile.getInputStream(entry);
+            if (isGzipped(entry.getName())) {
+                result = new GZIPInputStream(result);
+            }
+            return result;
+        }
+
+        @Override
+        public byte[] readBytes() throws IOException {
+            if (isGzipped(entry.getName()) || entry.getSize() < 0 || entry.getSize() > Integer.MAX_VALUE) {
+                return super.readBytes();
+            }
+            byte[] result = new byte[(int) entry.getSize()];
+            try (InputStream is = openStream()) {
+                ByteStreams.readFully(is, result);
+            }
+            return result;
+        }
+    }
+}
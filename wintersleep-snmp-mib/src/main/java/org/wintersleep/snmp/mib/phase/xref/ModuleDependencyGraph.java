@@ -0,0 +1,184 @@
+/*
+ * Copyright 2006 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.phase.xref;
+
+import org.wintersleep.snmp.mib.smi.SmiModule;
+import org.wintersleep.snmp.mib.smi.SmiOidValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Which modules have to be resolved before which other modules. A module depends on the modules it imports from,
+ * and on the modules of the oid values that are referenced by name in its own oid values: these are found through
+ * the same lookup that is used while resolving, which can also find symbols that were not imported.
+ * <p>
+ * Modules that depend on each other, directly or indirectly, end up in the same group, and have to be resolved
+ * together by one thread.
+ */
+class ModuleDependencyGraph {
+
+    private final List<SmiModule> modules;
+    private final Map<SmiModule, Integer> indexMap = new IdentityHashMap<SmiModule, Integer>();
+    private final List<TreeSet<Integer>> dependencies;
+
+    ModuleDependencyGraph(Collection<SmiModule> modules) {
+        this.modules = new ArrayList<SmiModule>(modules);
+        dependencies = new ArrayList<TreeSet<Integer>>(modules.size());
+        for (SmiModule module : this.modules) {
+            indexMap.put(module, indexMap.size());
+            dependencies.add(new TreeSet<Integer>());
+        }
+    }
+
+    /**
+     * Must be called after the imports have been resolved.
+     */
+    static ModuleDependencyGraph create(Collection<SmiModule> modules) {
+        ModuleDependencyGraph result = new ModuleDependencyGraph(modules);
+        for (SmiModule module : modules) {
+            for (SmiModule importedModule : module.getImportedModules()) {
+                result.addDependency(module, importedModule);
+            }
+            for (SmiOidValue oidValue : module.getOidValues()) {
+                for (SmiOidValue referencedValue : oidValue.findReferencedOidValues()) {
+                    result.addDependency(module, referencedValue.getModule());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Dependencies on modules that are not part of the graph (or on the module itself) are ignored.
+     */
+    void addDependency(SmiModule module, SmiModule dependency) {
+        Integer from = indexMap.get(module);
+        Integer to = indexMap.get(dependency);
+        if (from == null) {
+            throw new IllegalArgumentException("Unknown module: " + module.getId());
+        }
+        if (to != null && !from.equals(to)) {
+            dependencies.get(from).add(to);
+        }
+    }
+
+    /**
+     * @return The groups of modules that can be resolved in parallel, wave after wave: each group only depends
+     * on groups of earlier waves. Within a group, the modules are in the original order, and the groups of a wave
+     * are ordered by their first module.
+     */
+    List<List<List<SmiModule>>> determineWaves() {
+        List<int[]> components = new Tarjan().run();
+
+        // Tarjan finds the components that a component depends on before the component itself
+        int[] componentOfModule = new int[modules.size()];
+        for (int c = 0; c < components.size(); c++) {
+            for (int m : components.get(c)) {
+                componentOfModule[m] = c;
+            }
+        }
+        int[] waveOfComponent = new int[components.size()];
+        List<List<int[]>> waves = new ArrayList<List<int[]>>();
+        for (int c = 0; c < components.size(); c++) {
+            int wave = 0;
+            for (int m : components.get(c)) {
+                for (int dependency : dependencies.get(m)) {
+                    int dependencyComponent = componentOfModule[dependency];
+                    if (dependencyComponent != c) {
+                        wave = Math.max(wave, waveOfComponent[dependencyComponent] + 1);
+                    }
+                }
+            }
+            waveOfComponent[c] = wave;
+            while (waves.size() <= wave) {
+                waves.add(new ArrayList<int[]>());
+            }
+            waves.get(wave).add(components.get(c));
+        }
+
+        List<List<List<SmiModule>>> result = new ArrayList<List<List<SmiModule>>>(waves.size());
+        for (List<int[]> wave : waves) {
+            wave.sort((c1, c2) -> Integer.compare(c1[0], c2[0]));
+            List<List<SmiModule>> groups = new ArrayList<List<SmiModule>>(wave.size());
+            for (int[] component : wave) {
+                List<SmiModule> group = new ArrayList<SmiModule>(component.length);
+                for (int m : component) {
+                    group.add(modules.get(m));
+                }
+                groups.add(group);
+            }
+            result.add(groups);
+        }
+        return result;
+    }
+
+    /**
+     * Tarjan's strongly connected components algorithm. The components are returned with their module indexes
+     * sorted.
+     */
+    private class Tarjan {
+
+        private final int[] index = new int[modules.size()];
+        private final int[] lowLink = new int[modules.size()];
+        private final boolean[] onStack = new boolean[modules.size()];
+        private final int[] stack = new int[modules.size()];
+        private int stackSize;
+        private int nextIndex = 1;
+        private final List<int[]> components = new ArrayList<int[]>();
+
+        List<int[]> run() {
+            for (int m = 0; m < modules.size(); m++) {
+                if (index[m] == 0) {
+                    visit(m);
+                }
+            }
+            return components;
+        }
+
+        private void visit(int m) {
+            index[m] = nextIndex;
+            lowLink[m] = nextIndex;
+            nextIndex++;
+            stack[stackSize++] = m;
+            onStack[m] = true;
+            for (int dependency : dependencies.get(m)) {
+                if (index[dependency] == 0) {
+                    visit(dependency);
+                    lowLink[m] = Math.min(lowLink[m], lowLink[dependency]);
+                } else if (onStack[dependency]) {
+                    lowLink[m] = Math.min(lowLink[m], index[dependency]);
+                }
+            }
+            if (lowLink[m] == index[m]) {
+                int start = stackSize;
+                do {
+                    start--;
+                    onStack[stack[start]] = false;
+                } while (stack[start] != m);
+                int[] component = Arrays.copyOfRange(stack, start, stackSize);
+                stackSize = start;
+                Arrays.sort(component);
+                components.add(component);
+            }
+        }
+    }
+}
@@ -20,20 +20,32 @@ import org.wintersleep.snmp.mib.phase.Phase;
 import org.wintersleep.snmp.mib.smi.SmiDefaultValue;
 import org.wintersleep.snmp.mib.smi.SmiMib;
 import org.wintersleep.snmp.mib.smi.SmiModule;
-import org.wintersleep.snmp.mib.smi.SmiOidNode;
 import org.wintersleep.snmp.mib.smi.SmiOidValue;
+import org.wintersleep.snmp.mib.smi.SmiRow;
 import org.wintersleep.snmp.mib.smi.SmiSymbol;
 import org.wintersleep.snmp.mib.smi.SmiVariable;
 import org.wintersleep.snmp.util.problem.DefaultProblemReporterFactory;
+import org.wintersleep.snmp.util.problem.DeferredProblemReporter;
 import org.wintersleep.snmp.util.problem.ProblemEventHandler;
 import org.wintersleep.snmp.util.problem.ProblemReporterFactory;
 import org.wintersleep.snmp.util.token.IdToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 public class XRefPhase implements Phase {
 
@@ -41,6 +53,8 @@ public class XRefPhase implements Phase {
 
     private XRefProblemReporter reporter;
     private Map<String, SymbolDefiner> symbolDefinerMap = new LinkedHashMap<String, SymbolDefiner>();
+    private Executor executor;
+    private int parallelism = 1;
 
     public XRefPhase(XRefProblemReporter reporter) {
         this.reporter = reporter;
@@ -84,6 +98,33 @@ public class XRefPhase implements Phase {
         return this;
     }
 
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Resolve the modules concurrently on the given executor. The result is the same as when resolving
+     * sequentially, and the problems are reported per module, in the order of the modules.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * When no executor is set, and the parallelism is larger than 1, a thread pool with that many threads
+     * is created for the duration of each call to process().
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
     public SmiMib process(SmiMib mib) throws SmiException {
 
         defineMissingSymbols(mib);
@@ -91,13 +132,18 @@ public class XRefPhase implements Phase {
         mib.fillTables();
         mib.defineMissingStandardOids();
 
-        for (SmiModule module : mib.getModules()) {
-            module.resolveImports(reporter);
-        }
-
         Collection<SmiModule> modules = mib.getModules();
-        resolveReferences(modules);
-        resolveOids(modules);
+        if (modules.size() > 1 && (executor != null || parallelism > 1)) {
+            resolveConcurrently(mib);
+        } else {
+            for (SmiModule module : modules) {
+                module.resolveImports(reporter);
+            }
+            resolveReferences(modules);
+            resolveOids(modules);
+        }
+        mib.determineTableStructure();
+        mib.determineEffectiveTypes();
         mib.fillExtraTables();
         resolveDefaultValues(mib);
 
@@ -129,14 +175,192 @@ public class XRefPhase implements Phase {
                 oidValue.resolveOid(reporter);
             }
         }
+    }
+
+    /**
+     * Imports and references are resolved per module, because resolving them only changes the module itself.
+     * Oids are resolved in waves of independent groups of modules, following the {@link ModuleDependencyGraph},
+     * because resolving an oid value first resolves the values it references, which can be in other modules.
+     * Afterwards, the lists that were filled concurrently are put in the order of the sequential resolution.
+     */
+    protected void resolveConcurrently(SmiMib mib) {
+        Collection<SmiModule> modules = mib.getModules();
+        ExecutorService ownExecutor = null;
+        Executor executor = this.executor;
+        if (executor == null) {
+            ownExecutor = Executors.newFixedThreadPool(Math.min(parallelism, modules.size()));
+            executor = ownExecutor;
+        }
+        try {
+            Set<SmiOidValue> resolvedOidValues = Collections.newSetFromMap(new IdentityHashMap<SmiOidValue, Boolean>());
+            for (SmiModule module : modules) {
+                // determined lazily, and needed when resolving references to symbols that were not imported
+                module.getVersion();
+                for (SmiOidValue oidValue : module.getOidValues()) {
+                    if (oidValue.getNode() != null) {
+                        resolvedOidValues.add(oidValue);
+                    }
+                }
+            }
+
+            List<List<SmiModule>> groups = new ArrayList<List<SmiModule>>(modules.size());
+            for (SmiModule module : modules) {
+                groups.add(Collections.singletonList(module));
+            }
+            replay(execute(executor, groups, (module, reporter) -> module.resolveImports(reporter)));
+            replay(execute(executor, groups, (module, reporter) -> {
+                for (SmiSymbol symbol : module.getSymbols()) {
+                    symbol.resolveReferences(reporter);
+                }
+            }));
+            sortChildRows(modules);
+
+            // the problems of each group are replayed in the order of the first module of the group;
+            // an oid value that cannot be resolved can still be reported earlier or later than sequentially
+            final Map<SmiModule, Integer> moduleOrder = new IdentityHashMap<SmiModule, Integer>();
+            for (SmiModule module : modules) {
+                moduleOrder.put(module, moduleOrder.size());
+            }
+            List<GroupResult> oidResults = new ArrayList<GroupResult>();
+            for (List<List<SmiModule>> wave : ModuleDependencyGraph.create(modules).determineWaves()) {
+                oidResults.addAll(execute(executor, wave, (module, reporter) -> {
+                    for (SmiOidValue oidValue : module.getOidValues()) {
+                        oidValue.resolveOid(reporter);
+                    }
+                }));
+            }
+            oidResults.sort(Comparator.comparingInt(result -> moduleOrder.get(result.group.get(0))));
+            replay(oidResults);
+            sortOidNodeValues(mib, modules, resolvedOidValues);
+        } finally {
+            if (ownExecutor != null) {
+                ownExecutor.shutdown();
+            }
+        }
+    }
+
+    private interface ModuleTask {
+        void run(SmiModule module, XRefProblemReporter reporter);
+    }
+
+    /**
+     * The problems that were reported while resolving a group of modules.
+     */
+    private static class GroupResult {
+
+        private final List<SmiModule> group;
+        private final DeferredProblemReporter<XRefProblemReporter> reporter = new DeferredProblemReporter<XRefProblemReporter>(XRefProblemReporter.class);
+
+        private GroupResult(List<SmiModule> group) {
+            this.group = group;
+        }
+    }
+
+    /**
+     * Runs the task for the modules of each group, one task per group, and waits until all of them are done.
+     */
+    private static List<GroupResult> execute(Executor executor, List<List<SmiModule>> groups, final ModuleTask task) {
+        List<FutureTask<GroupResult>> futures = new ArrayList<FutureTask<GroupResult>>(groups.size());
+        for (final List<SmiModule> group : groups) {
+            FutureTask<GroupResult> future = new FutureTask<GroupResult>(() -> {
+                GroupResult result = new GroupResult(group);
+                for (SmiModule module : group) {
+                    task.run(module, result.reporter.getReporter());
+                }
+                return result;
+            });
+            futures.add(future);
+            executor.execute(future);
+        }
+        List<GroupResult> result = new ArrayList<GroupResult>(groups.size());
+        for (FutureTask<GroupResult> future : futures) {
+            result.add(getResult(future));
+        }
+        return result;
+    }
+
+    private void replay(List<GroupResult> results) {
+        for (GroupResult result : results) {
+            result.reporter.replay(reporter);
+        }
+    }
+
+    private static <T> T getResult(FutureTask<T> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Sequentially, a row is added to the child rows of the row it augments in the order of the modules.
+     */
+    private static void sortChildRows(Collection<SmiModule> modules) {
+        final Map<SmiRow, Integer> order = new IdentityHashMap<SmiRow, Integer>();
+        Set<SmiRow> augmentedRows = Collections.newSetFromMap(new IdentityHashMap<SmiRow, Boolean>());
         for (SmiModule module : modules) {
-            for (SmiOidValue oidValue : module.getOidValues()) {
-                SmiOidNode node = oidValue.getNode();
-                if (node != null) {
-                    node.determineFullOid();
+            for (SmiSymbol symbol : module.getSymbols()) {
+                if (symbol instanceof SmiRow) {
+                    SmiRow row = (SmiRow) symbol;
+                    SmiRow augmentedRow = row.getAugments();
+                    if (augmentedRow != null) {
+                        order.put(row, order.size());
+                        augmentedRows.add(augmentedRow);
+                    }
+                }
+            }
+        }
+        for (SmiRow augmentedRow : augmentedRows) {
+            augmentedRow.getChildRows().sort(new Comparator<SmiRow>() {
+                public int compare(SmiRow r1, SmiRow r2) {
+                    return Integer.compare(indexOf(r1), indexOf(r2));
                 }
+
+                private int indexOf(SmiRow row) {
+                    Integer result = order.get(row);
+                    return result != null ? result : -1;
+                }
+            });
+        }
+    }
+
+    /**
+     * Sequentially, a value is added to its node when it has been resolved, which happens after the values
+     * that it references have been resolved. The values that already had a node before stay in front.
+     */
+    private static void sortOidNodeValues(SmiMib mib, Collection<SmiModule> modules, Set<SmiOidValue> resolvedOidValues) {
+        Map<SmiOidValue, Integer> order = new IdentityHashMap<SmiOidValue, Integer>();
+        Set<SmiOidValue> visited = Collections.newSetFromMap(new IdentityHashMap<SmiOidValue, Boolean>());
+        for (SmiModule module : modules) {
+            for (SmiOidValue oidValue : module.getOidValues()) {
+                determineResolutionOrder(oidValue, resolvedOidValues, visited, order);
             }
         }
+        mib.sortOidNodeValues(order);
+    }
+
+    private static void determineResolutionOrder(SmiOidValue oidValue, Set<SmiOidValue> resolvedOidValues,
+                                                 Set<SmiOidValue> visited, Map<SmiOidValue, Integer> order) {
+        if (resolvedOidValues.contains(oidValue) || !visited.add(oidValue)) {
+            return;
+        }
+        for (SmiOidValue referencedValue : oidValue.findReferencedOidValues()) {
+            determineResolutionOrder(referencedValue, resolvedOidValues, visited, order);
+        }
+        if (oidValue.getNode() != null) {
+            order.put(oidValue, order.size());
+        }
     }
 
     protected void resolveDefaultValues(SmiMib mib) {
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An immutable object identifier. Oids are ordered lexicographically on their sub-ids, which are compared as
+ * unsigned 32 bit numbers, as in a GETNEXT walk, and they are printed that way as well.
+ * <p>
+ * {@link #subOid} and {@link #getParent} share the sub-ids of the oid they are taken from, instead of copying
+ * them. The hash code is computed only once.
+ */
+public final class Oid implements Comparable<Oid>, Serializable {
+
+    public static final Oid EMPTY = new Oid(new int[0], 0, 0);
+
+    // the lookups in SmiMib use the array directly
+    final int[] subIds;
+    final int offset;
+    private final int length;
+    private transient int hash;
+
+    private Oid(int[] subIds, int offset, int length) {
+        this.subIds = subIds;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static Oid of(int... subIds) {
+        return new Oid(subIds.clone(), 0, subIds.length);
+    }
+
+    public static Oid of(int[] subIds, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > subIds.length) {
+            throw new IllegalArgumentException("Offset " + offset + " and length " + length + " do not fit in an oid of length " + subIds.length);
+        }
+        return new Oid(Arrays.copyOfRange(subIds, offset, offset + length), 0, length);
+    }
+
+    /**
+     * The array is used directly: the caller must not change it anymore.
+     */
+    static Oid wrap(int[] subIds) {
+        return new Oid(subIds, 0, subIds.length);
+    }
+
+    /**
+     * @param text A dotted oid, with or without a leading dot, such as {@code 1.3.6.1.2.1.1.1.0}.
+     * @throws IllegalArgumentException If the text is not a dotted oid of unsigned 32 bit sub-ids.
+     */
+    public static Oid parse(CharSequence text) {
+        int start = text.length() > 0 && text.charAt(0) == '.' ? 1 : 0;
+        if (start == text.length()) {
+            return EMPTY;
+        }
+        int count = 1;
+        for (int i = start; i < text.length(); i++) {
+            if (text.charAt(i) == '.') {
+                count++;
+            }
+        }
+        int[] subIds = new int[count];
+        int pos = start;
+        for (int i = 0; i < count; i++) {
+            int subIdStart = pos;
+            long subId = 0;
+            while (pos < text.length() && text.charAt(pos) != '.') {
+                char c = text.charAt(pos);
+                subId = subId * 10 + (c - '0');
+                if (c < '0' || c > '9' || subId > 0xFFFFFFFFL) {
+                    throw new IllegalArgumentException("Invalid oid: " + text);
+                }
+                pos++;
+            }
+            if (pos == subIdStart) {
+                throw new IllegalArgumentException("Invalid oid: " + text);
+            }
+            subIds[i] = (int) subId;
+            pos++;
+        }
+        return new Oid(subIds, 0, count);
+    }
+
+    /**
+     * Decodes the contents octets of a BER encoded {@link BERConstants#OID}.
+     *
+     * @throws IllegalArgumentException If the bytes are not a valid encoding.
+     */
+    public static Oid decodeBer(byte[] ber, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > ber.length) {
+            throw new IllegalArgumentException("Offset " + offset + " and length " + length + " do not fit in an array of length " + ber.length);
+        }
+        return decodeBer(ByteBuffer.wrap(ber, offset, length));
+    }
+
+    /**
+     * Decodes the contents octets of a BER encoded {@link BERConstants#OID}, from the position up to the limit of
+     * the buffer. The position is moved to the limit.
+     *
+     * @throws IllegalArgumentException If the bytes are not a valid encoding.
+     */
+    public static Oid decodeBer(ByteBuffer ber) {
+        int count = 0;
+        for (int i = ber.position(); i < ber.limit(); i++) {
+            if ((ber.get(i) & 0x80) == 0) {
+                count++;
+            }
+        }
+        int[] subIds = new int[count == 0 ? 0 : count + 1];
+        int index = 0;
+        while (ber.hasRemaining()) {
+            long subId = 0;
+            long maxSubId = index == 0 ? 0xFFFFFFFFL + 80 : 0xFFFFFFFFL;
+            int b;
+            do {
+                if (!ber.hasRemaining()) {
+                    throw new IllegalArgumentException("BER encoded oid ends in the middle of a sub-id");
+                }
+                b = ber.get();
+                subId = (subId << 7) | (b & 0x7F);
+                if (subId > maxSubId) {
+                    throw new IllegalArgumentException("Sub-id is too large in BER encoded oid");
+                }
+            } while ((b & 0x80) != 0);
+            if (index == 0) {
+                int first = subId < 40 ? 0 : subId < 80 ? 1 : 2;
+                subIds[index++] = first;
+                subId -= 40 * first;
+            }
+            subIds[index++] = (int) subId;
+        }
+        return new Oid(subIds, 0, subIds.length);
+    }
+
+    /**
+     * @return The contents octets of the BER encoding, in which the first two sub-ids are combined.
+     * @throws IllegalStateException If the oid has fewer than two sub-ids, or if the first two cannot be combined.
+     */
+    public byte[] encodeBer() {
+        if (length < 2 || get(0) < 0 || get(0) > 2 || (get(0) < 2 && (get(1) < 0 || get(1) >= 40))) {
+            throw new IllegalStateException("Oid " + this + " cannot be BER encoded");
+        }
+        long first = 40L * get(0) + (get(1) & 0xFFFFFFFFL);
+        int size = berLength(first);
+        for (int i = 2; i < length; i++) {
+            size += berLength(get(i) & 0xFFFFFFFFL);
+        }
+        byte[] result = new byte[size];
+        int pos = encodeBer(first, result, 0);
+        for (int i = 2; i < length; i++) {
+            pos = encodeBer(get(i) & 0xFFFFFFFFL, result, pos);
+        }
+        return result;
+    }
+
+    private static int berLength(long subId) {
+        int result = 1;
+        while ((subId >>>= 7) != 0) {
+            result++;
+        }
+        return result;
+    }
+
+    private static int encodeBer(long subId, byte[] result, int pos) {
+        int end = pos + berLength(subId);
+        for (int i = end - 1; i >= pos; i--) {
+            result[i] = (byte) ((subId & 0x7F) | (i == end - 1 ? 0 : 0x80));
+            subId >>>= 7;
+        }
+        return end;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " is not in an oid of length " + length);
+        }
+        return subIds[offset + index];
+    }
+
+    public int getLast() {
+        return get(length - 1);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOfRange(subIds, offset, offset + length);
+    }
+
+    /**
+     * @return The oid with the sub-ids from index {@code from} up to {@code to}, sharing the sub-ids of this oid.
+     */
+    public Oid subOid(int from, int to) {
+        if (from < 0 || from > to || to > length) {
+            throw new IndexOutOfBoundsException("Range " + from + "-" + to + " is not in an oid of length " + length);
+        }
+        if (from == 0 && to == length) {
+            return this;
+        }
+        return new Oid(subIds, offset + from, to - from);
+    }
+
+    /**
+     * @return The oid without its last sub-id, or null for the empty oid.
+     */
+    public Oid getParent() {
+        return length == 0 ? null : subOid(0, length - 1);
+    }
+
+    public Oid append(int... suffix) {
+        int[] result = Arrays.copyOf(toArray(), length + suffix.length);
+        System.arraycopy(suffix, 0, result, length, suffix.length);
+        return new Oid(result, 0, result.length);
+    }
+
+    public boolean startsWith(Oid prefix) {
+        if (prefix.length > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (subIds[offset + i] != prefix.subIds[prefix.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the sub-ids as unsigned numbers; an oid comes before all the oids it is a prefix of.
+     */
+    public int compareTo(Oid other) {
+        int commonLength = Math.min(length, other.length);
+        for (int i = 0; i < commonLength; i++) {
+            int subId = subIds[offset + i];
+            int otherSubId = other.subIds[other.offset + i];
+            if (subId != otherSubId) {
+                return Integer.compare(subId + Integer.MIN_VALUE, otherSubId + Integer.MIN_VALUE);
+            }
+        }
+        return Integer.compare(length, other.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Oid)) {
+            return false;
+        }
+        Oid other = (Oid) o;
+        return length == other.length && hashCode() == other.hashCode() && startsWith(other);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0) {
+            result = 1;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                result = 31 * result + subIds[i];
+            }
+            hash = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(4 * length);
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                result.append('.');
+            }
+            result.append(subIds[offset + i] & 0xFFFFFFFFL);
+        }
+        return result.toString();
+    }
+}
@@ -20,7 +20,10 @@ import org.wintersleep.snmp.util.token.IdToken;
 import org.wintersleep.snmp.util.token.IntegerToken;
 import org.wintersleep.snmp.util.token.Token;
 
-public class OidComponent {
+import java.io.Serializable;
+import java.util.List;
+
+public class OidComponent implements Serializable {
 
     private final OidComponent parent;
     private OidComponent child;
@@ -80,7 +83,7 @@ public class OidComponent {
                 if (isLast()) {
                     if (parent != null) {
                         if (valueToken != null) {
-                            node = new SmiOidNode(parent, valueToken.getValue());
+                            node = parent.findOrCreateChild(valueToken.getValue());
                         } else {
                             reporter.reportValueTokenMissingForLastSubid(getToken());
                         }
@@ -96,6 +99,22 @@ public class OidComponent {
         return node;
     }
 
+    /**
+     * Adds the oid values that are referenced by name in this component and its parents, in the order
+     * in which {@link #resolveNode} resolves them, without resolving anything.
+     */
+    void addReferencedOidValues(SmiModule module, List<SmiOidValue> result) {
+        if (parent != null) {
+            parent.addReferencedOidValues(module, result);
+        }
+        if (idToken != null && !isLast()) {
+            SmiSymbol symbol = module.resolveReference(idToken, null);
+            if (symbol instanceof SmiOidValue) {
+                result.add((SmiOidValue) symbol);
+            }
+        }
+    }
+
     private SmiOidNode doResolve(SmiModule module, SmiOidNode parent, XRefProblemReporter reporter) {
         SmiOidNode node;
         if (idToken != null && !isLast()) { // isLast check deals with jobmonMIB situation
@@ -113,25 +132,15 @@ public class OidComponent {
                 }
             } else if (parent != null && valueToken != null) {
                 int value = valueToken.getValue();
-                node = parent.childMap.get(value);
-                if (node == null) {
-                    node = new SmiOidNode(parent, value);
-                }
+                node = parent.findOrCreateChild(value);
             } else {
                 node = null;
             }
         } else {
             if (isFirst()) {
-                node = module.getMib().getRootNode().findChild(valueToken.getValue());
-                if (node == null) {
-                    node = new SmiOidNode(module.getMib().getRootNode(), valueToken.getValue());
-                    //throw new IllegalStateException(valueToken.toString());
-                }
+                node = module.getMib().getRootNode().findOrCreateChild(valueToken.getValue());
             } else if (parent != null) {
-                node = parent.findChild(valueToken.getValue());
-                if (node == null) {
-                    node = new SmiOidNode(parent, valueToken.getValue());
-                }
+                node = parent.findOrCreateChild(valueToken.getValue());
             } else {
                 //throw new IllegalStateException("Parent is null for: " + valueToken.toString());
                 return null;
@@ -3,6 +3,8 @@ package org.wintersleep.snmp.mib.smi;
 import org.wintersleep.snmp.util.token.IdToken;
 import org.wintersleep.snmp.mib.phase.xref.XRefProblemReporter;
 
+import java.io.Serializable;
+
 /*
 * Copyright 2007 Davy Verstappen.
 *
@@ -18,7 +20,7 @@ import org.wintersleep.snmp.mib.phase.xref.XRefProblemReporter;
 * See the License for the specific language governing permissions and
 * limitations under the License.
 */
-public class ScopedId {
+public class ScopedId implements Serializable {
 
     private final SmiModule localModule;
     private final IdToken moduleToken;
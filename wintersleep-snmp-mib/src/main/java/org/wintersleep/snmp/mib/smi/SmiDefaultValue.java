@@ -9,6 +9,7 @@ import org.wintersleep.snmp.util.token.QuotedStringToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
@@ -28,7 +29,7 @@ import java.util.List;
 * See the License for the specific language governing permissions and
 * limitations under the License.
 */
-public class SmiDefaultValue {
+public class SmiDefaultValue implements Serializable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SmiDefaultValue.class);
 
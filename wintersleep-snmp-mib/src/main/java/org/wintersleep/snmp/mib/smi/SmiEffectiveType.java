@@ -0,0 +1,150 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Everything that a type inherits from its base types, collected in one place: for each property, the value of
+ * the closest type in the base type chain that defines it. Once the mib is resolved, every type has one,
+ * so that decoding a varbind does not need to walk the chain again.
+ */
+public final class SmiEffectiveType implements Serializable {
+
+    private final SmiType type;
+    private final SmiPrimitiveType primitiveType;
+    private final SmiVarBindField varBindField;
+    private final SmiType enumType;
+    private final List<SmiNamedNumber> enumValues;
+    private final SmiType bitFieldType;
+    private final List<SmiNamedNumber> bitFields;
+    private final SmiType rangeConstraintType;
+    private final List<SmiRange> rangeConstraints;
+    private final SmiType sizeConstraintType;
+    private final List<SmiRange> sizeConstraints;
+    private final SmiTextualConvention textualConvention;
+    private final String displayHint;
+
+    /**
+     * @param base The effective type of the base type, or null if the type has no base type.
+     */
+    SmiEffectiveType(SmiType type, SmiEffectiveType base) {
+        this.type = type;
+        primitiveType = type.determinePrimitiveType(base != null ? base.primitiveType : null);
+        varBindField = primitiveType != null ? primitiveType.getVarBindField() : null;
+
+        if (type.getEnumValues() != null || base == null) {
+            enumType = type.getEnumValues() != null ? type : null;
+            enumValues = type.getEnumValues();
+        } else {
+            enumType = base.enumType;
+            enumValues = base.enumValues;
+        }
+        if (type.getBitFields() != null || base == null) {
+            bitFieldType = type.getBitFields() != null ? type : null;
+            bitFields = type.getBitFields();
+        } else {
+            bitFieldType = base.bitFieldType;
+            bitFields = base.bitFields;
+        }
+        if (type.getRangeConstraints() != null || base == null) {
+            rangeConstraintType = type.getRangeConstraints() != null ? type : null;
+            rangeConstraints = type.getRangeConstraints();
+        } else {
+            rangeConstraintType = base.rangeConstraintType;
+            rangeConstraints = base.rangeConstraints;
+        }
+        if (type.getSizeConstraints() != null || base == null) {
+            sizeConstraintType = type.getSizeConstraints() != null ? type : null;
+            sizeConstraints = type.getSizeConstraints();
+        } else {
+            sizeConstraintType = base.sizeConstraintType;
+            sizeConstraints = base.sizeConstraints;
+        }
+
+        if (type instanceof SmiTextualConvention) {
+            textualConvention = (SmiTextualConvention) type;
+        } else {
+            textualConvention = base != null ? base.textualConvention : null;
+        }
+        String hint = type instanceof SmiTextualConvention ? ((SmiTextualConvention) type).getDisplayHint() : null;
+        displayHint = hint != null || base == null ? hint : base.displayHint;
+    }
+
+    public SmiType getType() {
+        return type;
+    }
+
+    public SmiPrimitiveType getPrimitiveType() {
+        return primitiveType;
+    }
+
+    public SmiVarBindField getVarBindField() {
+        return varBindField;
+    }
+
+    public SmiType getEnumType() {
+        return enumType;
+    }
+
+    public List<SmiNamedNumber> getEnumValues() {
+        return enumValues;
+    }
+
+    public SmiType getBitFieldType() {
+        return bitFieldType;
+    }
+
+    public List<SmiNamedNumber> getBitFields() {
+        return bitFields;
+    }
+
+    /**
+     * The range constraints of a derived type replace those of its base types, because they can only be narrower.
+     */
+    public SmiType getRangeConstraintType() {
+        return rangeConstraintType;
+    }
+
+    public List<SmiRange> getRangeConstraints() {
+        return rangeConstraints;
+    }
+
+    public SmiType getSizeConstraintType() {
+        return sizeConstraintType;
+    }
+
+    public List<SmiRange> getSizeConstraints() {
+        return sizeConstraints;
+    }
+
+    public SmiTextualConvention getTextualConvention() {
+        return textualConvention;
+    }
+
+    /**
+     * @return The DISPLAY-HINT of the closest textual convention that has one.
+     */
+    public String getDisplayHint() {
+        return displayHint;
+    }
+
+    @Override
+    public String toString() {
+        return "SmiEffectiveType[" + type + ": " + primitiveType + "]";
+    }
+}
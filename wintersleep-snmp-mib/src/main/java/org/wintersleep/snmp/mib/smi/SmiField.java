@@ -19,7 +19,9 @@ package org.wintersleep.snmp.mib.smi;
 import org.wintersleep.snmp.util.token.IdToken;
 import org.wintersleep.snmp.mib.phase.xref.XRefProblemReporter;
 
-public class SmiField {
+import java.io.Serializable;
+
+public class SmiField implements Serializable {
 
     private SmiType parentType;
     private IdToken columnIdToken;
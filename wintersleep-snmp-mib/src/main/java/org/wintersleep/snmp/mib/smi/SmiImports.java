@@ -20,12 +20,14 @@ import org.wintersleep.snmp.util.location.Location;
 import org.wintersleep.snmp.util.pair.Pair;
 import org.wintersleep.snmp.util.token.IdToken;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
-public class SmiImports {
+public class SmiImports implements Serializable {
 
     // straight from libsmi, extended with macro definitions
     static final String[] V1_V2_MAP = {
@@ -97,6 +99,13 @@ public class SmiImports {
         return moduleToken.getLocation();
     }
 
+    /**
+     * @return The imported symbols, by the id under which they were imported.
+     */
+    Map<String, SmiSymbol> getSymbolMap() {
+        return symbolMap;
+    }
+
     public SmiSymbol find(String id) {
         return symbolMap.get(id);
     }
@@ -17,11 +17,13 @@ package org.wintersleep.snmp.mib.smi;
 
 import org.wintersleep.snmp.mib.phase.xref.XRefProblemReporter;
 
+import java.io.Serializable;
+
 /**
  * Indexes belong to a row and refer to a column.
  * Note that it is possible that the column belongs to another table!
  */
-public class SmiIndex {
+public class SmiIndex implements Serializable {
 
     private final ScopedId scopedId;
     private final SmiRow row;
@@ -15,9 +15,9 @@
  */
 package org.wintersleep.snmp.mib.smi;
 
+import java.io.Serializable;
 
-
-public class SmiJavaCodeNamingStrategy implements SmiCodeNamingStrategy {
+public class SmiJavaCodeNamingStrategy implements SmiCodeNamingStrategy, Serializable {
 
 	public static final String ATTR_OIDS = "AttrOids";
 	
@@ -19,31 +19,39 @@ import org.wintersleep.snmp.mib.phase.xref.XRefProblemReporter;
 import org.wintersleep.snmp.util.location.Location;
 import org.wintersleep.snmp.util.token.IdToken;
 
+import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
-public class SmiMib {
+public class SmiMib implements Serializable {
 
     private Map<String, SmiModule> moduleMap = new LinkedHashMap<String, SmiModule>();
     private final SmiOptions options;
     private SmiCodeNamingStrategy codeNamingStrategy;
     private SmiOidNode rootNode;
-
-    SmiSymbolMapImpl<SmiType> typeMap = new SmiSymbolMapImpl<SmiType>(SmiType.class, moduleMap);
-    SmiSymbolMapImpl<SmiTextualConvention> textualConventionMap = new SmiSymbolMapImpl<SmiTextualConvention>(SmiTextualConvention.class, moduleMap);
-    SmiSymbolMapImpl<SmiSymbol> symbolMap = new SmiSymbolMapImpl<SmiSymbol>(SmiSymbol.class, moduleMap);
-    SmiSymbolMapImpl<SmiVariable> variableMap = new SmiSymbolMapImpl<SmiVariable>(SmiVariable.class, moduleMap);
-    SmiSymbolMapImpl<SmiTable> tableMap = new SmiSymbolMapImpl<SmiTable>(SmiTable.class, moduleMap);
-    SmiSymbolMapImpl<SmiRow> rowMap = new SmiSymbolMapImpl<SmiRow>(SmiRow.class, moduleMap);
-    SmiSymbolMapImpl<SmiVariable> columnMap = new SmiSymbolMapImpl<SmiVariable>(SmiVariable.class, moduleMap);
-    SmiSymbolMapImpl<SmiVariable> scalarMap = new SmiSymbolMapImpl<SmiVariable>(SmiVariable.class, moduleMap);
-    SmiSymbolMapImpl<SmiOidValue> oidValueMap = new SmiSymbolMapImpl<SmiOidValue>(SmiOidValue.class, moduleMap);
-    SmiSymbolMapImpl<SmiObjectType> objectTypesMap = new SmiSymbolMapImpl<SmiObjectType>(SmiObjectType.class, moduleMap);
-    SmiSymbolMapImpl<SmiNotificationType> notificationTypesMap = new SmiSymbolMapImpl<SmiNotificationType>(SmiNotificationType.class, moduleMap);
-    SmiSymbolMapImpl<SmiTrapType> trapTypesMap = new SmiSymbolMapImpl<SmiTrapType>(SmiTrapType.class, moduleMap);
+    private transient volatile SmiOidTrie oidTrie;
+
+    // each symbol is stored once, in the table; the maps are views that select one kind of symbols from it
+    private final SmiSymbolTable symbolTable = new SmiSymbolTable();
+    SmiSymbolMapImpl<SmiType> typeMap = createMap(SmiType.class, SmiSymbolTable.TYPE);
+    SmiSymbolMapImpl<SmiTextualConvention> textualConventionMap = createMap(SmiTextualConvention.class, SmiSymbolTable.TEXTUAL_CONVENTION);
+    SmiSymbolMapImpl<SmiSymbol> symbolMap = createMap(SmiSymbol.class, SmiSymbolTable.SYMBOL);
+    SmiSymbolMapImpl<SmiVariable> variableMap = createMap(SmiVariable.class, SmiSymbolTable.VARIABLE);
+    SmiSymbolMapImpl<SmiTable> tableMap = createMap(SmiTable.class, SmiSymbolTable.TABLE);
+    SmiSymbolMapImpl<SmiRow> rowMap = createMap(SmiRow.class, SmiSymbolTable.ROW);
+    SmiSymbolMapImpl<SmiVariable> columnMap = createMap(SmiVariable.class, SmiSymbolTable.COLUMN);
+    SmiSymbolMapImpl<SmiVariable> scalarMap = createMap(SmiVariable.class, SmiSymbolTable.SCALAR);
+    SmiSymbolMapImpl<SmiOidValue> oidValueMap = createMap(SmiOidValue.class, SmiSymbolTable.OID_VALUE);
+    SmiSymbolMapImpl<SmiObjectType> objectTypesMap = createMap(SmiObjectType.class, SmiSymbolTable.OBJECT_TYPE);
+    SmiSymbolMapImpl<SmiNotificationType> notificationTypesMap = createMap(SmiNotificationType.class, SmiSymbolTable.NOTIFICATION_TYPE);
+    SmiSymbolMapImpl<SmiTrapType> trapTypesMap = createMap(SmiTrapType.class, SmiSymbolTable.TRAP_TYPE);
 
     int dummyOidNodesCount;
     private SmiModule internalModule;
@@ -108,8 +116,31 @@ public class SmiMib {
         return module;
     }
 
+    /**
+     * Moves all modules of the staging mib into this mib, in the order in which they were created
+     * in the staging mib. This is used to merge the results of parsing files concurrently.
+     */
+    public void adoptModules(SmiMib staging) {
+        for (SmiModule module : staging.moduleMap.values()) {
+            if (module != staging.internalModule) {
+                SmiModule oldModule = moduleMap.get(module.getId());
+                if (oldModule != null) {
+                    throw new IllegalStateException("Duplicate module: " + oldModule.getIdToken() + " is already defined when adding: " + module.getIdToken());
+                }
+                module.setMib(this);
+                moduleMap.put(module.getId(), module);
+            }
+        }
+        staging.moduleMap.clear();
+        staging.moduleMap.put(staging.internalModule.getId(), staging.internalModule);
+    }
+
+    private <T extends SmiSymbol> SmiSymbolMapImpl<T> createMap(Class<T> symbolClass, int kind) {
+        return new SmiSymbolMapImpl<T>(symbolClass, moduleMap, symbolTable, kind);
+    }
+
     public void determineInheritanceRelations() {
-        for (SmiRow row : rowMap.values()) {
+        for (SmiRow row : rowMap) {
             if (row.getAugments() != null) {
                 row.addParentRow(row.getAugments());
             } else if (row.getIndexes().size() == 1) {
@@ -140,28 +171,82 @@ public class SmiMib {
         // TODO deal with double defines
         for (SmiModule module : moduleMap.values()) {
             module.fillTables();
-            typeMap.putAll(module.typeMap);
-            textualConventionMap.putAll(module.textualConventionMap);
-            variableMap.putAll(module.variableMap);
-            rowMap.putAll(module.rowMap);
-            tableMap.putAll(module.tableMap);
-            symbolMap.putAll(module.symbolMap);
-            oidValueMap.putAll(module.oidValueMap);
-            objectTypesMap.putAll(module.objectTypeMap);
-            notificationTypesMap.putAll(module.notificationTypeMap);
-            trapTypesMap.putAll(module.trapTypeMap);
+            for (SmiSymbol symbol : module.symbolMap.values()) {
+                symbolTable.add(symbol);
+            }
+        }
+    }
+
+    /**
+     * Sorts the values of the nodes that have more than one value by their position in the given order.
+     * Values that are not in the order stay in front.
+     */
+    public void sortOidNodeValues(final Map<SmiOidValue, Integer> order) {
+        Comparator<SmiOidValue> comparator = new Comparator<SmiOidValue>() {
+            public int compare(SmiOidValue v1, SmiOidValue v2) {
+                return Integer.compare(indexOf(v1), indexOf(v2));
+            }
+
+            private int indexOf(SmiOidValue value) {
+                Integer result = order.get(value);
+                return result != null ? result : -1;
+            }
+        };
+        Set<SmiOidNode> sortedNodes = Collections.newSetFromMap(new IdentityHashMap<SmiOidNode, Boolean>());
+        for (SmiOidValue oidValue : order.keySet()) {
+            SmiOidNode node = oidValue.getNode();
+            if (node.getValues().size() > 1 && sortedNodes.add(node)) {
+                node.sortValues(comparator);
+            }
+        }
+    }
+
+    /**
+     * Stores the row of each variable, the table and columns of each row and the row of each table, which are
+     * otherwise looked up in the oid tree each time. This must be done after all the oids have been resolved.
+     * <p>
+     * Links that cannot be determined unambiguously are still looked up each time, so that the problem is reported
+     * when they are asked for, as before.
+     */
+    public void determineTableStructure() {
+        for (SmiTable table : tableMap) {
+            table.determineStructure();
+        }
+        for (SmiRow row : rowMap) {
+            row.determineStructure();
+        }
+        for (SmiVariable variable : variableMap) {
+            variable.determineStructure();
+        }
+    }
+
+    /**
+     * Stores the effective type of all the types and of the types of all the object types, so that they are not
+     * determined again each time they are needed. Until then, and for types that cannot be reached from the symbols,
+     * the base type chain is walked each time.
+     */
+    public void determineEffectiveTypes() {
+        for (SmiType type : typeMap) {
+            type.determineEffectiveType();
+        }
+        for (SmiObjectType objectType : objectTypesMap) {
+            if (objectType.getType() != null) {
+                objectType.getType().determineEffectiveType();
+            }
         }
     }
 
     public void fillExtraTables() {
-        // TODO deal with double defines
+        symbolTable.addVariableKinds();
         for (SmiModule module : moduleMap.values()) {
             module.fillExtraTables();
-            scalarMap.putAll(module.scalarMap);
-            columnMap.putAll(module.columnMap);
         }
     }
 
+    SmiSymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
 
     public int getDummyOidNodesCount() {
         return dummyOidNodesCount;
@@ -215,7 +300,34 @@ public class SmiMib {
     	return trapTypesMap;
     }
 
+    /**
+     * Compiles the oid tree into a {@link SmiOidTrie}, which is used by {@link #findByOid} and
+     * {@link #findByOidPrefix} from then on. The oid tree must not be changed anymore after this.
+     * <p>
+     * The trie is not stored in snapshots: freeze the mib again after reading one.
+     */
+    public SmiOidTrie freeze() {
+        SmiOidTrie result = oidTrie;
+        if (result == null) {
+            result = SmiOidTrie.build(rootNode);
+            oidTrie = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return The trie, or null when the mib has not been frozen.
+     */
+    public SmiOidTrie getOidTrie() {
+        return oidTrie;
+    }
+
     public SmiOidNode findByOid(int... oid) {
+        SmiOidTrie trie = oidTrie;
+        if (trie != null) {
+            int id = oid.length > 0 ? trie.find(oid) : SmiOidTrie.NOT_FOUND;
+            return id != SmiOidTrie.NOT_FOUND ? trie.getNode(id) : null;
+        }
         SmiOidNode child = null;
         SmiOidNode parent = getRootNode();
         for (int oidPart : oid) {
@@ -228,6 +340,26 @@ public class SmiMib {
         return child;
     }
 
+    /**
+     * @return The node with the given oid, or null if there is none. The root node for {@link Oid#EMPTY},
+     * which is also the {@link SmiOidNode#toOid() oid} of the root node.
+     */
+    public SmiOidNode findByOid(Oid oid) {
+        if (oid.length() == 0) {
+            return getRootNode();
+        }
+        SmiOidTrie trie = oidTrie;
+        if (trie != null) {
+            int id = trie.find(oid.subIds, oid.offset, oid.length());
+            return id != SmiOidTrie.NOT_FOUND ? trie.getNode(id) : null;
+        }
+        SmiOidNode node = getRootNode();
+        for (int i = 0; i < oid.length() && node != null; i++) {
+            node = node.findChild(oid.get(i));
+        }
+        return node;
+    }
+
     /**
      * This method can be used to find the best match for an OID.
      * By comparing the length of the OID of the result and the input OID you can
@@ -237,6 +369,18 @@ public class SmiMib {
      * @return Best matching SmiOidValue, or null if none is found.
      */
     public SmiOidNode findByOidPrefix(int... oid) {
+        SmiOidTrie trie = oidTrie;
+        if (trie != null) {
+            int id = SmiOidTrie.ROOT_ID;
+            for (int subId : oid) {
+                int childId = trie.findChild(id, subId);
+                if (childId == SmiOidTrie.NOT_FOUND) {
+                    return trie.getNode(id);
+                }
+                id = childId;
+            }
+            return null;
+        }
         SmiOidNode parent = getRootNode();
         for (int subId : oid) {
             SmiOidNode result = parent.findChild(subId);
@@ -248,6 +392,194 @@ public class SmiMib {
         return null;
     }
 
+    /**
+     * Finds the deepest node with an oid value that the instance oid starts with. Unlike {@link #findByOidPrefix},
+     * this also works when the whole oid matches, and it skips the nodes without values, so that the instance
+     * suffix is relative to the object.
+     *
+     * @param oid    The array that contains the instance oid.
+     * @param offset Where the instance oid starts in the array.
+     * @param length The number of sub-ids of the instance oid.
+     * @param result Is filled in with the match, or cleared if there is none.
+     * @return True if a value was matched.
+     */
+    public boolean findLongestMatch(int[] oid, int offset, int length, SmiOidMatch result) {
+        if (offset < 0 || length < 0 || offset + length > oid.length) {
+            throw new IllegalArgumentException("Offset " + offset + " and length " + length + " do not fit in an oid of length " + oid.length);
+        }
+        result.start(oidTrie, getRootNode());
+        int i = 0;
+        while (i < length && result.step(oid[offset + i])) {
+            i++;
+        }
+        int suffixStart = offset + result.getDepth();
+        result.setSuffix(oid, suffixStart, length - result.getDepth(), suffixStart, offset + length);
+        return result.isMatched();
+    }
+
+    /**
+     * The suffix is a range of the sub-ids of the oid.
+     *
+     * @see #findLongestMatch(int[], int, int, SmiOidMatch)
+     */
+    public boolean findLongestMatch(Oid oid, SmiOidMatch result) {
+        return findLongestMatch(oid.subIds, oid.offset, oid.length(), result);
+    }
+
+    /**
+     * @see #findLongestMatch(CharSequence, int, int, SmiOidMatch)
+     */
+    public boolean findLongestMatch(CharSequence oid, SmiOidMatch result) {
+        return findLongestMatch(oid, 0, oid.length(), result);
+    }
+
+    /**
+     * Looks up a dotted oid, such as {@code 1.3.6.1.2.1.2.2.1.10.7} or {@code .1.3.6.1.2.1.2.2.1.10.7}, while
+     * its sub-ids are parsed, without creating an int array or substrings first. The sub-ids are unsigned 32 bit
+     * numbers; the suffix is parsed into the buffer of the match, and its source positions are character indexes.
+     *
+     * @param oid    The text that contains the oid.
+     * @param start  The index of the first character of the oid.
+     * @param end    The index right after the last character of the oid.
+     * @param result Is filled in with the match, or cleared if there is none.
+     * @return True if a value was matched.
+     * @throws IllegalArgumentException If the text is not a dotted oid.
+     */
+    public boolean findLongestMatch(CharSequence oid, int start, int end, SmiOidMatch result) {
+        if (start < 0 || start > end || end > oid.length()) {
+            throw new IllegalArgumentException("Range " + start + "-" + end + " does not fit in a text of length " + oid.length());
+        }
+        result.start(oidTrie, getRootNode());
+        int[] buffer = result.getBuffer(0);
+        int count = 0;
+        boolean walking = true;
+        int sourceSuffixStart = start;
+        int pos = start;
+        if (pos < end && oid.charAt(pos) == '.') {
+            pos++;
+            sourceSuffixStart = pos;
+        }
+        if (pos < end) {
+            while (true) {
+                int subIdStart = pos;
+                long subId = 0;
+                while (pos < end) {
+                    char c = oid.charAt(pos);
+                    if (c < '0' || c > '9') {
+                        break;
+                    }
+                    subId = subId * 10 + (c - '0');
+                    if (subId > 0xFFFFFFFFL) {
+                        throw new IllegalArgumentException("Sub-id is too large in oid: " + oid.subSequence(start, end));
+                    }
+                    pos++;
+                }
+                if (pos == subIdStart || (pos < end && oid.charAt(pos) != '.')) {
+                    throw new IllegalArgumentException("Invalid oid: " + oid.subSequence(start, end));
+                }
+                if (count == buffer.length) {
+                    buffer = result.getBuffer(count + 1);
+                }
+                buffer[count++] = (int) subId;
+                if (walking) {
+                    walking = result.step((int) subId);
+                    if (walking && result.isMatchedAtStep()) {
+                        sourceSuffixStart = pos < end ? pos + 1 : end;
+                    }
+                }
+                if (pos == end) {
+                    break;
+                }
+                pos++;
+                if (pos == end) {
+                    throw new IllegalArgumentException("Oid ends with a dot: " + oid.subSequence(start, end));
+                }
+            }
+        }
+        result.setSuffix(buffer, result.getDepth(), count - result.getDepth(), sourceSuffixStart, end);
+        return result.isMatched();
+    }
+
+    /**
+     * Looks up the contents octets of a BER encoded oid, which are decoded while the tree is walked, for instance
+     * straight from a received packet. The identifier and length octets of the {@link BERConstants#OID} must
+     * already have been skipped: the oid is everything between the position and the limit of the buffer, which are
+     * left unchanged. The suffix is decoded into the buffer of the match, and its source positions are indexes
+     * in the byte buffer.
+     *
+     * @throws IllegalArgumentException If the bytes are not a valid encoding.
+     */
+    public boolean findLongestMatch(ByteBuffer ber, SmiOidMatch result) {
+        if (ber.hasArray()) {
+            return findLongestMatch(ber.array(), ber.arrayOffset(), null, ber.position(), ber.limit(), result);
+        }
+        return findLongestMatch(null, 0, ber, ber.position(), ber.limit(), result);
+    }
+
+    /**
+     * @param ber    The array that contains the contents octets of a BER encoded oid.
+     * @param offset The index of the first contents octet.
+     * @param length The number of contents octets.
+     * @see #findLongestMatch(ByteBuffer, SmiOidMatch)
+     */
+    public boolean findLongestMatch(byte[] ber, int offset, int length, SmiOidMatch result) {
+        if (offset < 0 || length < 0 || offset + length > ber.length) {
+            throw new IllegalArgumentException("Offset " + offset + " and length " + length + " do not fit in an array of length " + ber.length);
+        }
+        return findLongestMatch(ber, 0, null, offset, offset + length, result);
+    }
+
+    /**
+     * Reads from the array if there is one, otherwise from the buffer. The positions are those of the buffer,
+     * which start at the array offset in the array.
+     * <p>
+     * The first encoded number holds two sub-ids, so when the match ends after the first sub-id, the suffix starts
+     * at the beginning of the encoding.
+     */
+    private boolean findLongestMatch(byte[] array, int arrayOffset, ByteBuffer buffer, int start, int end, SmiOidMatch result) {
+        result.start(oidTrie, getRootNode());
+        int[] subIds = result.getBuffer(0);
+        int count = 0;
+        boolean walking = true;
+        int sourceSuffixStart = start;
+        int pos = start;
+        while (pos < end) {
+            long value = 0;
+            long maxValue = count == 0 ? 0xFFFFFFFFL + 80 : 0xFFFFFFFFL;
+            int b;
+            do {
+                if (pos == end) {
+                    throw new IllegalArgumentException("BER encoded oid ends in the middle of a sub-id at " + pos);
+                }
+                b = array != null ? array[arrayOffset + pos] : buffer.get(pos);
+                pos++;
+                value = (value << 7) | (b & 0x7F);
+                if (value > maxValue) {
+                    throw new IllegalArgumentException("Sub-id is too large in BER encoded oid at " + pos);
+                }
+            } while ((b & 0x80) != 0);
+
+            if (count + 2 > subIds.length) {
+                subIds = result.getBuffer(count + 2);
+            }
+            if (count == 0) {
+                int first = value < 40 ? 0 : value < 80 ? 1 : 2;
+                subIds[count++] = first;
+                walking = result.step(first);
+                value -= 40 * first;
+            }
+            subIds[count++] = (int) value;
+            if (walking) {
+                walking = result.step((int) value);
+                if (walking && result.isMatchedAtStep()) {
+                    sourceSuffixStart = pos;
+                }
+            }
+        }
+        result.setSuffix(subIds, result.getDepth(), count - result.getDepth(), sourceSuffixStart, end);
+        return result.isMatched();
+    }
+
     public Set<SmiModule> findModules(SmiVersion version) {
         Set<SmiModule> result = new HashSet<SmiModule>();
         for (SmiModule module : moduleMap.values()) {
@@ -266,18 +598,14 @@ public class SmiMib {
             SmiOidValue itu = new SmiOidValue(new IdToken(location, "itu"), internalModule, ituNode);
             //itu.setLastOidComponent(new OidComponent(null, null, new IntegerToken(location, 0)));
             internalModule.addSymbol(itu);
-            internalModule.symbolMap.put(itu.getId(), itu);
-            symbolMap.put(itu.getId(), itu);
-            oidValueMap.put(itu.getId(), itu);
+            symbolTable.add(itu);
         }
 
         if (symbolMap.findAll("iso").isEmpty()) {
             SmiOidNode isoNode = new SmiOidNode(rootNode, 1);
             SmiOidValue iso = new SmiOidValue(new IdToken(location, "iso"), internalModule, isoNode);
             internalModule.addSymbol(iso);
-            internalModule.symbolMap.put(iso.getId(), iso);
-            symbolMap.put(iso.getId(), iso);
-            oidValueMap.put(iso.getId(), iso);
+            symbolTable.add(iso);
         }
     }
 
@@ -20,15 +20,20 @@ import org.wintersleep.snmp.util.token.IdToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Serializable;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class SmiModule {
+public class SmiModule implements Serializable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SmiModule.class);
 
@@ -38,18 +43,12 @@ public class SmiModule {
     private List<SmiImports> imports = new ArrayList<SmiImports>();
     private List<SmiSymbol> symbols = new ArrayList<SmiSymbol>();
 
-    Map<String, SmiType> typeMap = new LinkedHashMap<String, SmiType>();
-    Map<String, SmiTextualConvention> textualConventionMap = new LinkedHashMap<String, SmiTextualConvention>();
+    // the types, variables, tables etc. are views on this map that select the symbols of one kind
     Map<String, SmiSymbol> symbolMap = new LinkedHashMap<String, SmiSymbol>();
-    Map<String, SmiVariable> variableMap = new LinkedHashMap<String, SmiVariable>();
-    Map<String, SmiVariable> scalarMap = new LinkedHashMap<String, SmiVariable>();
-    Map<String, SmiTable> tableMap = new LinkedHashMap<String, SmiTable>();
-    Map<String, SmiRow> rowMap = new LinkedHashMap<String, SmiRow>();
-    Map<String, SmiVariable> columnMap = new LinkedHashMap<String, SmiVariable>();
-    Map<String, SmiOidValue> oidValueMap = new LinkedHashMap<String, SmiOidValue>();
-    Map<String, SmiObjectType> objectTypeMap = new LinkedHashMap<String, SmiObjectType>();
-    Map<String, SmiNotificationType> notificationTypeMap = new LinkedHashMap<String, SmiNotificationType>();
-    Map<String, SmiTrapType> trapTypeMap = new LinkedHashMap<String, SmiTrapType>();
+    // whether the variables can be split into scalars and columns, which is only known after the oids are resolved
+    private boolean variableKindsDetermined;
+    // only kept once the variable kinds are determined
+    private transient SymbolKinds symbolKinds;
 
     private int v1Features = 0;
     private int v2Features = 0;
@@ -58,6 +57,14 @@ public class SmiModule {
 
     private SmiModuleIdentity moduleIdentity;
 
+    /**
+     * The symbols that the identifiers resolve to from inside this module, and the identifiers that cannot be resolved
+     * (or not unambiguously). Built after the imports have been resolved, and extended when identifiers are resolved
+     * to symbols from modules that were not imported. Can be used by several threads at the same time.
+     */
+    private transient Map<String, SmiSymbol> resolvedSymbolMap;
+    private transient Set<String> unresolvedIds;
+
     public SmiModule(SmiMib mib, IdToken idToken) {
         this.mib = mib;
         if (idToken == null) {
@@ -103,19 +110,19 @@ public class SmiModule {
     }
 
     public SmiType findType(String id) {
-        return typeMap.get(id);
+        return find(id, SmiSymbolTable.TYPE, SmiType.class);
     }
 
     public Collection<SmiType> getTypes() {
-        return typeMap.values();
+        return new KindView<SmiType>(SmiSymbolTable.TYPE, SmiType.class);
     }
 
     public SmiTextualConvention findTextualConvention(String id) {
-        return textualConventionMap.get(id);
+        return find(id, SmiSymbolTable.TEXTUAL_CONVENTION, SmiTextualConvention.class);
     }
 
     public Collection<SmiTextualConvention> getTextualConventions() {
-        return textualConventionMap.values();
+        return new KindView<SmiTextualConvention>(SmiSymbolTable.TEXTUAL_CONVENTION, SmiTextualConvention.class);
     }
 
     public Collection<SmiSymbol> getSymbols() {
@@ -132,75 +139,75 @@ public class SmiModule {
     }
 
     public SmiVariable findVariable(String id) {
-        return variableMap.get(id);
+        return find(id, SmiSymbolTable.VARIABLE, SmiVariable.class);
     }
 
     public Collection<SmiVariable> getVariables() {
-        return variableMap.values();
+        return new KindView<SmiVariable>(SmiSymbolTable.VARIABLE, SmiVariable.class);
     }
 
     public SmiVariable findScalar(String id) {
-        return scalarMap.get(id);
+        return find(id, SmiSymbolTable.SCALAR, SmiVariable.class);
     }
 
     public Collection<SmiVariable> getScalars() {
-        return scalarMap.values();
+        return new KindView<SmiVariable>(SmiSymbolTable.SCALAR, SmiVariable.class);
     }
 
     public SmiTable findTable(String id) {
-        return tableMap.get(id);
+        return find(id, SmiSymbolTable.TABLE, SmiTable.class);
     }
 
     public Collection<SmiTable> getTables() {
-        return tableMap.values();
+        return new KindView<SmiTable>(SmiSymbolTable.TABLE, SmiTable.class);
     }
 
     public SmiRow findRow(String id) {
-        return rowMap.get(id);
+        return find(id, SmiSymbolTable.ROW, SmiRow.class);
     }
 
     public Collection<SmiRow> getRows() {
-        return rowMap.values();
+        return new KindView<SmiRow>(SmiSymbolTable.ROW, SmiRow.class);
     }
 
     public SmiVariable findColumn(String id) {
-        return columnMap.get(id);
+        return find(id, SmiSymbolTable.COLUMN, SmiVariable.class);
     }
 
     public Collection<SmiVariable> getColumns() {
-        return columnMap.values();
+        return new KindView<SmiVariable>(SmiSymbolTable.COLUMN, SmiVariable.class);
     }
 
     public SmiOidValue findOidValue(String id) {
-        return oidValueMap.get(id);
+        return find(id, SmiSymbolTable.OID_VALUE, SmiOidValue.class);
     }
 
     public Collection<SmiOidValue> getOidValues() {
-        return oidValueMap.values();
+        return new KindView<SmiOidValue>(SmiSymbolTable.OID_VALUE, SmiOidValue.class);
     }
 
     public SmiObjectType findObjectType(String id) {
-        return objectTypeMap.get(id);
+        return find(id, SmiSymbolTable.OBJECT_TYPE, SmiObjectType.class);
     }
     
     public SmiNotificationType findNotificationType(String id) {
-    	return notificationTypeMap.get(id);
+    	return find(id, SmiSymbolTable.NOTIFICATION_TYPE, SmiNotificationType.class);
     }
     
     public SmiTrapType findTrapType(String id) {
-    	return trapTypeMap.get(id);
+    	return find(id, SmiSymbolTable.TRAP_TYPE, SmiTrapType.class);
     }
 
     public Collection<SmiObjectType> getObjectTypes() {
-        return objectTypeMap.values();
+        return new KindView<SmiObjectType>(SmiSymbolTable.OBJECT_TYPE, SmiObjectType.class);
     }
     
     public Collection<SmiNotificationType> getNotificationTypes() {
-    	return notificationTypeMap.values();
+    	return new KindView<SmiNotificationType>(SmiSymbolTable.NOTIFICATION_TYPE, SmiNotificationType.class);
     }
     
     public Collection<SmiTrapType> getTrapTypes() {
-    	return trapTypeMap.values();
+    	return new KindView<SmiTrapType>(SmiSymbolTable.TRAP_TYPE, SmiTrapType.class);
     }
 
     public void setIdToken(IdToken id) {
@@ -221,6 +228,10 @@ public class SmiModule {
         return mib;
     }
 
+    void setMib(SmiMib mib) {
+        this.mib = mib;
+    }
+
     public SmiModuleIdentity getModuleIdentity() {
         return moduleIdentity;
     }
@@ -231,7 +242,7 @@ public class SmiModule {
 
     public SmiType createType(IdToken idToken) {
         SmiType type = new SmiType(idToken, this);
-        typeMap.put(idToken.getId(), type);
+        addSymbol(type);
         return type;
     }
 
@@ -253,13 +264,13 @@ public class SmiModule {
 
     public SmiTable createTable(IdToken idToken) {
         SmiTable table = new SmiTable(idToken, this);
-        tableMap.put(idToken.getId(), table);
+        addSymbol(table);
         return table;
     }
 
     public SmiRow createRow(IdToken idToken) {
         SmiRow row = new SmiRow(idToken, this);
-        rowMap.put(idToken.getId(), row);
+        addSymbol(row);
         return row;
     }
 
@@ -294,39 +305,145 @@ public class SmiModule {
         return result;
     }
 
+    /**
+     * The symbols of each kind are selected from the symbols of the module when they are asked for, so there is
+     * nothing to fill anymore.
+     */
     public void fillTables() {
-        for (SmiSymbol symbol : symbols) {
-            put(tableMap, SmiTable.class, symbol);
-            put(variableMap, SmiVariable.class, symbol);
-            put(typeMap, SmiType.class, symbol);
-            put(textualConventionMap, SmiTextualConvention.class, symbol);
-            put(rowMap, SmiRow.class, symbol);
-            put(oidValueMap, SmiOidValue.class, symbol);
-            put(objectTypeMap, SmiObjectType.class, symbol);
-            put(notificationTypeMap, SmiNotificationType.class, symbol);
-            put(trapTypeMap, SmiTrapType.class, symbol);
+    }
+
+    /**
+     * From now on, the variables are split into scalars and columns.
+     */
+    public synchronized void fillExtraTables() {
+        variableKindsDetermined = true;
+    }
+
+    private int determineKinds(SmiSymbol symbol) {
+        if (variableKindsDetermined) {
+            int result = mib.getSymbolTable().getKinds(symbol);
+            if (result != 0) {
+                return result;
+            }
         }
+        int result = SmiSymbolTable.determineKinds(symbol);
+        if (variableKindsDetermined && symbol instanceof SmiVariable) {
+            result |= SmiSymbolTable.determineVariableKind((SmiVariable) symbol);
+        }
+        return result;
     }
 
-    public void fillExtraTables() {
-        for (SmiVariable variable : variableMap.values()) {
-            if (variable.isColumn()) {
-                columnMap.put(variable.getId(), variable);
-            } else {
-                scalarMap.put(variable.getId(), variable);
+    /**
+     * @return The kinds of the symbols, or null when they are not known yet.
+     */
+    private synchronized SymbolKinds getSymbolKinds() {
+        if (symbolKinds == null && variableKindsDetermined) {
+            int[] kinds = new int[symbolMap.size()];
+            int[] counts = new int[SmiSymbolTable.KIND_COUNT];
+            int i = 0;
+            for (SmiSymbol symbol : symbolMap.values()) {
+                kinds[i] = determineKinds(symbol);
+                for (int kind = 0; kind < SmiSymbolTable.KIND_COUNT; kind++) {
+                    counts[kind] += (kinds[i] >>> kind) & 1;
+                }
+                i++;
             }
+            symbolKinds = new SymbolKinds(kinds, counts);
+        }
+        return symbolKinds;
+    }
+
+    /**
+     * The kinds of the symbols in symbolMap, in the same order, and the number of symbols of each kind,
+     * so that they are always read together.
+     */
+    private static final class SymbolKinds {
+
+        private final int[] kinds;
+        private final int[] counts;
+
+        private SymbolKinds(int[] kinds, int[] counts) {
+            this.kinds = kinds;
+            this.counts = counts;
         }
     }
 
-    private <T extends SmiSymbol> void put(Map<String, T> map, Class<T> clazz, SmiSymbol symbol) {
-        if (clazz.isInstance(symbol)) {
-            map.put(symbol.getId(), clazz.cast(symbol));
+    private <T extends SmiSymbol> T find(String id, int kind, Class<T> symbolClass) {
+        SmiSymbol symbol = symbolMap.get(id);
+        return symbol != null && (determineKinds(symbol) & kind) != 0 ? symbolClass.cast(symbol) : null;
+    }
+
+    private class KindView<T extends SmiSymbol> extends AbstractCollection<T> {
+
+        private final int kind;
+        private final Class<T> symbolClass;
+
+        private KindView(int kind, Class<T> symbolClass) {
+            this.kind = kind;
+            this.symbolClass = symbolClass;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final Iterator<SmiSymbol> symbols = symbolMap.values().iterator();
+            SymbolKinds current = getSymbolKinds();
+            final int[] kinds = current != null ? current.kinds : null;
+            return new Iterator<T>() {
+                private int index;
+                private T next = advance();
+
+                private T advance() {
+                    while (symbols.hasNext()) {
+                        SmiSymbol symbol = symbols.next();
+                        int symbolKinds = kinds != null ? kinds[index++] : determineKinds(symbol);
+                        if ((symbolKinds & kind) != 0) {
+                            return symbolClass.cast(symbol);
+                        }
+                    }
+                    return null;
+                }
+
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                public T next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    T result = next;
+                    next = advance();
+                    return result;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            SymbolKinds symbolKinds = getSymbolKinds();
+            if (symbolKinds != null) {
+                return symbolKinds.counts[Integer.numberOfTrailingZeros(kind)];
+            }
+            int result = 0;
+            for (SmiSymbol symbol : symbolMap.values()) {
+                if ((determineKinds(symbol) & kind) != 0) {
+                    result++;
+                }
+            }
+            return result;
         }
     }
 
-    public void addSymbol(SmiSymbol symbol) {
+    public synchronized void addSymbol(SmiSymbol symbol) {
         symbols.add(symbol);
         symbolMap.put(symbol.getId(), symbol);
+        symbolKinds = null;
+        resolvedSymbolMap = null;
+        unresolvedIds = null;
     }
 
     /**
@@ -344,16 +461,26 @@ public class SmiModule {
 //            throw new IllegalArgumentException("Resolving references is only allowed from inside the same module");
 //        }
 
-        SmiSymbol result = findSymbol(idToken.getId());
-        if (result == null) {
-            result = findImportedSymbol(idToken.getId());
-        }
-        if (result == null) {
-            List<SmiSymbol> symbols = getMib().getSymbols().findAll(idToken.getId());
-            if (symbols.size() == 1) {
-                result = symbols.get(0);
-            } else if (symbols.size() > 0) {
-                result = determineBestMatch(idToken, symbols);
+        SmiSymbol result;
+        Map<String, SmiSymbol> resolvedSymbolMap = this.resolvedSymbolMap;
+        Set<String> unresolvedIds = this.unresolvedIds;
+        if (resolvedSymbolMap != null && unresolvedIds != null) {
+            result = resolvedSymbolMap.get(idToken.getId());
+            if (result == null && !unresolvedIds.contains(idToken.getId())) {
+                result = resolveInMib(idToken);
+                if (result != null) {
+                    resolvedSymbolMap.put(idToken.getId(), result);
+                } else {
+                    unresolvedIds.add(idToken.getId());
+                }
+            }
+        } else {
+            result = findSymbol(idToken.getId());
+            if (result == null) {
+                result = findImportedSymbol(idToken.getId());
+            }
+            if (result == null) {
+                result = resolveInMib(idToken);
             }
         }
         if (result == null && reporter != null) {
@@ -375,6 +502,16 @@ public class SmiModule {
         return null;
     }
 
+    private SmiSymbol resolveInMib(IdToken idToken) {
+        List<SmiSymbol> symbols = getMib().getSymbols().findAll(idToken.getId());
+        if (symbols.size() == 1) {
+            return symbols.get(0);
+        } else if (symbols.size() > 0) {
+            return determineBestMatch(idToken, symbols);
+        }
+        return null;
+    }
+
     private SmiSymbol determineBestMatch(IdToken idToken, List<SmiSymbol> symbols) {
         SmiSymbol result = determineBestMatchBasedOnSnmpVersion(symbols);
         if (result != null) {
@@ -437,6 +574,23 @@ public class SmiModule {
             imports.resolveImports(reporter);
         }
         // TODO check for imports with the same id
+        buildResolvedSymbolMap();
+    }
+
+    /**
+     * The symbols of the module itself take precedence over the imported symbols, and the first import wins,
+     * just like when resolving without the map.
+     */
+    private void buildResolvedSymbolMap() {
+        Map<String, SmiSymbol> result = new ConcurrentHashMap<String, SmiSymbol>(2 * symbolMap.size() + 16);
+        result.putAll(symbolMap);
+        for (SmiImports imports : imports) {
+            for (Map.Entry<String, SmiSymbol> entry : imports.getSymbolMap().entrySet()) {
+                result.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        unresolvedIds = ConcurrentHashMap.newKeySet();
+        resolvedSymbolMap = result;
     }
 
 
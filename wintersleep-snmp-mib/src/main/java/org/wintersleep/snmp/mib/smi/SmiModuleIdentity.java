@@ -15,9 +15,10 @@
  */
 package org.wintersleep.snmp.mib.smi;
 
+import java.io.Serializable;
 import java.util.List;
 
-public class SmiModuleIdentity {
+public class SmiModuleIdentity implements Serializable {
     private final String lastUpdated;
     private final String organization;
     private final String contactInfo;
@@ -15,7 +15,9 @@
  */
 package org.wintersleep.snmp.mib.smi;
 
-public class SmiModuleRevision {
+import java.io.Serializable;
+
+public class SmiModuleRevision implements Serializable {
     private final String revision;
     private final String description;
 
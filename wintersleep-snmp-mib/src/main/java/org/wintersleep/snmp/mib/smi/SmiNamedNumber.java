@@ -19,12 +19,13 @@ import org.wintersleep.snmp.util.location.Location;
 import org.wintersleep.snmp.util.token.BigIntegerToken;
 import org.wintersleep.snmp.util.token.IdToken;
 
+import java.io.Serializable;
 import java.math.BigInteger;
 
 /**
  * Used to represent enum values and bit fields.
  */
-public class SmiNamedNumber {
+public class SmiNamedNumber implements Serializable {
 
 	private SmiType type;
 	private IdToken idToken;
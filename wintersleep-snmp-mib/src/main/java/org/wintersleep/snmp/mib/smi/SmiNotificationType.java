@@ -29,7 +29,9 @@ public class SmiNotificationType extends SmiOidMacro implements Notification {
     private List<SmiVariable> objects = new ArrayList<SmiVariable>();
     private StatusV2 statusV2;
     private String description;
+    private SmiTextRef descriptionRef;
     private String reference;
+    private SmiTextRef referenceRef;
 
     public SmiNotificationType(IdToken idToken, SmiModule module, List<IdToken> objectTokens, StatusV2 statusV2, String description, String reference) {
         super(idToken, module);
@@ -64,11 +66,27 @@ public class SmiNotificationType extends SmiOidMacro implements Notification {
     }
 
     public String getDescription() {
-        return description;
+        return descriptionRef != null ? descriptionRef.getText() : description;
+    }
+
+    public SmiTextRef getDescriptionRef() {
+        return descriptionRef;
+    }
+
+    public void setDescriptionRef(SmiTextRef descriptionRef) {
+        this.descriptionRef = descriptionRef;
     }
 
     public String getReference() {
-        return reference;
+        return referenceRef != null ? referenceRef.getText() : reference;
+    }
+
+    public SmiTextRef getReferenceRef() {
+        return referenceRef;
+    }
+
+    public void setReferenceRef(SmiTextRef referenceRef) {
+        this.referenceRef = referenceRef;
     }
 
 }
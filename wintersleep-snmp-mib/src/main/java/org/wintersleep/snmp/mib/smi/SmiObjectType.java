@@ -25,6 +25,7 @@ public class SmiObjectType extends SmiOidMacro {
     private IdToken accessToken;
     private IdToken maxAccessToken;
     private String description;
+    private SmiTextRef descriptionRef;
 
     private ObjectTypeAccessV1 accessV1;
     private ObjectTypeAccessV2 accessV2;
@@ -65,7 +66,15 @@ public class SmiObjectType extends SmiOidMacro {
     }
 
     public String getDescription() {
-        return description;
+        return descriptionRef != null ? descriptionRef.getText() : description;
+    }
+
+    public SmiTextRef getDescriptionRef() {
+        return descriptionRef;
+    }
+
+    public void setDescriptionRef(SmiTextRef descriptionRef) {
+        this.descriptionRef = descriptionRef;
     }
 
     public void setDescription(String description) {
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+/**
+ * Walks the nodes of a {@link SmiOidTrie} in lexicographic oid order, as an agent does for GETNEXT and GETBULK
+ * requests. Because the ids of the trie are in preorder, moving to the next node or past a subtree is a single
+ * step, and seeking an oid takes one child lookup per sub-id. None of the methods allocate any memory.
+ * <p>
+ * The root itself is never visited. The cursor can be limited to a subtree, after which it is exhausted once it
+ * leaves that subtree. A cursor must not be shared between threads, but any number of cursors can walk the same
+ * trie.
+ * <pre>
+ * SmiOidCursor cursor = new SmiOidCursor(mib.freeze());
+ * for (boolean found = cursor.seekAfter(oid); found; found = cursor.nextValue(SmiVariable.class)) {
+ *     ...
+ * }
+ * </pre>
+ */
+public final class SmiOidCursor {
+
+    private final SmiOidTrie trie;
+    private int nodeId;
+    // the range of node ids that can be visited
+    private int start;
+    private int limit;
+
+    public SmiOidCursor(SmiOidTrie trie) {
+        this.trie = trie;
+        clearLimit();
+        this.nodeId = limit;
+    }
+
+    public SmiOidTrie getTrie() {
+        return trie;
+    }
+
+    /**
+     * @return False when the cursor has moved past the last node, or past its subtree.
+     */
+    public boolean isValid() {
+        return nodeId < limit;
+    }
+
+    /**
+     * @return The id of the current node in the trie.
+     * @throws IllegalStateException If the cursor is not {@link #isValid() valid}.
+     */
+    public int getNodeId() {
+        checkValid();
+        return nodeId;
+    }
+
+    public SmiOidNode getNode() {
+        checkValid();
+        return trie.getNode(nodeId);
+    }
+
+    /**
+     * @return The first value of the current node, or null.
+     */
+    public SmiOidValue getValue() {
+        checkValid();
+        return trie.getOidValue(nodeId);
+    }
+
+    private void checkValid() {
+        if (nodeId >= limit) {
+            throw new IllegalStateException("The cursor is not positioned on a node");
+        }
+    }
+
+    /**
+     * Moves to the first node of which the oid is equal to or greater than the given oid.
+     *
+     * @return True if there is such a node within the limit.
+     */
+    public boolean seek(int[] oid, int offset, int length) {
+        return seek(oid, offset, length, false);
+    }
+
+    public boolean seek(Oid oid) {
+        return seek(oid.subIds, oid.offset, oid.length(), false);
+    }
+
+    /**
+     * Moves to the first node of which the oid is greater than the given oid, as GETNEXT does. The oid does not
+     * have to be in the tree: it can also be an instance oid, or point between nodes.
+     *
+     * @return True if there is such a node within the limit.
+     */
+    public boolean seekAfter(int[] oid, int offset, int length) {
+        return seek(oid, offset, length, true);
+    }
+
+    public boolean seekAfter(Oid oid) {
+        return seek(oid.subIds, oid.offset, oid.length(), true);
+    }
+
+    private boolean seek(int[] oid, int offset, int length, boolean after) {
+        if (offset < 0 || length < 0 || offset + length > oid.length) {
+            throw new IllegalArgumentException("Offset " + offset + " and length " + length + " do not fit in an oid of length " + oid.length);
+        }
+        int id = SmiOidTrie.ROOT_ID;
+        for (int i = 0; i < length; i++) {
+            int childId = trie.findChild(id, oid[offset + i]);
+            if (childId == SmiOidTrie.NOT_FOUND) {
+                // the oid falls between the children, or below a leaf
+                childId = trie.findChildAfter(id, oid[offset + i]);
+                return moveTo(childId != SmiOidTrie.NOT_FOUND ? childId : trie.getSubtreeEnd(id));
+            }
+            id = childId;
+        }
+        // the whole oid is in the tree: its descendants come after it
+        return moveTo(after ? id + 1 : id);
+    }
+
+    private boolean moveTo(int id) {
+        nodeId = Math.max(Math.min(id, limit), start);
+        return nodeId < limit;
+    }
+
+    /**
+     * Moves to the next node in lexicographic order.
+     *
+     * @return False if there is none within the limit.
+     */
+    public boolean next() {
+        checkValid();
+        nodeId++;
+        return nodeId < limit;
+    }
+
+    /**
+     * Moves to the first node after the subtree of the current node.
+     *
+     * @return False if there is none within the limit.
+     */
+    public boolean skipSubtree() {
+        checkValid();
+        nodeId = Math.min(trie.getSubtreeEnd(nodeId), limit);
+        return nodeId < limit;
+    }
+
+    /**
+     * Moves to the next node that has a value.
+     *
+     * @return False if there is none within the limit.
+     */
+    public boolean nextValue() {
+        return nextValue(SmiOidValue.class);
+    }
+
+    /**
+     * Moves to the next node of which the first value is of the given class, for instance {@link SmiVariable}
+     * for the next scalar or column.
+     *
+     * @return False if there is none within the limit.
+     */
+    public boolean nextValue(Class<? extends SmiOidValue> valueClass) {
+        checkValid();
+        for (nodeId++; nodeId < limit; nodeId++) {
+            if (valueClass.isInstance(trie.getOidValue(nodeId))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves to the next node that has children, for instance to walk the tables and groups, without their leaves.
+     *
+     * @return False if there is none within the limit.
+     */
+    public boolean nextNonLeaf() {
+        checkValid();
+        for (nodeId++; nodeId < limit; nodeId++) {
+            // a leaf is its own subtree
+            if (trie.getSubtreeEnd(nodeId) > nodeId + 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves to the node with the oid, and limits the cursor to its subtree.
+     *
+     * @return False if the oid is not in the tree; the cursor is then exhausted, without a limit.
+     */
+    public boolean seekSubtree(Oid oid) {
+        clearLimit();
+        int id = trie.find(oid.subIds, oid.offset, oid.length());
+        if (id == SmiOidTrie.NOT_FOUND) {
+            nodeId = limit;
+            return false;
+        }
+        if (id != SmiOidTrie.ROOT_ID) {
+            start = id;
+            limit = trie.getSubtreeEnd(id);
+        }
+        return moveTo(start);
+    }
+
+    /**
+     * Limits the cursor to the subtree of the current node.
+     */
+    public void limitToSubtree() {
+        checkValid();
+        start = nodeId;
+        limit = trie.getSubtreeEnd(nodeId);
+    }
+
+    public void clearLimit() {
+        start = SmiOidTrie.ROOT_ID + 1;
+        limit = trie.size();
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import java.util.Arrays;
+
+/**
+ * The result of a longest match lookup on a mib: the deepest oid value that an instance oid starts with,
+ * and the remaining sub-ids, which form the instance suffix. For instance {@code 1.3.6.1.2.1.2.2.1.10.7} matches
+ * ifInOctets at depth 10, with suffix {@code 7}.
+ * <p>
+ * When an int array is looked up, the suffix is not copied: it is a range of that array. When the oid is parsed
+ * from text or decoded from BER, the suffix is decoded into a buffer of the match object itself, which only grows
+ * when a longer suffix comes along. In all cases, the positions where the suffix starts and ends in the source
+ * are available as well.
+ * <p>
+ * A match object can be reused for any number of lookups, so that these do not allocate anything, but it must not be
+ * shared between threads.
+ */
+public final class SmiOidMatch {
+
+    private int[] buffer = new int[16];
+
+    private int[] suffixArray;
+    private int suffixOffset;
+    private int suffixLength;
+    private int sourceSuffixStart;
+    private int sourceEnd;
+    private int depth;
+    private SmiOidNode node;
+    private SmiOidValue value;
+
+    // the position of the walk that is in progress: a node id when a trie is walked, a node otherwise
+    private SmiOidTrie walkTrie;
+    private int walkId;
+    private SmiOidNode walkNode;
+    private int walkDepth;
+
+    /**
+     * Starts a walk from the root, during which {@link #step} records the deepest value. The trie is walked
+     * when it is not null, the tree is walked otherwise.
+     */
+    void start(SmiOidTrie trie, SmiOidNode root) {
+        walkTrie = trie;
+        walkId = SmiOidTrie.ROOT_ID;
+        walkNode = trie == null ? root : null;
+        walkDepth = 0;
+        set(0, null, null);
+    }
+
+    /**
+     * @return False if the current node has no child with this sub-id, after which the walk must stop.
+     */
+    boolean step(int subId) {
+        if (walkTrie != null) {
+            int childId = walkTrie.findChild(walkId, subId);
+            if (childId == SmiOidTrie.NOT_FOUND) {
+                return false;
+            }
+            walkId = childId;
+            walkDepth++;
+            SmiOidValue childValue = walkTrie.getOidValue(childId);
+            if (childValue != null) {
+                set(walkDepth, walkTrie.getNode(childId), childValue);
+            }
+        } else {
+            SmiOidNode child = walkNode.findChild(subId);
+            if (child == null) {
+                return false;
+            }
+            walkNode = child;
+            walkDepth++;
+            SmiOidValue childValue = child.getFirstValue();
+            if (childValue != null) {
+                set(walkDepth, child, childValue);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return True if the last successful step matched a value.
+     */
+    boolean isMatchedAtStep() {
+        return value != null && depth == walkDepth;
+    }
+
+    void set(int depth, SmiOidNode node, SmiOidValue value) {
+        this.depth = depth;
+        this.node = node;
+        this.value = value;
+    }
+
+    void setSuffix(int[] suffixArray, int suffixOffset, int suffixLength, int sourceSuffixStart, int sourceEnd) {
+        this.suffixArray = suffixArray;
+        this.suffixOffset = suffixOffset;
+        this.suffixLength = suffixLength;
+        this.sourceSuffixStart = sourceSuffixStart;
+        this.sourceEnd = sourceEnd;
+    }
+
+    /**
+     * @return The internal buffer, with room for at least the given number of sub-ids. When it has to grow,
+     * the sub-ids that were already stored in it are kept.
+     */
+    int[] getBuffer(int capacity) {
+        if (buffer.length < capacity) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, 2 * buffer.length));
+        }
+        return buffer;
+    }
+
+    /**
+     * @return True if any oid value was matched.
+     */
+    public boolean isMatched() {
+        return value != null;
+    }
+
+    /**
+     * @return The number of sub-ids that were matched: the length of the oid of the matched value.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public SmiOidNode getNode() {
+        return node;
+    }
+
+    /**
+     * @return The first value of the matched node, or null if nothing matched.
+     */
+    public SmiOidValue getValue() {
+        return value;
+    }
+
+    /**
+     * @return The array that contains the suffix: either the array that was looked up, or an internal buffer.
+     */
+    public int[] getSuffixArray() {
+        return suffixArray;
+    }
+
+    public int getSuffixOffset() {
+        return suffixOffset;
+    }
+
+    public int getSuffixLength() {
+        return suffixLength;
+    }
+
+    public int getSuffix(int index) {
+        if (index < 0 || index >= suffixLength) {
+            throw new IndexOutOfBoundsException("Index " + index + " is not in a suffix of length " + suffixLength);
+        }
+        return suffixArray[suffixOffset + index];
+    }
+
+    public int[] copySuffix() {
+        return Arrays.copyOfRange(suffixArray, suffixOffset, suffixOffset + suffixLength);
+    }
+
+    /**
+     * @return Where the suffix starts in what was looked up: an index in the int array, the index of the first
+     * character of the suffix in the text, or the position of its first byte in the BER encoding.
+     */
+    public int getSourceSuffixStart() {
+        return sourceSuffixStart;
+    }
+
+    /**
+     * @return The position right after the oid in what was looked up.
+     */
+    public int getSourceEnd() {
+        return sourceEnd;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(value != null ? value.getId() : "<no match>");
+        for (int i = 0; i < suffixLength; i++) {
+            result.append('.').append(suffixArray[suffixOffset + i] & 0xFFFFFFFFL);
+        }
+        return result.toString();
+    }
+}
@@ -1,11 +1,13 @@
 package org.wintersleep.snmp.mib.smi;
 
 import java.io.PrintStream;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
 /*
 * Copyright 2007 Davy Verstappen.
@@ -22,47 +24,136 @@ import java.util.TreeMap;
 * See the License for the specific language governing permissions and
 * limitations under the License.
 */
-public class SmiOidNode {
+public class SmiOidNode implements Serializable {
+
+    private static final int[] NO_SUB_IDS = new int[0];
+    private static final SmiOidNode[] NO_CHILDREN = new SmiOidNode[0];
 
     private final SmiOidNode parent;
-    Map<Integer, SmiOidNode> childMap = new TreeMap<Integer, SmiOidNode>();
 
-    private List<SmiOidValue> values = new ArrayList<SmiOidValue>();
+    // sorted on the sub-id, only the first childCount elements are used
+    private int[] childSubIds = NO_SUB_IDS;
+    private SmiOidNode[] children = NO_CHILDREN;
+    private int childCount;
+
+    // most nodes have only one value: the list is only created for the second one
+    private SmiOidValue firstValue;
+    private List<SmiOidValue> values;
     private final int value;
+    private final int depth;
 
-    private int[] oid;
-    private String oidStr;
+    // the oid itself is derived from the parents, only its text and Oid are cached once they have been asked for
+    private transient volatile String oidStr;
+    private transient volatile Oid oid;
 
     public SmiOidNode(SmiOidNode parent, int value) {
         this.parent = parent;
         this.value = value;
+        this.depth = parent != null ? parent.depth + 1 : 0;
 
         if (this.parent != null) {
-            if (this.parent.childMap.get(value) != null) {
-                throw new IllegalStateException();
-            }
-            this.parent.childMap.put(value, this);
+            this.parent.addChild(this);
         }
     }
 
+    private void addChild(SmiOidNode child) {
+        int index = Arrays.binarySearch(childSubIds, 0, childCount, child.value);
+        if (index >= 0) {
+            throw new IllegalStateException();
+        }
+        index = -index - 1;
+        if (childCount == children.length) {
+            int capacity = childCount < 4 ? childCount + 1 : childCount + (childCount >> 1);
+            childSubIds = Arrays.copyOf(childSubIds, capacity);
+            children = Arrays.copyOf(children, capacity);
+        }
+        System.arraycopy(childSubIds, index, childSubIds, index + 1, childCount - index);
+        System.arraycopy(children, index, children, index + 1, childCount - index);
+        childSubIds[index] = child.value;
+        children[index] = child;
+        childCount++;
+    }
+
     public SmiOidNode getParent() {
         return parent;
     }
 
+    /**
+     * @return The children, ordered on their sub-id.
+     */
     public Collection<? extends SmiOidNode> getChildren() {
-        return childMap.values();
+        if (childCount == 0) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(children).subList(0, childCount));
+    }
+
+    /**
+     * @return The first of the values, or null: without creating a list.
+     */
+    SmiOidValue getFirstValue() {
+        return values != null ? values.get(0) : firstValue;
+    }
+
+    public int getChildCount() {
+        return childCount;
     }
 
     public List<SmiOidValue> getValues() {
-        return values;
+        if (values != null) {
+            return Collections.unmodifiableList(values);
+        } else if (firstValue != null) {
+            return Collections.singletonList(firstValue);
+        }
+        return Collections.emptyList();
     }
 
+    /**
+     * @return A new array with the sub-ids from the root to this node, or null for the root.
+     */
     public int[] getOid() {
-        return oid;
+        if (depth == 0) {
+            return null;
+        }
+        int[] result = new int[depth];
+        for (SmiOidNode node = this; node.depth > 0; node = node.parent) {
+            result[node.depth - 1] = node.value;
+        }
+        return result;
+    }
+
+    /**
+     * @return The oid, or {@link Oid#EMPTY} for the root. It is cached on the node, so there is no need to keep it.
+     */
+    public Oid toOid() {
+        Oid result = oid;
+        if (result == null) {
+            result = depth == 0 ? Oid.EMPTY : Oid.wrap(getOid());
+            oid = result;
+        }
+        return result;
     }
 
     public String getOidStr() {
-        return oidStr;
+        String result = oidStr;
+        if (result == null && depth > 0) {
+            int[] oid = getOid();
+            StringBuilder builder = new StringBuilder(4 * depth);
+            builder.append(oid[0]);
+            for (int i = 1; i < oid.length; i++) {
+                builder.append('.').append(oid[i]);
+            }
+            result = builder.toString();
+            oidStr = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of sub-ids in the oid: 0 for the root.
+     */
+    public int getDepth() {
+        return depth;
     }
 
 /*
@@ -87,9 +178,9 @@ public class SmiOidNode {
 */
 
     public int getTotalChildCount() {
-        int result = childMap.size();
-        for (SmiOidNode child : childMap.values()) {
-            result += child.getTotalChildCount();
+        int result = childCount;
+        for (int i = 0; i < childCount; i++) {
+            result += children[i].getTotalChildCount();
         }
         return result;
     }
@@ -97,12 +188,12 @@ public class SmiOidNode {
     public void dumpTree(PrintStream w, String indent) {
         w.print(indent);
         w.print(value);
-        for (SmiOidValue value : values) {
+        for (SmiOidValue value : getValues()) {
             w.print(":");
             w.print(value.getId());
         }
-        for (SmiOidNode child : childMap.values()) {
-            child.dumpTree(w, indent + " ");
+        for (int i = 0; i < childCount; i++) {
+            children[i].dumpTree(w, indent + " ");
         }
     }
 
@@ -112,24 +203,58 @@ public class SmiOidNode {
     }
 
     public SmiOidNode findChild(int value) {
-        return childMap.get(value);
+        int index = Arrays.binarySearch(childSubIds, 0, childCount, value);
+        return index >= 0 ? children[index] : null;
+    }
+
+    /**
+     * Can be called concurrently for the same parent, which happens when oids are resolved in parallel.
+     */
+    public synchronized SmiOidNode findOrCreateChild(int value) {
+        SmiOidNode result = findChild(value);
+        if (result == null) {
+            result = new SmiOidNode(this, value);
+        }
+        return result;
+    }
+
+    /**
+     * Changes the order of the values, which is otherwise the order in which they were added.
+     */
+    synchronized void sortValues(Comparator<SmiOidValue> comparator) {
+        if (values != null) {
+            values.sort(comparator);
+            firstValue = values.get(0);
+        }
+    }
+
+    synchronized void addValue(SmiOidValue value) {
+        if (firstValue == null) {
+            firstValue = value;
+        } else {
+            if (values == null) {
+                values = new ArrayList<SmiOidValue>(2);
+                values.add(firstValue);
+            }
+            values.add(value);
+        }
     }
 
     public <T extends SmiOidValue> T getSingleValue(Class<T> clazz) {
-        switch (values.size()) {
+        switch (getValues().size()) {
             case 0:
                 throw new AssertionError("Expected exactly one value, but found 0");
             case 1:
-                return clazz.cast(values.get(0));
+                return clazz.cast(getValues().get(0));
             default:
-                throw new AssertionError("Expected exactly one value, but found " + values);
+                throw new AssertionError("Expected exactly one value, but found " + getValues());
         }
     }
 
     // TODO this is bad: different versions of getSingleValue() return null or throw an exception when something is not there
     public <T extends SmiOidValue> T getSingleValue(Class<T> clazz, SmiModule module) {
         T result = null;
-        for (SmiOidValue value : values) {
+        for (SmiOidValue value : getValues()) {
             if (value.getModule() == module && clazz.isInstance(value)) {
                 if (result == null) {
                     result = clazz.cast(value);
@@ -141,11 +266,24 @@ public class SmiOidNode {
         return result;
     }
 
+    /**
+     * @return True if {@link #getSingleValue(Class, SmiModule)} would fail, because there is more than one value.
+     */
+    boolean hasMultipleValues(Class<? extends SmiOidValue> clazz, SmiModule module) {
+        int count = 0;
+        for (SmiOidValue value : getValues()) {
+            if (value.getModule() == module && clazz.isInstance(value)) {
+                count++;
+            }
+        }
+        return count > 1;
+    }
+
     public SmiOidValue getSingleValue() {
-        if (values.size() != 1) {
+        if (getValues().size() != 1) {
             throw new AssertionError("expected only a single value");
         }
-        return values.get(0);
+        return getValues().get(0);
     }
 
     /**
@@ -166,7 +304,7 @@ public class SmiOidNode {
         SmiOidNode oidValue = this;
         while (oidValue != null) {
             out.print(oidValue.value);
-            for (SmiOidValue value : values) {
+            for (SmiOidValue value : getValues()) {
                 out.print(",");
                 out.print(value.getId());
             }
@@ -178,27 +316,16 @@ public class SmiOidNode {
         out.println();
     }
 
+    /**
+     * @deprecated The oid is always available through {@link #getOid()}, without determining it first.
+     */
+    @Deprecated
     public int[] determineFullOid() {
-        if (oid == null) {
-            SmiOidNode parent = getParent();
-            if (parent != null) {
-                int[] parentOid = parent.determineFullOid();
-                if (parentOid != null) {
-                    oid = new int[parentOid.length + 1];
-                    System.arraycopy(parentOid, 0, oid, 0, parentOid.length);
-                    oid[oid.length - 1] = value;
-                    oidStr = parent.getOidStr() + "." + value;
-                } else {
-                    oid = new int[]{value};
-                    oidStr = String.valueOf(value);
-                }
-            }
-        }
-        return oid;
+        return getOid();
     }
 
     public boolean contains(SmiOidNode node) {
-        return childMap.containsValue(node);
+        return node != null && findChild(node.value) == node;
     }
 
     public int getValue() {
@@ -207,6 +334,6 @@ public class SmiOidNode {
 
     @Override
     public String toString() {
-        return getClass().getSimpleName() + ":" + oidStr;
+        return getClass().getSimpleName() + ":" + getOidStr();
     }
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable, flattened copy of the oid tree of a mib, for fast lookups at runtime. It is built by
+ * {@link SmiMib#freeze()}, and can be shared by any number of threads without locking.
+ * <p>
+ * Each node of the tree gets an id: its position in a preorder walk, with the root as 0. The ids are therefore
+ * in lexicographic oid order, and the subtree of a node is the range of ids from the node itself up to
+ * {@link #getSubtreeEnd(int)}. The children of a node are stored in parallel arrays of sub-ids and node ids,
+ * sorted on the sub-id, in the range that is given by {@code childStarts}.
+ * <p>
+ * None of the lookups allocate any memory.
+ */
+public final class SmiOidTrie {
+
+    public static final int ROOT_ID = 0;
+    public static final int NOT_FOUND = -1;
+
+    private final int[] childStarts;
+    private final int[] childSubIds;
+    private final int[] childIds;
+    private final int[] parentIds;
+    private final int[] subtreeEnds;
+    private final SmiOidNode[] nodes;
+    private final SmiOidValue[] values;
+
+    private SmiOidTrie(SmiOidNode root) {
+        List<SmiOidNode> preorder = new ArrayList<SmiOidNode>();
+        List<Integer> parents = new ArrayList<Integer>();
+        addPreorder(root, NOT_FOUND, preorder, parents);
+
+        int size = preorder.size();
+        nodes = preorder.toArray(new SmiOidNode[size]);
+        values = new SmiOidValue[size];
+        parentIds = new int[size];
+        subtreeEnds = new int[size];
+        childStarts = new int[size + 1];
+        childSubIds = new int[size - 1];
+        childIds = new int[size - 1];
+
+        for (int id = 0; id < size; id++) {
+            parentIds[id] = parents.get(id);
+            values[id] = nodes[id].getFirstValue();
+            childStarts[id + 1] = childStarts[id] + nodes[id].getChildCount();
+        }
+        // the children of a node come after it in preorder, in the order of their sub-id
+        int[] cursors = new int[size];
+        System.arraycopy(childStarts, 0, cursors, 0, size);
+        for (int id = 1; id < size; id++) {
+            int edge = cursors[parentIds[id]]++;
+            childSubIds[edge] = nodes[id].getValue();
+            childIds[edge] = id;
+        }
+        for (int id = size - 1; id >= 0; id--) {
+            int end = id + 1;
+            int lastChild = childStarts[id + 1] - 1;
+            if (lastChild >= childStarts[id]) {
+                end = subtreeEnds[childIds[lastChild]];
+            }
+            subtreeEnds[id] = end;
+        }
+    }
+
+    private static void addPreorder(SmiOidNode node, int parentId, List<SmiOidNode> preorder, List<Integer> parents) {
+        int id = preorder.size();
+        preorder.add(node);
+        parents.add(parentId);
+        for (SmiOidNode child : node.getChildren()) {
+            addPreorder(child, id, preorder, parents);
+        }
+    }
+
+    static SmiOidTrie build(SmiOidNode root) {
+        return new SmiOidTrie(root);
+    }
+
+    /**
+     * @return The number of nodes, including the root.
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * @return The id of the child with the given sub-id, or {@link #NOT_FOUND}.
+     */
+    public int findChild(int nodeId, int subId) {
+        int low = childStarts[nodeId];
+        int high = childStarts[nodeId + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midSubId = childSubIds[mid];
+            if (midSubId < subId) {
+                low = mid + 1;
+            } else if (midSubId > subId) {
+                high = mid - 1;
+            } else {
+                return childIds[mid];
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @return The id of the first child with a sub-id after the given one, or {@link #NOT_FOUND}. The sub-id is
+     * compared as an unsigned number; this gives the same order as the tree, because the sub-ids in a mib are
+     * below 2^31.
+     */
+    public int findChildAfter(int nodeId, int subId) {
+        int end = childStarts[nodeId + 1];
+        if (subId < 0) {
+            return NOT_FOUND;
+        }
+        int low = childStarts[nodeId];
+        int high = end - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (childSubIds[mid] <= subId) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low < end ? childIds[low] : NOT_FOUND;
+    }
+
+    /**
+     * @return The id of the node with exactly this oid, or {@link #NOT_FOUND}. The empty oid is the root.
+     */
+    public int find(int[] oid, int offset, int length) {
+        int id = ROOT_ID;
+        for (int i = offset, end = offset + length; i < end && id != NOT_FOUND; i++) {
+            id = findChild(id, oid[i]);
+        }
+        return id;
+    }
+
+    public int find(int... oid) {
+        return find(oid, 0, oid.length);
+    }
+
+    /**
+     * @see SmiMib#findLongestMatch(int[], int, int, SmiOidMatch)
+     */
+    public boolean findLongestMatch(int[] oid, int offset, int length, SmiOidMatch result) {
+        result.start(this, null);
+        int i = 0;
+        while (i < length && result.step(oid[offset + i])) {
+            i++;
+        }
+        int suffixStart = offset + result.getDepth();
+        result.setSuffix(oid, suffixStart, length - result.getDepth(), suffixStart, offset + length);
+        return result.isMatched();
+    }
+
+    public SmiOidNode getNode(int nodeId) {
+        return nodes[nodeId];
+    }
+
+    /**
+     * @return The first value that is defined for the node, or null.
+     */
+    public SmiOidValue getOidValue(int nodeId) {
+        return values[nodeId];
+    }
+
+    /**
+     * @return The id of the parent, or {@link #NOT_FOUND} for the root.
+     */
+    public int getParent(int nodeId) {
+        return parentIds[nodeId];
+    }
+
+    public int getChildCount(int nodeId) {
+        return childStarts[nodeId + 1] - childStarts[nodeId];
+    }
+
+    /**
+     * @return The id after the last node in the subtree of the node: this is the next node in lexicographic order
+     * that is not a descendant, or {@link #size()}.
+     */
+    public int getSubtreeEnd(int nodeId) {
+        return subtreeEnds[nodeId];
+    }
+}
@@ -22,6 +22,8 @@ import org.wintersleep.snmp.util.token.IdToken;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 
 public class SmiOidValue extends SmiValue {
 
@@ -51,6 +53,10 @@ public class SmiOidValue extends SmiValue {
         return node.getOid();
     }
 
+    public Oid toOid() {
+        return node.toOid();
+    }
+
     /**
      * @return null for the root node; the OID in decimal dotted notation for all other nodes
      */
@@ -65,13 +71,25 @@ public class SmiOidValue extends SmiValue {
         if (node == null) {
             node = lastOidComponent.resolveNode(getModule(), reporter);
             if (node != null) {
-                node.getValues().add(this);
+                node.addValue(this);
             }
             // assumption is that another error has already been reported for this
         }
         return node;
     }
 
+    /**
+     * @return The oid values that are referenced by name in the oid of this value, in the order in which
+     * {@link #resolveOid} resolves them. Nothing is resolved by this method.
+     */
+    public List<SmiOidValue> findReferencedOidValues() {
+        List<SmiOidValue> result = new ArrayList<SmiOidValue>();
+        if (lastOidComponent != null) {
+            lastOidComponent.addReferencedOidValues(getModule(), result);
+        }
+        return result;
+    }
+
     public SmiOidNode getNode() {
         return node;
     }
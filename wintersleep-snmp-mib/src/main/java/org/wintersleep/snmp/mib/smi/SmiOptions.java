@@ -15,9 +15,12 @@
  */
 package org.wintersleep.snmp.mib.smi;
 
-public class SmiOptions {
+import java.io.Serializable;
+
+public class SmiOptions implements Serializable {
 
     private boolean convertV1ImportsToV2;
+    private boolean lazyText;
 
     public boolean isConvertV1ImportsToV2() {
         return convertV1ImportsToV2;
@@ -26,4 +29,17 @@ public class SmiOptions {
     public void setConvertV1ImportsToV2(boolean convertV1ImportsToV2) {
         this.convertV1ImportsToV2 = convertV1ImportsToV2;
     }
+
+    public boolean isLazyText() {
+        return lazyText;
+    }
+
+    /**
+     * When set, the DESCRIPTION and REFERENCE clauses of object types, notification types, trap types and
+     * textual conventions are not kept in memory, but only their position in the mib file: the text is read
+     * from the mib file again each time it is asked for.
+     */
+    public void setLazyText(boolean lazyText) {
+        this.lazyText = lazyText;
+    }
 }
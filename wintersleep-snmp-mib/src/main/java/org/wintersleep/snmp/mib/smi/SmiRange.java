@@ -22,9 +22,10 @@ import org.wintersleep.snmp.util.token.BinaryStringToken;
 import org.wintersleep.snmp.util.token.HexStringToken;
 import org.wintersleep.snmp.util.token.Token;
 
+import java.io.Serializable;
 import java.math.BigInteger;
 
-public class SmiRange {
+public class SmiRange implements Serializable {
 
     private Token beginToken;
     private Token endToken;
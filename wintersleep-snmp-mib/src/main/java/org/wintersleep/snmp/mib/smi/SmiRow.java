@@ -21,6 +21,7 @@ import org.wintersleep.snmp.util.token.IdToken;
 import org.wintersleep.snmp.mib.phase.xref.XRefProblemReporter;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -34,16 +35,57 @@ public class SmiRow extends SmiObjectType {
 
     private List<SmiIndex> indexes;
     private ScopedId augmentsId;
+    private transient volatile SmiRowIndexCodec indexCodec;
+
+    private SmiTable table;
+    private List<SmiVariable> columns;
 
     public SmiRow(IdToken idToken, SmiModule module) {
         super(idToken, module);
     }
 
     public SmiTable getTable() {
+        if (columns != null) {
+            return table;
+        }
+        return findTable();
+    }
+
+    private SmiTable findTable() {
         return getNode().getParent().getSingleValue(SmiTable.class, getModule());
     }
 
+    /**
+     * @return The columns, in the order of their oids. The list cannot be changed.
+     */
     public List<SmiVariable> getColumns() {
+        if (columns != null) {
+            return columns;
+        }
+        return Collections.unmodifiableList(findColumns());
+    }
+
+    void determineStructure() {
+        if (getNode() == null) {
+            // the oid could not be resolved
+            table = null;
+            columns = Collections.emptyList();
+            return;
+        }
+        if (getNode().getParent() != null && getNode().getParent().hasMultipleValues(SmiTable.class, getModule())) {
+            return;
+        }
+        for (SmiOidNode child : getNode().getChildren()) {
+            if (child.hasMultipleValues(SmiVariable.class, getModule())) {
+                return;
+            }
+        }
+        table = getNode().getParent() != null ? findTable() : null;
+        List<SmiVariable> result = findColumns();
+        columns = result.isEmpty() ? Collections.<SmiVariable>emptyList() : Collections.unmodifiableList(result);
+    }
+
+    private List<SmiVariable> findColumns() {
         List<SmiVariable> result = new ArrayList<SmiVariable>();
         for (SmiOidNode child : getNode().getChildren()) {
             SmiVariable column = child.getSingleValue(SmiVariable.class, getModule());
@@ -75,6 +117,19 @@ public class SmiRow extends SmiObjectType {
         return indexes;
     }
 
+    /**
+     * @return The codec for the instance suffixes of the columns of this row, which is compiled the first time.
+     * @throws IllegalStateException If the indexes cannot be used for that, for instance when they were not resolved.
+     */
+    public SmiRowIndexCodec getIndexCodec() {
+        SmiRowIndexCodec result = indexCodec;
+        if (result == null) {
+            result = SmiRowIndexCodec.compile(this);
+            indexCodec = result;
+        }
+        return result;
+    }
+
     public List<SmiRow> getChildRows() {
         return childRows;
     }
@@ -142,7 +197,10 @@ public class SmiRow extends SmiObjectType {
             augmentsId.resolveReferences(reporter);
             SmiRow augmentedRow = getAugments();
             if (augmentedRow != null) {
-                augmentedRow.childRows.add(this);
+                // the augmented row can be in another module, that is resolved concurrently
+                synchronized (augmentedRow.childRows) {
+                    augmentedRow.childRows.add(this);
+                }
                 parentRows.add(augmentedRow);
             }
         }
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Converts between the instance suffix of a column of a row, and the values of the indexes of the row,
+ * following the rules of RFC 2578, section 7.7. The codec is compiled once from the indexes of the row (or of the row
+ * that it augments), and is then used without looking at the mib again: see {@link SmiRow#getIndexCodec()}.
+ * <p>
+ * The values are:
+ * <ul>
+ * <li>Integer for INTEGER, Integer32 and enumerations;</li>
+ * <li>Long for Unsigned32, Gauge32, Counter32 and TimeTicks;</li>
+ * <li>byte[] for OCTET STRING and BITS, of fixed length if the size constraint only allows one length;</li>
+ * <li>int[] for OBJECT IDENTIFIER;</li>
+ * <li>InetAddress for IpAddress.</li>
+ * </ul>
+ * Encoding also accepts any Number for the integer types, a String (as ISO-8859-1) for the strings, and byte[4]
+ * for IpAddress.
+ */
+public final class SmiRowIndexCodec {
+
+    private static final int INTEGER = 0;
+    private static final int UNSIGNED = 1;
+    private static final int STRING = 2;
+    private static final int FIXED_LENGTH_STRING = 3;
+    private static final int IMPLIED_STRING = 4;
+    private static final int OID = 5;
+    private static final int IMPLIED_OID = 6;
+    private static final int IP_ADDRESS = 7;
+
+    private static final long MAX_UNSIGNED = 0xFFFFFFFFL;
+
+    private final SmiRow row;
+    private final List<SmiIndex> indexes;
+    private final int[] kinds;
+    private final int[] fixedLengths;
+
+    private SmiRowIndexCodec(SmiRow row, List<SmiIndex> indexes) {
+        this.row = row;
+        this.indexes = Collections.unmodifiableList(new ArrayList<SmiIndex>(indexes));
+        kinds = new int[indexes.size()];
+        fixedLengths = new int[indexes.size()];
+        for (int i = 0; i < kinds.length; i++) {
+            SmiIndex index = indexes.get(i);
+            if (index.isImplied() && i != kinds.length - 1) {
+                throw new IllegalStateException("Only the last index of " + row.getId() + " can be IMPLIED");
+            }
+            compile(i, index);
+        }
+    }
+
+    /**
+     * Compiles the codec for the row; augmenting rows use the indexes of the row they augment.
+     */
+    static SmiRowIndexCodec compile(SmiRow row) {
+        SmiRow indexRow = row;
+        for (int depth = 0; indexRow.getAugments() != null; depth++) {
+            if (depth > 16) {
+                throw new IllegalStateException("Too many AUGMENTS levels for row " + row.getId());
+            }
+            indexRow = indexRow.getAugments();
+        }
+        if (indexRow.getIndexes() == null) {
+            throw new IllegalStateException("Row " + row.getId() + " has no indexes");
+        }
+        return new SmiRowIndexCodec(row, indexRow.getIndexes());
+    }
+
+    private void compile(int i, SmiIndex index) {
+        SmiVariable column = index.getColumn();
+        if (column == null || column.getType() == null) {
+            throw new IllegalStateException("The index columns of row " + row.getId() + " have not been resolved");
+        }
+        SmiPrimitiveType primitiveType = column.getPrimitiveType();
+        if (primitiveType == null) {
+            throw new IllegalStateException("Index column " + column.getId() + " of row " + row.getId() + " has no primitive type");
+        }
+        switch (primitiveType) {
+            case ENUM:
+            case INTEGER:
+            case INTEGER_32:
+                kinds[i] = INTEGER;
+                break;
+            case UNSIGNED_32:
+            case GAUGE_32:
+            case COUNTER_32:
+            case TIME_TICKS:
+                kinds[i] = UNSIGNED;
+                break;
+            case OCTET_STRING:
+            case BITS:
+                int fixedLength = determineFixedLength(column);
+                if (index.isImplied()) {
+                    if (fixedLength >= 0) {
+                        throw new IllegalStateException("Index column " + column.getId() + " of row " + row.getId()
+                                + " has a fixed length, so it cannot be IMPLIED");
+                    }
+                    kinds[i] = IMPLIED_STRING;
+                } else if (fixedLength >= 0) {
+                    kinds[i] = FIXED_LENGTH_STRING;
+                    fixedLengths[i] = fixedLength;
+                } else {
+                    kinds[i] = STRING;
+                }
+                break;
+            case OBJECT_IDENTIFIER:
+                kinds[i] = index.isImplied() ? IMPLIED_OID : OID;
+                break;
+            case IP_ADDRESS:
+                kinds[i] = IP_ADDRESS;
+                break;
+            default:
+                throw new IllegalStateException("Index column " + column.getId() + " of row " + row.getId()
+                        + " has a type that cannot be used in an index: " + primitiveType);
+        }
+    }
+
+    private static int determineFixedLength(SmiVariable column) {
+        SmiType type = column.getSizeConstraints();
+        if (type != null && type.getSizeConstraints().size() == 1) {
+            SmiRange range = type.getSizeConstraints().get(0);
+            BigInteger min = range.getMinValue();
+            if (min != null && min.equals(range.getMaxValue()) && min.bitLength() < 16) {
+                return min.intValue();
+            }
+        }
+        return -1;
+    }
+
+    public SmiRow getRow() {
+        return row;
+    }
+
+    /**
+     * @return The indexes that are used, which are those of the augmented row for an augmenting row.
+     */
+    public List<SmiIndex> getIndexes() {
+        return indexes;
+    }
+
+    /**
+     * @return The index values, one for each index.
+     * @throws IllegalArgumentException If the sub-ids do not form a valid instance suffix.
+     */
+    public Object[] decode(int[] oid, int offset, int length) {
+        Object[] result = new Object[kinds.length];
+        int end = offset + length;
+        int pos = offset;
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case INTEGER:
+                    checkAvailable(i, pos, 1, end);
+                    result[i] = oid[pos++];
+                    break;
+                case UNSIGNED:
+                    checkAvailable(i, pos, 1, end);
+                    result[i] = oid[pos++] & MAX_UNSIGNED;
+                    break;
+                case STRING:
+                    checkAvailable(i, pos, 1, end);
+                    int stringLength = readLength(i, oid[pos++], pos, end);
+                    result[i] = readBytes(i, oid, pos, stringLength);
+                    pos += stringLength;
+                    break;
+                case FIXED_LENGTH_STRING:
+                    checkAvailable(i, pos, fixedLengths[i], end);
+                    result[i] = readBytes(i, oid, pos, fixedLengths[i]);
+                    pos += fixedLengths[i];
+                    break;
+                case IMPLIED_STRING:
+                    result[i] = readBytes(i, oid, pos, end - pos);
+                    pos = end;
+                    break;
+                case OID:
+                    checkAvailable(i, pos, 1, end);
+                    int oidLength = readLength(i, oid[pos++], pos, end);
+                    result[i] = Arrays.copyOfRange(oid, pos, pos + oidLength);
+                    pos += oidLength;
+                    break;
+                case IMPLIED_OID:
+                    result[i] = Arrays.copyOfRange(oid, pos, end);
+                    pos = end;
+                    break;
+                case IP_ADDRESS:
+                    checkAvailable(i, pos, 4, end);
+                    try {
+                        result[i] = InetAddress.getByAddress(readBytes(i, oid, pos, 4));
+                    } catch (UnknownHostException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+        if (pos != end) {
+            throw new IllegalArgumentException((end - pos) + " sub-ids are left after decoding the indexes of " + row.getId());
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the suffix of an instance oid that was matched on one of the columns of the row.
+     */
+    public Object[] decode(SmiOidMatch match) {
+        return decode(match.getSuffixArray(), match.getSuffixOffset(), match.getSuffixLength());
+    }
+
+    /**
+     * @return The instance suffix for the index values.
+     * @throws IllegalArgumentException If the values do not match the types of the indexes.
+     */
+    public int[] encode(Object... values) {
+        if (values.length != kinds.length) {
+            throw new IllegalArgumentException("Row " + row.getId() + " has " + kinds.length + " indexes, not " + values.length);
+        }
+        int length = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            length += getEncodedLength(i, values[i]);
+        }
+        int[] result = new int[length];
+        int pos = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            Object value = values[i];
+            switch (kinds[i]) {
+                case INTEGER:
+                case UNSIGNED:
+                    result[pos++] = (int) toLong(i, value);
+                    break;
+                case STRING:
+                case FIXED_LENGTH_STRING:
+                case IMPLIED_STRING:
+                    byte[] bytes = toBytes(i, value);
+                    if (kinds[i] == STRING) {
+                        result[pos++] = bytes.length;
+                    }
+                    for (byte b : bytes) {
+                        result[pos++] = b & 0xFF;
+                    }
+                    break;
+                case OID:
+                case IMPLIED_OID:
+                    int[] oid = (int[]) value;
+                    if (kinds[i] == OID) {
+                        result[pos++] = oid.length;
+                    }
+                    System.arraycopy(oid, 0, result, pos, oid.length);
+                    pos += oid.length;
+                    break;
+                case IP_ADDRESS:
+                    for (byte b : toIpAddressBytes(i, value)) {
+                        result[pos++] = b & 0xFF;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+        return result;
+    }
+
+    private int getEncodedLength(int i, Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("No value for index " + getIndexId(i));
+        }
+        switch (kinds[i]) {
+            case INTEGER:
+            case UNSIGNED:
+                return 1;
+            case STRING:
+                return 1 + toBytes(i, value).length;
+            case FIXED_LENGTH_STRING:
+                int length = toBytes(i, value).length;
+                if (length != fixedLengths[i]) {
+                    throw new IllegalArgumentException("Index " + getIndexId(i) + " must have length " + fixedLengths[i] + ", not " + length);
+                }
+                return length;
+            case IMPLIED_STRING:
+                return toBytes(i, value).length;
+            case OID:
+            case IMPLIED_OID:
+                if (!(value instanceof int[])) {
+                    throw wrongType(i, value);
+                }
+                return (kinds[i] == OID ? 1 : 0) + ((int[]) value).length;
+            case IP_ADDRESS:
+                return toIpAddressBytes(i, value).length;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private long toLong(int i, Object value) {
+        if (!(value instanceof Number)) {
+            throw wrongType(i, value);
+        }
+        long result = ((Number) value).longValue();
+        long min = kinds[i] == UNSIGNED ? 0 : Integer.MIN_VALUE;
+        long max = kinds[i] == UNSIGNED ? MAX_UNSIGNED : Integer.MAX_VALUE;
+        if (result < min || result > max) {
+            throw new IllegalArgumentException("Value " + result + " is out of range for index " + getIndexId(i));
+        }
+        return result;
+    }
+
+    private byte[] toBytes(int i, Object value) {
+        if (value instanceof byte[]) {
+            return (byte[]) value;
+        } else if (value instanceof String) {
+            return ((String) value).getBytes(StandardCharsets.ISO_8859_1);
+        }
+        throw wrongType(i, value);
+    }
+
+    private byte[] toIpAddressBytes(int i, Object value) {
+        byte[] result;
+        if (value instanceof InetAddress) {
+            result = ((InetAddress) value).getAddress();
+        } else if (value instanceof byte[]) {
+            result = (byte[]) value;
+        } else {
+            throw wrongType(i, value);
+        }
+        if (result.length != 4) {
+            throw new IllegalArgumentException("Index " + getIndexId(i) + " must be an IPv4 address");
+        }
+        return result;
+    }
+
+    private IllegalArgumentException wrongType(int i, Object value) {
+        return new IllegalArgumentException("Value of type " + value.getClass().getName() + " cannot be used for index " + getIndexId(i));
+    }
+
+    private String getIndexId(int i) {
+        return indexes.get(i).getColumn().getId();
+    }
+
+    private void checkAvailable(int i, int pos, int count, int end) {
+        if (end - pos < count) {
+            throw new IllegalArgumentException("Instance suffix is too short for index " + getIndexId(i) + " of " + row.getId());
+        }
+    }
+
+    private int readLength(int i, int length, int pos, int end) {
+        if (length < 0 || length > end - pos) {
+            throw new IllegalArgumentException("Invalid length " + length + " for index " + getIndexId(i) + " of " + row.getId());
+        }
+        return length;
+    }
+
+    private byte[] readBytes(int i, int[] oid, int pos, int length) {
+        byte[] result = new byte[length];
+        for (int j = 0; j < length; j++) {
+            int subId = oid[pos + j];
+            if (subId < 0 || subId > 255) {
+                throw new IllegalArgumentException("Sub-id " + subId + " is not an octet, for index " + getIndexId(i) + " of " + row.getId());
+            }
+            result[j] = (byte) subId;
+        }
+        return result;
+    }
+}
@@ -33,7 +33,7 @@ public abstract class SmiSymbol implements Serializable, Comparable {
 
     private IdToken idToken;
     private SmiModule module;
-    private Map<Object, Object> userData;
+    private transient Map<Object, Object> userData;
 
     public SmiSymbol(@Nullable IdToken idToken, SmiModule module) {
         Preconditions.checkNotNull(module);
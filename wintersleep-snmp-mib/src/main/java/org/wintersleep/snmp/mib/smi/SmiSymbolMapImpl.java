@@ -1,17 +1,17 @@
 package org.wintersleep.snmp.mib.smi;
 
-import org.wintersleep.snmp.util.multimap.GenMultiMap;
-import org.apache.commons.collections.map.MultiValueMap;
-
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
-import java.util.List;
+import java.io.Serializable;
+import java.util.AbstractCollection;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 /*
 * Copyright 2007 Davy Verstappen.
@@ -28,21 +28,45 @@ import java.util.Map;
 * See the License for the specific language governing permissions and
 * limitations under the License.
 */
+/**
+ * The symbols of one kind in the {@link SmiSymbolTable} of a mib: this is only a view, the symbols are not
+ * copied.
+ */
 @ParametersAreNonnullByDefault
-class SmiSymbolMapImpl<T extends SmiSymbol> extends GenMultiMap<String, T> implements SmiSymbolMap<T> {
+class SmiSymbolMapImpl<T extends SmiSymbol> implements SmiSymbolMap<T>, Serializable {
 
     private final Class<T> symbolClass;
     private final Map<String, SmiModule> moduleMap;
+    private final SmiSymbolTable table;
+    private final int kind;
 
-    public SmiSymbolMapImpl(Class<T> symbolClass, Map<String, SmiModule> moduleMap) {
-        super(MultiValueMap.decorate(new HashMap(), ArrayList.class));
+    public SmiSymbolMapImpl(Class<T> symbolClass, Map<String, SmiModule> moduleMap, SmiSymbolTable table, int kind) {
         this.symbolClass = symbolClass;
         this.moduleMap = moduleMap;
+        this.table = table;
+        this.kind = kind;
     }
 
     @Nullable
     public T find(String symbolId) throws IllegalArgumentException {
-        return getOne(symbolId);
+        int position = table.getPosition(symbolId);
+        if (position >= 0) {
+            return table.hasKind(position, kind) ? symbolClass.cast(table.get(position)) : null;
+        }
+        int[] positions = table.getDuplicatePositions(symbolId);
+        if (positions == null) {
+            return null;
+        }
+        T result = null;
+        for (int p : positions) {
+            if (table.hasKind(p, kind)) {
+                if (result != null) {
+                    throw new IllegalArgumentException("More than one element was found for key: " + symbolId);
+                }
+                result = symbolClass.cast(table.get(p));
+            }
+        }
+        return result;
     }
 
     @Nullable
@@ -63,25 +87,77 @@ class SmiSymbolMapImpl<T extends SmiSymbol> extends GenMultiMap<String, T> imple
                 return null; // when the lookup is through the global map, we also return null for an object that is of the wrong type.
             }
         } else {
-            return getOne(symbolId);
+            return find(symbolId);
         }
     }
 
     @Nonnull
     public List<T> findAll(String symbolId) {
-        return getAll(symbolId);
+        int position = table.getPosition(symbolId);
+        if (position >= 0) {
+            return table.hasKind(position, kind)
+                    ? Collections.singletonList(symbolClass.cast(table.get(position)))
+                    : Collections.<T>emptyList();
+        }
+        int[] positions = table.getDuplicatePositions(symbolId);
+        if (positions == null) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<T>(positions.length);
+        for (int p : positions) {
+            if (table.hasKind(p, kind)) {
+                result.add(symbolClass.cast(table.get(p)));
+            }
+        }
+        return Collections.unmodifiableList(result);
     }
 
+    /**
+     * @return A view of all the symbols, which is not copied.
+     */
     @Nonnull
-    @SuppressWarnings("unchecked")
     public Collection<T> getAll() {
-        return impl.values();
+        return new AbstractCollection<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return SmiSymbolMapImpl.this.iterator();
+            }
+
+            @Override
+            public int size() {
+                return SmiSymbolMapImpl.this.size();
+            }
+        };
     }
 
     @Nonnull
-    @SuppressWarnings("unchecked")
     public Iterator<T> iterator() {
-        return impl.values().iterator();
+        final int[] positions = table.getKindPositions(kind);
+        return new Iterator<T>() {
+            private int index;
+
+            public boolean hasNext() {
+                return index < positions.length;
+            }
+
+            public T next() {
+                if (index >= positions.length) {
+                    throw new NoSuchElementException();
+                }
+                return symbolClass.cast(table.get(positions[index++]));
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 
+    public int size() {
+        return table.count(kind);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
 }
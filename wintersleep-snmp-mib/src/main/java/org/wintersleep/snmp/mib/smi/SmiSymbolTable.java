@@ -0,0 +1,221 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * All the symbols of a mib, in the order of their modules, stored as columns: the symbols themselves, and a bitmask
+ * of the kinds of each symbol. The {@link SmiSymbolMap}s of the mib are views on this table that select one kind,
+ * so that each symbol is stored only once, however many maps it appears in.
+ * <p>
+ * The positions of the symbols of each kind are collected into an index array the first time they are needed.
+ */
+final class SmiSymbolTable implements Serializable {
+
+    static final int TYPE = 1;
+    static final int TEXTUAL_CONVENTION = 1 << 1;
+    static final int OID_VALUE = 1 << 2;
+    static final int OBJECT_TYPE = 1 << 3;
+    static final int VARIABLE = 1 << 4;
+    static final int SCALAR = 1 << 5;
+    static final int COLUMN = 1 << 6;
+    static final int TABLE = 1 << 7;
+    static final int ROW = 1 << 8;
+    static final int NOTIFICATION_TYPE = 1 << 9;
+    static final int TRAP_TYPE = 1 << 10;
+    static final int SYMBOL = 1 << 11;
+
+    static final int KIND_COUNT = 12;
+
+    private SmiSymbol[] symbols = new SmiSymbol[64];
+    private int[] kinds = new int[64];
+    private int size;
+    private final int[] kindCounts = new int[KIND_COUNT];
+    // the position of the symbol with an id, or an int[] with all the positions when the id is used more than once
+    private final Map<String, Object> positions = new HashMap<String, Object>();
+
+    private transient int[][] kindPositions;
+
+    /**
+     * @return The kinds of the symbol, without {@link #SCALAR} and {@link #COLUMN}: whether a variable is a column
+     * is only known after its oid has been resolved.
+     */
+    static int determineKinds(SmiSymbol symbol) {
+        int result = SYMBOL;
+        if (symbol instanceof SmiType) {
+            result |= TYPE;
+            if (symbol instanceof SmiTextualConvention) {
+                result |= TEXTUAL_CONVENTION;
+            }
+        }
+        if (symbol instanceof SmiOidValue) {
+            result |= OID_VALUE;
+        }
+        if (symbol instanceof SmiObjectType) {
+            result |= OBJECT_TYPE;
+            if (symbol instanceof SmiVariable) {
+                result |= VARIABLE;
+            } else if (symbol instanceof SmiTable) {
+                result |= TABLE;
+            } else if (symbol instanceof SmiRow) {
+                result |= ROW;
+            }
+        }
+        if (symbol instanceof SmiNotificationType) {
+            result |= NOTIFICATION_TYPE;
+        }
+        if (symbol instanceof SmiTrapType) {
+            result |= TRAP_TYPE;
+        }
+        return result;
+    }
+
+    static int determineVariableKind(SmiVariable variable) {
+        return variable.isColumn() ? COLUMN : SCALAR;
+    }
+
+    /**
+     * Adding a symbol that is already in the table does nothing.
+     */
+    void add(SmiSymbol symbol) {
+        Object old = positions.get(symbol.getId());
+        if (indexOf(old, symbol) >= 0) {
+            return;
+        }
+        if (size == symbols.length) {
+            symbols = Arrays.copyOf(symbols, 2 * size);
+            kinds = Arrays.copyOf(kinds, 2 * size);
+        }
+        int position = size++;
+        symbols[position] = symbol;
+        setKinds(position, determineKinds(symbol));
+
+        if (old == null) {
+            positions.put(symbol.getId(), position);
+        } else if (old instanceof Integer) {
+            positions.put(symbol.getId(), new int[]{(Integer) old, position});
+        } else {
+            int[] oldPositions = (int[]) old;
+            int[] newPositions = Arrays.copyOf(oldPositions, oldPositions.length + 1);
+            newPositions[oldPositions.length] = position;
+            positions.put(symbol.getId(), newPositions);
+        }
+    }
+
+    private int indexOf(Object positions, SmiSymbol symbol) {
+        if (positions instanceof Integer) {
+            return symbols[(Integer) positions] == symbol ? (Integer) positions : -1;
+        } else if (positions != null) {
+            for (int position : (int[]) positions) {
+                if (symbols[position] == symbol) {
+                    return position;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The kinds that were stored for the symbol, or 0 if it is not in the table.
+     */
+    int getKinds(SmiSymbol symbol) {
+        int position = indexOf(positions.get(symbol.getId()), symbol);
+        return position >= 0 ? kinds[position] : 0;
+    }
+
+    /**
+     * Adds {@link #SCALAR} or {@link #COLUMN} to all the variables, once their oids have been resolved.
+     */
+    void addVariableKinds() {
+        for (int position = 0; position < size; position++) {
+            if ((kinds[position] & VARIABLE) != 0) {
+                setKinds(position, (kinds[position] & ~(SCALAR | COLUMN)) | determineVariableKind((SmiVariable) symbols[position]));
+            }
+        }
+    }
+
+    private void setKinds(int position, int newKinds) {
+        int oldKinds = kinds[position];
+        for (int kind = 0; kind < KIND_COUNT; kind++) {
+            kindCounts[kind] += ((newKinds >>> kind) & 1) - ((oldKinds >>> kind) & 1);
+        }
+        kinds[position] = newKinds;
+        kindPositions = null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    SmiSymbol get(int position) {
+        return symbols[position];
+    }
+
+    /**
+     * @return The number of symbols of the kind, which must be a single bit.
+     */
+    int count(int kind) {
+        return kindCounts[Integer.numberOfTrailingZeros(kind)];
+    }
+
+    /**
+     * @return The positions of all the symbols of the kind, in order. The caller must not change the array.
+     */
+    synchronized int[] getKindPositions(int kind) {
+        int[][] allPositions = kindPositions;
+        if (allPositions == null) {
+            allPositions = new int[KIND_COUNT][];
+            kindPositions = allPositions;
+        }
+        int index = Integer.numberOfTrailingZeros(kind);
+        int[] result = allPositions[index];
+        if (result == null) {
+            result = new int[kindCounts[index]];
+            for (int position = 0, i = 0; position < size; position++) {
+                if ((kinds[position] & kind) != 0) {
+                    result[i++] = position;
+                }
+            }
+            allPositions[index] = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return The position of the only symbol with the id, or -1 if there is none.
+     * @see #getDuplicatePositions(String)
+     */
+    int getPosition(String id) {
+        Object value = positions.get(id);
+        return value instanceof Integer ? (Integer) value : -1;
+    }
+
+    /**
+     * @return The positions of all the symbols with the id, or null if the id is used by at most one symbol.
+     */
+    int[] getDuplicatePositions(String id) {
+        Object value = positions.get(id);
+        return value instanceof int[] ? (int[]) value : null;
+    }
+
+    boolean hasKind(int position, int kind) {
+        return (kinds[position] & kind) != 0;
+    }
+}
@@ -19,12 +19,33 @@ import org.wintersleep.snmp.util.token.IdToken;
 
 public class SmiTable extends SmiObjectType {
 
+    private SmiRow row;
+    private boolean structureDetermined;
+
     public SmiTable(IdToken idToken, SmiModule module) {
         super(idToken, module);
     }
 
     public SmiRow getRow() {
+        if (structureDetermined) {
+            return row;
+        }
+        return findRow();
+    }
+
+    private SmiRow findRow() {
         return getNode().getChildren().iterator().next().getSingleValue(SmiRow.class, getModule());
     }
 
+    void determineStructure() {
+        if (getNode() == null || getNode().getChildCount() == 0) {
+            row = null;
+        } else if (getNode().getChildren().iterator().next().hasMultipleValues(SmiRow.class, getModule())) {
+            return;
+        } else {
+            row = findRow();
+        }
+        structureDetermined = true;
+    }
+
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The position of the text of a quoted string in a mib file. Used instead of the text itself for the DESCRIPTION
+ * and REFERENCE clauses when {@link SmiOptions#isLazyText()} is set: the text is only read from the mib file
+ * when it is asked for, and it is not kept in memory afterwards.
+ */
+public class SmiTextRef implements Serializable {
+
+    private final String source;
+    private final int offset;
+    private final int length;
+
+    /**
+     * @param source The location of the mib file, as used in the Locations of the tokens.
+     * @param offset The offset of the first character of the text in the mib file (after the opening quote).
+     * @param length The length of the text (without the quotes).
+     */
+    public SmiTextRef(String source, int offset, int length) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Reads the text from the mib file, which must not have changed since it was parsed.
+     */
+    public String getText() {
+        try (InputStream is = openStream()) {
+            ByteStreams.skipFully(is, offset);
+            byte[] bytes = new byte[length];
+            ByteStreams.readFully(is, bytes);
+            // the lexer turns every byte into one char, just like ISO-8859-1
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read text from " + this + ": " + e.getMessage(), e);
+        }
+    }
+
+    private InputStream openStream() throws IOException {
+        URLConnection connection = new URL(source).openConnection();
+        // otherwise the archives of jar urls are kept open
+        connection.setUseCaches(false);
+        InputStream result = connection.getInputStream();
+        if (source.endsWith(".gz")) {
+            // the offset is in the decompressed contents
+            result = new GZIPInputStream(result);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return source + "@" + offset + "+" + length;
+    }
+}
@@ -25,7 +25,9 @@ public class SmiTextualConvention extends SmiType {
     private String displayHint;
     private StatusV2 statusV2;
     private String description;
+    private SmiTextRef descriptionRef;
     private String reference;
+    private SmiTextRef referenceRef;
 
     public SmiTextualConvention(IdToken idToken, SmiModule module, String displayHint, StatusV2 statusV2, String description, String reference) {
         super(idToken, module);
@@ -57,6 +59,7 @@ public class SmiTextualConvention extends SmiType {
     }
 
     public void setDisplayHint(String displayHint) {
+        checkNotFrozen();
         this.displayHint = displayHint;
     }
 
@@ -69,7 +72,15 @@ public class SmiTextualConvention extends SmiType {
     }
 
     public String getDescription() {
-        return description;
+        return descriptionRef != null ? descriptionRef.getText() : description;
+    }
+
+    public SmiTextRef getDescriptionRef() {
+        return descriptionRef;
+    }
+
+    public void setDescriptionRef(SmiTextRef descriptionRef) {
+        this.descriptionRef = descriptionRef;
     }
 
     public void setDescription(String description) {
@@ -77,7 +88,15 @@ public class SmiTextualConvention extends SmiType {
     }
 
     public String getReference() {
-        return reference;
+        return referenceRef != null ? referenceRef.getText() : reference;
+    }
+
+    public SmiTextRef getReferenceRef() {
+        return referenceRef;
+    }
+
+    public void setReferenceRef(SmiTextRef referenceRef) {
+        this.referenceRef = referenceRef;
     }
 
     public void setReference(String reference) {
@@ -31,7 +31,9 @@ public class SmiTrapType extends SmiValue implements Notification {
     private List<IdToken> variableTokens;
     private List<SmiVariable> variables = new ArrayList<SmiVariable>();
     private String description;
+    private SmiTextRef descriptionRef;
     private String reference;
+    private SmiTextRef referenceRef;
     private IntegerToken specificTypeToken;
     
     public SmiTrapType(IdToken idToken, SmiModule module,
@@ -86,7 +88,15 @@ public class SmiTrapType extends SmiValue implements Notification {
     }
 
     public String getDescription() {
-        return description;
+        return descriptionRef != null ? descriptionRef.getText() : description;
+    }
+
+    public SmiTextRef getDescriptionRef() {
+        return descriptionRef;
+    }
+
+    public void setDescriptionRef(SmiTextRef descriptionRef) {
+        this.descriptionRef = descriptionRef;
     }
 
     /**
@@ -111,7 +121,15 @@ public class SmiTrapType extends SmiValue implements Notification {
     }
 
     public String getReference() {
-        return reference;
+        return referenceRef != null ? referenceRef.getText() : reference;
+    }
+
+    public SmiTextRef getReferenceRef() {
+        return referenceRef;
+    }
+
+    public void setReferenceRef(SmiTextRef referenceRef) {
+        this.referenceRef = referenceRef;
     }
 
     public IntegerToken getSpecificTypeToken() {
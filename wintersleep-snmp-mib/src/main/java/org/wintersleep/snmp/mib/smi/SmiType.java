@@ -43,6 +43,7 @@ public class SmiType extends SmiSymbol {
     private List<SmiField> fields;
     private IdToken elementTypeToken;
     private SmiType elementType;
+    private SmiEffectiveType effectiveType;
 
     public SmiType(IdToken idToken, SmiModule module, SmiPrimitiveType primitiveType) {
         super(idToken, module);
@@ -103,10 +104,48 @@ public class SmiType extends SmiSymbol {
     }
 
     public void setBaseType(SmiType baseType) {
+        checkNotFrozen();
         this.baseType = baseType;
     }
 
+    /**
+     * The effective types of the derived types copy what they inherit from this one. So once the effective types
+     * have been determined (by the XRefPhase), the properties that are inherited cannot be changed anymore:
+     * their setters then throw an IllegalStateException.
+     */
+    public SmiEffectiveType getEffectiveType() {
+        SmiEffectiveType result = effectiveType;
+        if (result == null) {
+            result = new SmiEffectiveType(this, baseType != null ? baseType.getEffectiveType() : null);
+        }
+        return result;
+    }
+
+    void checkNotFrozen() {
+        if (effectiveType != null) {
+            throw new IllegalStateException("The effective type of " + getId() + " has already been determined");
+        }
+    }
+
+    void determineEffectiveType() {
+        if (effectiveType == null) {
+            SmiEffectiveType base = null;
+            if (baseType != null) {
+                baseType.determineEffectiveType();
+                base = baseType.effectiveType;
+            }
+            effectiveType = new SmiEffectiveType(this, base);
+        }
+    }
+
     public SmiPrimitiveType getPrimitiveType() {
+        if (effectiveType != null) {
+            return effectiveType.getPrimitiveType();
+        }
+        return determinePrimitiveType(baseType != null ? baseType.getPrimitiveType() : null);
+    }
+
+    SmiPrimitiveType determinePrimitiveType(SmiPrimitiveType basePrimitiveType) {
         if (enumValues != null) {
             return SmiPrimitiveType.ENUM;
         }
@@ -121,13 +160,16 @@ public class SmiType extends SmiSymbol {
         }
 
         if (primitiveType == null && baseType != null) {
-            return baseType.getPrimitiveType();
+            return basePrimitiveType;
         }
 
         return primitiveType;
     }
 
     public SmiVarBindField getVarBindField() {
+        if (effectiveType != null) {
+            return effectiveType.getVarBindField();
+        }
         return getPrimitiveType().getVarBindField();
     }
 
@@ -136,6 +178,7 @@ public class SmiType extends SmiSymbol {
     }
 
     public void setEnumValues(List<SmiNamedNumber> enumValues) {
+        checkNotFrozen();
         if (enumValues != null) {
             setType(enumValues);
         }
@@ -153,6 +196,7 @@ public class SmiType extends SmiSymbol {
     }
 
     public void setBitFields(List<SmiNamedNumber> bitFields) {
+        checkNotFrozen();
         if (bitFields != null) {
             setType(bitFields);
         }
@@ -220,6 +264,7 @@ public class SmiType extends SmiSymbol {
     }
 
     public void setRangeConstraints(List<SmiRange> rangeConstraints) {
+        checkNotFrozen();
         this.rangeConstraints = rangeConstraints;
     }
 
@@ -228,6 +273,7 @@ public class SmiType extends SmiSymbol {
     }
 
     public void setSizeConstraints(List<SmiRange> sizeConstraints) {
+        checkNotFrozen();
         this.sizeConstraints = sizeConstraints;
     }
 
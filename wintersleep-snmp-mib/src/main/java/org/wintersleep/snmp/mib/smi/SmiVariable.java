@@ -31,6 +31,9 @@ public class SmiVariable extends SmiObjectType {
     private final QuotedStringToken unitsToken;
     private final SmiDefaultValue defaultValue;
 
+    private SmiRow row;
+    private boolean structureDetermined;
+
     public SmiVariable(IdToken idToken, SmiModule module, SmiType type, QuotedStringToken unitsToken, SmiDefaultValue defaultValue) {
         super(idToken, module);
         setType(type);
@@ -66,6 +69,13 @@ public class SmiVariable extends SmiObjectType {
     }
 
     public SmiRow getRow() {
+        if (structureDetermined) {
+            return row;
+        }
+        return findRow();
+    }
+
+    private SmiRow findRow() {
         if (getNode() != null && getNode().getParent() != null) {
             SmiOidValue oidValue = getNode().getParent().getSingleValue(SmiOidValue.class, getModule());
             if (oidValue instanceof SmiRow) {
@@ -75,6 +85,15 @@ public class SmiVariable extends SmiObjectType {
         return null;
     }
 
+    void determineStructure() {
+        if (getNode() != null && getNode().getParent() != null
+                && getNode().getParent().hasMultipleValues(SmiOidValue.class, getModule())) {
+            return;
+        }
+        row = findRow();
+        structureDetermined = true;
+    }
+
     public SmiTable getTable() {
         SmiRow row = getRow();
         if (row != null) {
@@ -99,15 +118,19 @@ public class SmiVariable extends SmiObjectType {
         return unitsToken;
     }
 
+    /**
+     * @return The effective type of the type of this variable, or null if the variable has no type.
+     */
+    public SmiEffectiveType getEffectiveType() {
+        return type != null ? type.getEffectiveType() : null;
+    }
+
     public SmiTextualConvention getTextualConvention() {
-        SmiType type = this.type;
-        while (type != null) {
-            if (type instanceof SmiTextualConvention) {
-                return (SmiTextualConvention) type;
-            }
-            type = type.getBaseType();
-        }
-        return null;
+        return type != null ? type.getEffectiveType().getTextualConvention() : null;
+    }
+
+    public String getDisplayHint() {
+        return type != null ? type.getEffectiveType().getDisplayHint() : null;
     }
 
     public SmiPrimitiveType getPrimitiveType() {
@@ -115,80 +138,35 @@ public class SmiVariable extends SmiObjectType {
     }
 
     public SmiType getEnumType() {
-        SmiType type = this.type;
-        while (type != null) {
-            if (type.getEnumValues() != null) {
-                return type;
-            }
-            type = type.getBaseType();
-        }
-        return null;
+        return type != null ? type.getEffectiveType().getEnumType() : null;
     }
 
     public List<SmiNamedNumber> getEnumValues() {
-        SmiType type = getEnumType();
-        if (type != null) {
-            return type.getEnumValues();
-        }
-        return null;
+        return type != null ? type.getEffectiveType().getEnumValues() : null;
     }
 
     public SmiType getBitFieldType() {
-        SmiType type = this.type;
-        while (type != null) {
-            if (type.getBitFields() != null) {
-                return type;
-            }
-            type = type.getBaseType();
-        }
-        return null;
-
+        return type != null ? type.getEffectiveType().getBitFieldType() : null;
     }
 
     public List<SmiNamedNumber> getBitFields() {
-        SmiType type = getBitFieldType();
-        if (type != null) {
-            return type.getBitFields();
-        }
-        return null;
+        return type != null ? type.getEffectiveType().getBitFields() : null;
     }
 
     public SmiType getRangeConstraintType() {
-        SmiType type = this.type;
-        while (type != null) {
-            if (type.getRangeConstraints() != null) {
-                return type;
-            }
-            type = type.getBaseType();
-        }
-        return null;
+        return type != null ? type.getEffectiveType().getRangeConstraintType() : null;
     }
 
     public List<SmiRange> getRangeConstraints() {
-        SmiType type = getRangeConstraintType();
-        if (type != null) {
-            return type.getRangeConstraints();
-        }
-        return null;
+        return type != null ? type.getEffectiveType().getRangeConstraints() : null;
     }
 
     public SmiType getSizeConstraintType() {
-        SmiType type = this.type;
-        while (type != null) {
-            if (type.getSizeConstraints() != null) {
-                return type;
-            }
-            type = type.getBaseType();
-        }
-        return null;
+        return type != null ? type.getEffectiveType().getSizeConstraintType() : null;
     }
 
     public SmiType getSizeConstraints() {
-        SmiType type = getSizeConstraintType();
-        if (type != null) {
-            return type;
-        }
-        return null;
+        return getSizeConstraintType();
     }
 
     public SmiDefaultValue getDefaultValue() {
@@ -20,6 +20,7 @@ import org.wintersleep.snmp.util.url.DefaultURLListBuilder;
 
 import java.io.File;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 public class IfMibTest extends AbstractMibTestCase {
@@ -64,6 +65,24 @@ public class IfMibTest extends AbstractMibTestCase {
 
         assertNotNull(ifMib.findRow("ifEntry"));
         assertNull(ifMib.findVariable("ifEntry"));
+
+        for (SmiModule module : getMib().getModules()) {
+            assertEquals(module.getScalars().size(), count(module.getScalars()));
+            assertEquals(module.getColumns().size(), count(module.getColumns()));
+            assertEquals(module.getTextualConventions().size(), count(module.getTextualConventions()));
+            for (SmiVariable scalar : module.getScalars()) {
+                assertSame(scalar, module.findScalar(scalar.getId()));
+                assertNull(module.findColumn(scalar.getId()));
+            }
+        }
+    }
+
+    private static int count(Iterable<?> symbols) {
+        int result = 0;
+        for (Object ignored : symbols) {
+            result++;
+        }
+        return result;
     }
 
     public void testInterfaceIndex() {
@@ -94,6 +113,39 @@ public class IfMibTest extends AbstractMibTestCase {
         assertNull(interfaceIndex.getSizeConstraints());
     }
 
+    public void testEffectiveType() {
+        SmiVariable ifIndex = getMib().getVariables().find("IF-MIB", "ifIndex");
+        SmiEffectiveType effectiveType = ifIndex.getEffectiveType();
+        assertSame(effectiveType, ifIndex.getType().getEffectiveType());
+        assertSame(getMib().getTextualConventions().find("InterfaceIndex"), effectiveType.getTextualConvention());
+        assertEquals(SmiPrimitiveType.INTEGER_32, effectiveType.getPrimitiveType());
+        assertEquals(SmiVarBindField.INTEGER_VALUE, effectiveType.getVarBindField());
+        assertEquals("d", effectiveType.getDisplayHint());
+        assertSame(effectiveType.getTextualConvention(), effectiveType.getRangeConstraintType());
+        assertNull(effectiveType.getEnumValues());
+        assertNull(effectiveType.getSizeConstraints());
+        try {
+            effectiveType.getTextualConvention().setRangeConstraints(null);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        SmiVariable ifAdminStatus = getMib().getVariables().find("IF-MIB", "ifAdminStatus");
+        assertEquals(SmiPrimitiveType.ENUM, ifAdminStatus.getEffectiveType().getPrimitiveType());
+        assertSame(ifAdminStatus.getType(), ifAdminStatus.getEnumType());
+        assertEquals(3, ifAdminStatus.getEnumValues().size());
+        assertNull(ifAdminStatus.getTextualConvention());
+        assertNull(ifAdminStatus.getDisplayHint());
+
+        SmiVariable ifDescr = getMib().getVariables().find("IF-MIB", "ifDescr");
+        assertEquals("DisplayString", ifDescr.getTextualConvention().getId());
+        assertEquals("255a", ifDescr.getDisplayHint());
+        assertEquals(SmiPrimitiveType.OCTET_STRING, ifDescr.getPrimitiveType());
+        assertNotNull(ifDescr.getEffectiveType().getSizeConstraints());
+        assertSame(ifDescr.getSizeConstraintType().getSizeConstraints(), ifDescr.getEffectiveType().getSizeConstraints());
+    }
+
     public void testIfTable() throws URISyntaxException {
 
         SmiMib mib = getMib();
@@ -151,6 +203,17 @@ public class IfMibTest extends AbstractMibTestCase {
         assertEquals(22, columns.size());
         assertTrue(columns.contains(ifIndex));
         assertTrue(columns.contains(ifAdminStatus));
+        assertSame(columns, ifTable.getRow().getColumns());
+        assertSame(ifTable, ifTable.getRow().getTable());
+        assertSame(ifTable.getRow(), ifIndex.getRow());
+        assertSame(ifTable, ifIndex.getTable());
+        assertTrue(ifIndex.isColumn());
+        try {
+            columns.clear();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
 
         SmiModule ifMib = mib.findModule("IF-MIB");
         assertNotNull(ifMib);
@@ -172,6 +235,152 @@ public class IfMibTest extends AbstractMibTestCase {
         assertEquals(adminStatusOfInterface0x1101.length, result.getOid().length + 1);
     }
 
+    public void testFindLongestMatch() {
+        SmiMib mib = getMib();
+        SmiVariable ifInOctets = mib.getVariables().find("ifInOctets");
+
+        int[] buffer = {99, 1, 3, 6, 1, 2, 1, 2, 2, 1, 10, 7, 99};
+        SmiOidMatch match = new SmiOidMatch();
+        assertTrue(mib.findLongestMatch(buffer, 1, 11, match));
+        assertSame(ifInOctets, match.getValue());
+        assertSame(ifInOctets.getNode(), match.getNode());
+        assertEquals(10, match.getDepth());
+        assertSame(buffer, match.getSuffixArray());
+        assertEquals(11, match.getSuffixOffset());
+        assertEquals(1, match.getSuffixLength());
+        assertEquals(7, match.getSuffix(0));
+        assertEquals("ifInOctets.7", match.toString());
+
+        assertTrue(mib.findLongestMatch(buffer, 1, 10, match));
+        assertSame(ifInOctets, match.getValue());
+        assertEquals(0, match.getSuffixLength());
+
+        assertFalse(mib.findLongestMatch(buffer, 0, 5, match));
+        assertFalse(match.isMatched());
+        assertEquals(5, match.getSuffixLength());
+    }
+
+    public void testFindLongestMatchInText() {
+        SmiMib mib = getMib();
+        SmiVariable ifInOctets = mib.getVariables().find("ifInOctets");
+
+        SmiOidMatch match = new SmiOidMatch();
+        String text = "x 1.3.6.1.2.1.2.2.1.10.7.4294967295 x";
+        assertTrue(mib.findLongestMatch(text, 2, text.length() - 2, match));
+        assertSame(ifInOctets, match.getValue());
+        assertEquals(10, match.getDepth());
+        assertEquals(2, match.getSuffixLength());
+        assertEquals(7, match.getSuffix(0));
+        assertEquals(-1, match.getSuffix(1));
+        assertEquals("7.4294967295", text.substring(match.getSourceSuffixStart(), match.getSourceEnd()));
+        assertEquals("ifInOctets.7.4294967295", match.toString());
+
+        assertTrue(mib.findLongestMatch(".1.3.6.1.2.1.2.2.1.10", match));
+        assertSame(ifInOctets, match.getValue());
+        assertEquals(0, match.getSuffixLength());
+        assertEquals(21, match.getSourceSuffixStart());
+
+        assertFalse(mib.findLongestMatch("5.1", match));
+        assertEquals(2, match.getSuffixLength());
+        assertEquals(0, match.getSourceSuffixStart());
+        assertFalse(mib.findLongestMatch("", match));
+        assertEquals(0, match.getSuffixLength());
+
+        String[] invalidOids = {"1..3", "1.3.", "..1", "1.x", "1.-3", "1.4294967296", " 1"};
+        for (String invalidOid : invalidOids) {
+            try {
+                mib.findLongestMatch(invalidOid, match);
+                fail(invalidOid);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    public void testFindLongestMatchOfLongOidInText() {
+        SmiMib mib = getMib();
+        SmiVariable ifInOctets = mib.getVariables().find("ifInOctets");
+        String suffix = "1.2.3.4.5.6.7.8.9.10.11.12.13.14.15.16.17.18.19.20";
+
+        SmiOidMatch match = new SmiOidMatch();
+        for (int i = 0; i < 2; i++) {
+            assertTrue(mib.findLongestMatch("1.3.6.1.2.1.2.2.1.10." + suffix, match));
+            assertSame(ifInOctets, match.getValue());
+            assertEquals(20, match.getSuffixLength());
+            for (int j = 0; j < 20; j++) {
+                assertEquals(j + 1, match.getSuffix(j));
+            }
+            assertEquals("ifInOctets." + suffix, match.toString());
+            mib.freeze();
+        }
+    }
+
+    public void testFindLongestMatchInBer() {
+        SmiMib mib = getMib();
+        SmiVariable ifInOctets = mib.getVariables().find("ifInOctets");
+
+        // 1.3.6.1.2.1.2.2.1.10.7.300, after a tag and length
+        byte[] bytes = {BERConstants.OID, 12, 0x2B, 6, 1, 2, 1, 2, 2, 1, 10, 7, (byte) 0x82, 0x2C};
+        SmiOidMatch match = new SmiOidMatch();
+        assertTrue(mib.findLongestMatch(bytes, 2, 12, match));
+        assertSame(ifInOctets, match.getValue());
+        assertEquals(10, match.getDepth());
+        assertEquals("ifInOctets.7.300", match.toString());
+        assertEquals(11, match.getSourceSuffixStart());
+        assertEquals(14, match.getSourceEnd());
+
+        ByteBuffer heapBuffer = ByteBuffer.wrap(bytes, 1, 13).slice();
+        heapBuffer.position(1);
+        assertTrue(mib.findLongestMatch(heapBuffer, match));
+        assertEquals("ifInOctets.7.300", match.toString());
+        assertEquals(10, match.getSourceSuffixStart());
+        assertEquals(1, heapBuffer.position());
+
+        ByteBuffer directBuffer = ByteBuffer.allocateDirect(bytes.length);
+        directBuffer.put(bytes).position(2);
+        assertTrue(mib.findLongestMatch(directBuffer, match));
+        assertEquals("ifInOctets.7.300", match.toString());
+        assertEquals(11, match.getSourceSuffixStart());
+
+        assertFalse(mib.findLongestMatch(new byte[]{0x7F}, 0, 1, match));
+        assertEquals(2, match.getSuffixLength());
+        assertEquals(2, match.getSuffix(0));
+        assertEquals(47, match.getSuffix(1));
+
+        byte[][] invalidOids = {{0x2B, (byte) 0x81}, {0x2B, (byte) 0x90, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0}};
+        for (byte[] invalidOid : invalidOids) {
+            try {
+                mib.findLongestMatch(invalidOid, 0, invalidOid.length, match);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    public void testFindLongestMatchOfLongOidInBer() {
+        SmiMib mib = getMib();
+        SmiVariable ifInOctets = mib.getVariables().find("ifInOctets");
+
+        // 1.3.6.1.2.1.2.2.1.10.1.2.3.4.5.6.7.8.9.10.11.12
+        byte[] bytes = {0x2B, 6, 1, 2, 1, 2, 2, 1, 10, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12};
+        String expected = "ifInOctets.1.2.3.4.5.6.7.8.9.10.11.12";
+        SmiOidMatch match = new SmiOidMatch();
+        for (int i = 0; i < 2; i++) {
+            assertTrue(mib.findLongestMatch(bytes, 0, bytes.length, match));
+            assertSame(ifInOctets, match.getValue());
+            assertEquals(12, match.getSuffixLength());
+            assertEquals(expected, match.toString());
+
+            ByteBuffer directBuffer = ByteBuffer.allocateDirect(bytes.length);
+            directBuffer.put(bytes).flip();
+            assertTrue(mib.findLongestMatch(directBuffer, match));
+            assertEquals(12, match.getSuffixLength());
+            assertEquals(expected, match.toString());
+            mib.freeze();
+        }
+    }
+
     public void testFindByOid() {
         SmiMib mib = getMib();
 
@@ -187,6 +396,20 @@ public class IfMibTest extends AbstractMibTestCase {
         assertNotNull(result);
         assertEquals(1, result.getValues().size());
         assertEquals("org", result.getValues().get(0).getId());
+
+        Oid oid = ifAdminStatus.toOid();
+        assertEquals(Oid.parse("1.3.6.1.2.1.2.2.1.7"), oid);
+        assertSame(oid, ifAdminStatus.getNode().toOid());
+        assertSame(ifAdminStatus.getNode(), mib.findByOid(oid));
+        assertSame(ifAdminStatus.getNode().getParent(), mib.findByOid(oid.getParent()));
+        assertNull(mib.findByOid(oid.append(1)));
+        assertSame(Oid.EMPTY, mib.getRootNode().toOid());
+        assertSame(mib.getRootNode(), mib.findByOid(Oid.EMPTY));
+
+        SmiOidMatch match = new SmiOidMatch();
+        assertTrue(mib.findLongestMatch(oid.append(3).subOid(0, 11), match));
+        assertSame(ifAdminStatus, match.getValue());
+        assertEquals(3, match.getSuffix(0));
     }
 
     public void testNotificationTypes() {
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib;
+
+import org.wintersleep.snmp.mib.smi.SmiRow;
+import org.wintersleep.snmp.mib.smi.SmiVersion;
+import org.wintersleep.snmp.util.problem.annotations.ProblemSeverity;
+import org.wintersleep.snmp.util.url.DefaultURLListBuilder;
+
+public class UnresolvedOidMibTest extends AbstractMibTestCase {
+
+    public UnresolvedOidMibTest() {
+        super(SmiVersion.V2);
+    }
+
+    @Override
+    protected void addUrls(DefaultURLListBuilder builder) {
+        super.addUrls(builder);
+        builder.addResource("UNRESOLVED-OID-MIB.txt");
+    }
+
+    public void testErrorsAreReported() {
+        assertNotNull(getMib());
+        assertFalse(getParser().getProblemEventHandler().isOk());
+        assertTrue(getParser().getProblemEventHandler().getSeverityCount(ProblemSeverity.ERROR) > 0);
+
+        SmiRow testEntry = getMib().getRows().find("UNRESOLVED-OID-MIB", "testEntry");
+        assertNotNull(testEntry);
+        assertNull(testEntry.getNode());
+        assertNull(testEntry.getTable());
+        assertTrue(testEntry.getColumns().isEmpty());
+    }
+
+    @Override
+    protected boolean mustParseSuccessfully() {
+        return false;
+    }
+}
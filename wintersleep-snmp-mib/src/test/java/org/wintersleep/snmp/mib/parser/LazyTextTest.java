@@ -0,0 +1,98 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.parser;
+
+import junit.framework.TestCase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wintersleep.snmp.mib.AbstractMibTestCase;
+import org.wintersleep.snmp.mib.smi.SmiMib;
+import org.wintersleep.snmp.mib.smi.SmiModule;
+import org.wintersleep.snmp.mib.smi.SmiNotificationType;
+import org.wintersleep.snmp.mib.smi.SmiObjectType;
+import org.wintersleep.snmp.mib.smi.SmiSymbol;
+import org.wintersleep.snmp.mib.smi.SmiTextualConvention;
+import org.wintersleep.snmp.mib.smi.SmiTrapType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LazyTextTest extends TestCase {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyTextTest.class);
+
+    private static SmiMib parse(boolean lazyText) throws Exception {
+        SmiDefaultParser parser = new LibSmiParserFactory(AbstractMibTestCase.LIBSMI_DIR).create();
+        parser.getOptions().setLazyText(lazyText);
+        SmiMib mib = parser.parse();
+        assertTrue(parser.getProblemEventHandler().isOk());
+        return mib;
+    }
+
+    public void testLazyText() throws Exception {
+        List<String> eagerTexts = collectTexts(parse(false), false);
+        SmiMib lazyMib = parse(true);
+        List<String> lazyTexts = collectTexts(lazyMib, true);
+        assertEquals(eagerTexts, lazyTexts);
+
+        long length = 0;
+        for (String text : eagerTexts) {
+            length += text.length();
+        }
+        LOGGER.info(eagerTexts.size() + " texts with " + length + " characters are not kept in memory");
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        new SmiMibSnapshot("lazy", lazyMib).write(os);
+        SmiMib copy = SmiMibSnapshot.read(new ByteArrayInputStream(os.toByteArray())).getMib();
+        assertEquals(lazyTexts, collectTexts(copy, true));
+    }
+
+    private static List<String> collectTexts(SmiMib mib, boolean lazyText) {
+        List<String> result = new ArrayList<String>();
+        for (SmiModule module : mib.getModules()) {
+            for (SmiSymbol symbol : module.getSymbols()) {
+                if (symbol instanceof SmiObjectType) {
+                    SmiObjectType objectType = (SmiObjectType) symbol;
+                    assertEquals(lazyText, objectType.getDescriptionRef() != null);
+                    add(result, symbol, objectType.getDescription());
+                } else if (symbol instanceof SmiNotificationType) {
+                    SmiNotificationType notificationType = (SmiNotificationType) symbol;
+                    assertEquals(lazyText, notificationType.getDescriptionRef() != null);
+                    add(result, symbol, notificationType.getDescription());
+                    add(result, symbol, notificationType.getReference());
+                } else if (symbol instanceof SmiTrapType) {
+                    SmiTrapType trapType = (SmiTrapType) symbol;
+                    add(result, symbol, trapType.getDescription());
+                    add(result, symbol, trapType.getReference());
+                } else if (symbol instanceof SmiTextualConvention) {
+                    SmiTextualConvention textualConvention = (SmiTextualConvention) symbol;
+                    assertEquals(lazyText, textualConvention.getDescriptionRef() != null);
+                    add(result, symbol, textualConvention.getDescription());
+                    add(result, symbol, textualConvention.getReference());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void add(List<String> result, SmiSymbol symbol, String text) {
+        if (text != null) {
+            result.add(symbol.getModule().getId() + "." + symbol.getId() + ": " + text);
+        }
+    }
+}
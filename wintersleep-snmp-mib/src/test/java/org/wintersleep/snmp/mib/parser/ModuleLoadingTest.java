@@ -0,0 +1,121 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.parser;
+
+import junit.framework.TestCase;
+import org.wintersleep.snmp.mib.AbstractMibTestCase;
+import org.wintersleep.snmp.mib.smi.SmiImports;
+import org.wintersleep.snmp.mib.smi.SmiMib;
+import org.wintersleep.snmp.mib.smi.SmiModule;
+import org.wintersleep.snmp.mib.smi.SmiVariable;
+import org.wintersleep.snmp.util.problem.annotations.ProblemSeverity;
+import org.wintersleep.snmp.util.token.IdToken;
+import org.wintersleep.snmp.util.url.DirectoryModuleURLResolver;
+import org.wintersleep.snmp.util.url.ModuleIndex;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ModuleLoadingTest extends TestCase {
+
+    private static DirectoryModuleURLResolver createResolver() {
+        return new DirectoryModuleURLResolver(AbstractMibTestCase.LIBSMI_IETF_DIR, AbstractMibTestCase.LIBSMI_IANA_DIR);
+    }
+
+    public void testRootModule() {
+        SmiDefaultParser parser = new SmiDefaultParser();
+        parser.setModuleResolver(createResolver());
+        parser.setRootModules(Collections.singletonList("IF-MIB"));
+
+        SmiMib mib = parser.parse();
+        assertTrue(parser.getProblemEventHandler().isOk());
+        assertNotNull(mib.findModule("IF-MIB"));
+        assertNotNull(mib.findModule("SNMPv2-SMI"));
+        assertNotNull(mib.findModule("SNMPv2-TC"));
+        assertNotNull(mib.findModule("IANAifType-MIB"));
+        assertNull(mib.findModule("BRIDGE-MIB"));
+        assertTrue(mib.getModules().size() < 15);
+
+        SmiVariable ifIndex = mib.getVariables().find("IF-MIB", "ifIndex");
+        assertEquals("1.3.6.1.2.1.2.2.1.1", ifIndex.getOidStr());
+
+        // identifiers are interned across the modules that are parsed together
+        String displayString = mib.getTypes().find("SNMPv2-TC", "DisplayString").getId();
+        for (SmiImports imports : mib.findModule("IF-MIB").getImports()) {
+            for (IdToken symbolToken : imports.getSymbolTokens()) {
+                if (symbolToken.getId().equals(displayString)) {
+                    assertSame(displayString, symbolToken.getId());
+                }
+            }
+        }
+    }
+
+    public void testInputUrlImports() throws Exception {
+        SmiDefaultParser parser = new SmiDefaultParser();
+        parser.getFileParserPhase().setInputUrls(Collections.singletonList(
+                new File(AbstractMibTestCase.LIBSMI_IETF_DIR, "BRIDGE-MIB").toURI().toURL()));
+        parser.setModuleResolver(createResolver());
+        parser.setParallelism(2);
+
+        SmiMib mib = parser.parse();
+        assertTrue(parser.getProblemEventHandler().isOk());
+        assertNotNull(mib.findModule("BRIDGE-MIB"));
+        assertNotNull(mib.findModule("IF-MIB"));
+        assertNotNull(mib.getVariables().find("BRIDGE-MIB", "dot1dBaseBridgeAddress"));
+    }
+
+    public void testModuleNotFound() {
+        SmiDefaultParser parser = new SmiDefaultParser();
+        parser.setModuleResolver(createResolver());
+        parser.setRootModules(Arrays.asList("IF-MIB", "NO-SUCH-MIB"));
+
+        SmiMib mib = parser.parse();
+        assertEquals(1, parser.getProblemEventHandler().getSeverityCount(ProblemSeverity.ERROR));
+        assertNotNull(mib.findModule("IF-MIB"));
+    }
+
+    public void testModuleIndex() throws Exception {
+        File libsmiDir = AbstractMibTestCase.LIBSMI_DIR;
+        ModuleIndex index = new ModuleIndex(new File(libsmiDir, "iana"), new File(libsmiDir, "ietf"),
+                new File(libsmiDir, "site"), new File(libsmiDir, "tubs"));
+        SmiMib mib = new LibSmiParserFactory(libsmiDir).create().parse();
+        for (SmiModule module : mib.getModules()) {
+            if (module == mib.getInternalModule()) {
+                continue;
+            }
+            ModuleIndex.Entry entry = index.find(module.getId());
+            assertNotNull(module.getId(), entry);
+            List<String> imports = new ArrayList<String>();
+            for (SmiImports smiImports : module.getImports()) {
+                if (!imports.contains(smiImports.getModuleToken().getId())) {
+                    imports.add(smiImports.getModuleToken().getId());
+                }
+            }
+            assertEquals(module.getId(), imports, entry.getImports());
+            // the first directory wins, while the parser factory skips some duplicates in the first directories
+            assertTrue(module.getIdToken().getLocation().getSource().endsWith("/" + entry.getFile().getName()));
+        }
+
+        SmiDefaultParser parser = new SmiDefaultParser();
+        parser.setModuleResolver(index);
+        parser.setRootModules(Collections.singletonList("IF-MIB"));
+        assertNotNull(parser.parse().findModule("IANAifType-MIB"));
+        assertTrue(parser.getProblemEventHandler().isOk());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.parser;
+
+import junit.framework.TestCase;
+import org.wintersleep.snmp.mib.AbstractMibTestCase;
+import org.wintersleep.snmp.mib.smi.SmiMib;
+import org.wintersleep.snmp.mib.smi.SmiModule;
+import org.wintersleep.snmp.mib.smi.SmiOidNode;
+import org.wintersleep.snmp.mib.smi.SmiOidValue;
+import org.wintersleep.snmp.mib.smi.SmiRow;
+import org.wintersleep.snmp.mib.smi.SmiSymbol;
+import org.wintersleep.snmp.util.problem.AbstractProblemEventHandler;
+import org.wintersleep.snmp.util.problem.ProblemEvent;
+import org.wintersleep.snmp.util.url.ClassPathURLListFactory;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ParallelParserTest extends TestCase {
+
+    public void testParallelism() throws Exception {
+        List<String> sequential = dump(1, null);
+        List<String> parallel = dump(4, null);
+        assertEquals(sequential, parallel);
+    }
+
+    public void testExecutor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<String> sequential = dump(1, null);
+            List<String> parallel = dump(1, executor);
+            assertEquals(sequential, parallel);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testOidTreeAndChildRows() throws Exception {
+        List<String> sequential = dumpOidTree(1);
+        List<String> parallel = dumpOidTree(4);
+        assertEquals(sequential, parallel);
+    }
+
+    private List<String> dumpOidTree(int parallelism) throws Exception {
+        SmiDefaultParser parser = new LibSmiParserFactory(AbstractMibTestCase.LIBSMI_DIR).create();
+        parser.setParallelism(parallelism);
+        SmiMib mib = parser.parse();
+
+        List<String> result = new ArrayList<String>();
+        dumpOidTree(mib.getRootNode(), result);
+        for (SmiRow row : mib.getRows()) {
+            if (!row.getChildRows().isEmpty()) {
+                StringBuilder line = new StringBuilder(row.getModule().getId() + "." + row.getId() + ":");
+                for (SmiRow childRow : row.getChildRows()) {
+                    line.append(" ").append(childRow.getModule().getId()).append(".").append(childRow.getId());
+                }
+                result.add(line.toString());
+            }
+        }
+        return result;
+    }
+
+    private static void dumpOidTree(SmiOidNode node, List<String> result) {
+        StringBuilder line = new StringBuilder(String.valueOf(node.getOidStr()));
+        for (SmiOidValue value : node.getValues()) {
+            line.append(" ").append(value.getModule().getId()).append(".").append(value.getId());
+        }
+        result.add(line.toString());
+        for (SmiOidNode child : node.getChildren()) {
+            dumpOidTree(child, result);
+        }
+    }
+
+    private List<String> dump(int parallelism, ExecutorService executor) throws Exception {
+        RecordingProblemEventHandler eventHandler = new RecordingProblemEventHandler();
+        SmiDefaultParser parser = new SmiDefaultParser(eventHandler);
+        List<URL> urls = new LibSmiParserFactory(AbstractMibTestCase.LIBSMI_DIR).create().getFileParserPhase().getInputUrls();
+        ClassPathURLListFactory errorUrls = new ClassPathURLListFactory();
+        errorUrls.add("SYNTAX-ERROR-MIB.txt");
+        urls.addAll(urls.size() / 2, errorUrls.create());
+        parser.getFileParserPhase().setInputUrls(urls);
+        parser.setParallelism(parallelism);
+        parser.setExecutor(executor);
+
+        SmiMib mib = parser.parse();
+
+        List<String> result = new ArrayList<String>();
+        for (SmiModule module : mib.getModules()) {
+            result.add(module.getId());
+            assertSame(mib, module.getMib());
+            for (SmiSymbol symbol : module.getSymbols()) {
+                String line = "  " + symbol.getId() + " " + symbol.getClass().getSimpleName();
+                if (symbol instanceof SmiOidValue && ((SmiOidValue) symbol).getNode() != null) {
+                    line += " " + ((SmiOidValue) symbol).getOidStr();
+                }
+                result.add(line);
+            }
+        }
+        assertTrue(eventHandler.events.size() > 0);
+        result.addAll(eventHandler.events);
+        return result;
+    }
+
+    private static class RecordingProblemEventHandler extends AbstractProblemEventHandler {
+
+        private final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void handle(ProblemEvent event) {
+            super.handle(event);
+            events.add(event.toString());
+        }
+    }
+}
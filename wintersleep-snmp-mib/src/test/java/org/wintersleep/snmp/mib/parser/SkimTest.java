@@ -0,0 +1,88 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.parser;
+
+import com.google.common.base.Stopwatch;
+import junit.framework.TestCase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wintersleep.snmp.mib.AbstractMibTestCase;
+import org.wintersleep.snmp.mib.smi.SmiImports;
+import org.wintersleep.snmp.mib.smi.SmiMib;
+import org.wintersleep.snmp.mib.smi.SmiModule;
+import org.wintersleep.snmp.mib.smi.SmiModuleIdentity;
+import org.wintersleep.snmp.mib.smi.SmiModuleRevision;
+import org.wintersleep.snmp.util.token.IdToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class SkimTest extends TestCase {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SkimTest.class);
+
+    public void testSkim() throws Exception {
+        SmiDefaultParser fullParser = new LibSmiParserFactory(AbstractMibTestCase.LIBSMI_DIR).create();
+        fullParser.getFileParserPhase().setByteArrayLexer(true);
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        SmiMib fullMib = fullParser.parse();
+        long fullTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+        SmiDefaultParser skimParser = new LibSmiParserFactory(AbstractMibTestCase.LIBSMI_DIR).create();
+        skimParser.getFileParserPhase().setByteArrayLexer(true);
+        skimParser.getFileParserPhase().setSkim(true);
+        stopwatch = Stopwatch.createStarted();
+        SmiMib skimMib = skimParser.parse();
+        long skimTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        LOGGER.info("Full parse: " + fullTime + " ms, skim: " + skimTime + " ms");
+        assertTrue(skimParser.getProblemEventHandler().isOk());
+
+        assertEquals(fullMib.getModules().size(), skimMib.getModules().size());
+        for (SmiModule fullModule : fullMib.getModules()) {
+            SmiModule skimModule = skimMib.findModule(fullModule.getId());
+            assertNotNull(fullModule.getId(), skimModule);
+            assertEquals(fullModule.getId(), describe(fullModule.getImports()), describe(skimModule.getImports()));
+            assertEquals(fullModule.getId(), describe(fullModule.getModuleIdentity()), describe(skimModule.getModuleIdentity()));
+            assertTrue(skimModule.getSymbols().size() <= 1);
+        }
+        SmiModule ifMib = skimMib.findModule("IF-MIB");
+        assertEquals("200006140000Z", ifMib.getModuleIdentity().getLastUpdated());
+        assertNull(skimMib.getVariables().find("IF-MIB", "ifIndex"));
+    }
+
+    private static List<String> describe(List<SmiImports> importsList) {
+        List<String> result = new ArrayList<String>();
+        for (SmiImports imports : importsList) {
+            for (IdToken symbolToken : imports.getSymbolTokens()) {
+                result.add(imports.getModuleToken().getId() + "." + symbolToken.getId());
+            }
+        }
+        return result;
+    }
+
+    private static List<String> describe(SmiModuleIdentity identity) {
+        List<String> result = new ArrayList<String>();
+        if (identity != null) {
+            result.add(identity.getLastUpdated());
+            result.add(identity.getOrganization());
+            for (SmiModuleRevision revision : identity.getRevisions()) {
+                result.add(revision.getRevision());
+            }
+        }
+        return result;
+    }
+}
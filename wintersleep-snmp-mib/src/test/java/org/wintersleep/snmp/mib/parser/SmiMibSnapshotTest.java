@@ -0,0 +1,234 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.parser;
+
+import com.google.common.base.Stopwatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wintersleep.snmp.mib.AbstractMibTestCase;
+import org.wintersleep.snmp.mib.phase.file.SmiSource;
+import org.wintersleep.snmp.mib.smi.SmiConstants;
+import org.wintersleep.snmp.mib.smi.SmiMib;
+import org.wintersleep.snmp.mib.smi.SmiModule;
+import org.wintersleep.snmp.mib.smi.SmiOidNode;
+import org.wintersleep.snmp.mib.smi.SmiPrimitiveType;
+import org.wintersleep.snmp.mib.smi.SmiRow;
+import org.wintersleep.snmp.mib.smi.SmiType;
+import org.wintersleep.snmp.mib.smi.SmiVariable;
+import org.wintersleep.snmp.util.url.DirectoryModuleURLResolver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class SmiMibSnapshotTest extends AbstractMibTestCase {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SmiMibSnapshotTest.class);
+
+    @Override
+    protected SmiDefaultParser createParser() throws Exception {
+        return new LibSmiParserFactory(LIBSMI_DIR).create();
+    }
+
+    public void testWriteRead() throws Exception {
+        SmiMib mib = getMib();
+        List<URL> urls = new LibSmiParserFactory(LIBSMI_DIR).create().getFileParserPhase().getInputUrls();
+        String fingerprint = SmiMibSnapshot.computeFingerprint(urls);
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        new SmiMibSnapshot(fingerprint, mib).write(os);
+        LOGGER.info("Writing snapshot of " + os.size() + " bytes: " + stopwatch.elapsed(TimeUnit.MILLISECONDS) + " ms");
+
+        assertEquals(fingerprint, SmiMibSnapshot.readFingerprint(new ByteArrayInputStream(os.toByteArray())));
+
+        stopwatch = Stopwatch.createStarted();
+        SmiMibSnapshot snapshot = SmiMibSnapshot.read(new ByteArrayInputStream(os.toByteArray()));
+        LOGGER.info("Reading snapshot: " + stopwatch.elapsed(TimeUnit.MILLISECONDS) + " ms");
+        assertEquals(fingerprint, snapshot.getFingerprint());
+
+        SmiMib copy = snapshot.getMib();
+        assertNotSame(mib, copy);
+        assertEquals(mib.getModules().size(), copy.getModules().size());
+        assertEquals(mib.getTypes().size(), copy.getTypes().size());
+        assertEquals(mib.getVariables().size(), copy.getVariables().size());
+        assertEquals(mib.getColumns().size(), copy.getColumns().size());
+        assertEquals(mib.getOidValues().size(), copy.getOidValues().size());
+        assertEquals(mib.getRootNode().getTotalChildCount(), copy.getRootNode().getTotalChildCount());
+        for (SmiModule module : copy.getModules()) {
+            assertSame(copy, module.getMib());
+        }
+
+        SmiVariable ifIndex = copy.getVariables().find("IF-MIB", "ifIndex");
+        assertEquals("1.3.6.1.2.1.2.2.1.1", ifIndex.getOidStr());
+        SmiOidNode node = copy.findByOid(1, 3, 6, 1, 2, 1, 2, 2, 1, 1);
+        assertSame(ifIndex, node.getSingleValue(SmiVariable.class, ifIndex.getModule()));
+        SmiRow ifEntry = ifIndex.getRow();
+        assertSame(copy.getRows().find("IF-MIB", "ifEntry"), ifEntry);
+        assertSame(ifIndex, ifEntry.getIndexes().get(0).getColumn());
+        assertSame(SmiPrimitiveType.INTEGER_32, ifIndex.getPrimitiveType());
+
+        SmiType integer32 = copy.getTypes().find("Integer32");
+        assertSame(SmiConstants.INTEGER_TYPE, integer32.getBaseType());
+        assertSame(mib.getCodeNamingStrategy().getClass(), copy.getCodeNamingStrategy().getClass());
+    }
+
+    public void testSnapshotParser() throws Exception {
+        File snapshotFile = File.createTempFile("libsmi", ".snapshot");
+        try {
+            assertTrue(snapshotFile.delete());
+            SmiDefaultParser firstParser = createParser();
+            String fingerprint = computeFingerprint(firstParser);
+            SmiMib parsed = new SmiSnapshotParser(firstParser, snapshotFile).parse();
+            assertEquals(fingerprint, readFingerprint(snapshotFile));
+            byte[] snapshotBytes = Files.readAllBytes(snapshotFile.toPath());
+
+            SmiMib loaded = new SmiSnapshotParser(createParser(), snapshotFile).parse();
+            assertNotSame(parsed, loaded);
+            assertEquals(parsed.getVariables().size(), loaded.getVariables().size());
+            assertTrue(Arrays.equals(snapshotBytes, Files.readAllBytes(snapshotFile.toPath())));
+
+            SmiDefaultParser otherParser = createParser();
+            List<URL> urls = otherParser.getFileParserPhase().getInputUrls();
+            urls.remove(urls.size() - 1);
+            SmiMib reparsed = new SmiSnapshotParser(otherParser, snapshotFile).parse();
+            assertTrue(reparsed.getModules().size() < parsed.getModules().size());
+            assertEquals(computeFingerprint(otherParser), readFingerprint(snapshotFile));
+        } finally {
+            snapshotFile.delete();
+        }
+    }
+
+    public void testSnapshotParserWithInMemorySources() throws Exception {
+        File snapshotFile = File.createTempFile("memory", ".snapshot");
+        try {
+            assertTrue(snapshotFile.delete());
+            SmiMib first = new SmiSnapshotParser(createInMemoryParser("a"), snapshotFile).parse();
+            assertNotNull(first.getOidValues().find("TEST-MIB", "a"));
+            assertTrue(snapshotFile.isFile());
+
+            SmiMib loaded = new SmiSnapshotParser(createInMemoryParser("a"), snapshotFile).parse();
+            assertNotSame(first, loaded);
+            assertNotNull(loaded.getOidValues().find("TEST-MIB", "a"));
+
+            // the same location, but other contents
+            SmiMib changed = new SmiSnapshotParser(createInMemoryParser("b"), snapshotFile).parse();
+            assertNull(changed.getOidValues().find("TEST-MIB", "a"));
+            assertNotNull(changed.getOidValues().find("TEST-MIB", "b"));
+        } finally {
+            snapshotFile.delete();
+        }
+    }
+
+    public void testSnapshotParserWithOtherOptions() throws Exception {
+        File snapshotFile = File.createTempFile("options", ".snapshot");
+        try {
+            assertTrue(snapshotFile.delete());
+            SmiDefaultParser firstParser = createInMemoryParser("a");
+            new SmiSnapshotParser(firstParser, snapshotFile).parse();
+            String fingerprint = readFingerprint(snapshotFile);
+            assertEquals(computeFingerprint(firstParser), fingerprint);
+
+            SmiDefaultParser lazyParser = createInMemoryParser("a");
+            lazyParser.getOptions().setLazyText(true);
+            new SmiSnapshotParser(lazyParser, snapshotFile).parse();
+            assertFalse(fingerprint.equals(readFingerprint(snapshotFile)));
+            assertEquals(computeFingerprint(lazyParser), readFingerprint(snapshotFile));
+        } finally {
+            snapshotFile.delete();
+        }
+    }
+
+    public void testSnapshotParserWithResolvedModules() throws Exception {
+        File dir = Files.createTempDirectory("modules").toFile();
+        File snapshotFile = new File(dir, "mib.snapshot");
+        try {
+            Files.copy(new File(LIBSMI_IETF_DIR, "SNMPv2-SMI").toPath(), new File(dir, "SNMPv2-SMI").toPath());
+            writeTestMib(dir, "a");
+            SmiDefaultParser firstParser = createResolvingParser(dir);
+            SmiMib first = new SmiSnapshotParser(firstParser, snapshotFile).parse();
+            assertNotNull(first.getOidValues().find("TEST-MIB", "a"));
+            assertEquals(Arrays.asList("TEST-MIB", "SNMPv2-SMI"), firstParser.getFileParserPhase().getResolvedModuleIds());
+            try (InputStream is = new FileInputStream(snapshotFile)) {
+                assertEquals(Arrays.asList("TEST-MIB", "SNMPv2-SMI"), SmiMibSnapshot.readHeader(is).getResolvedModuleIds());
+            }
+
+            SmiDefaultParser loadingParser = createResolvingParser(dir);
+            SmiMib loaded = new SmiSnapshotParser(loadingParser, snapshotFile).parse();
+            assertNotNull(loaded.getOidValues().find("TEST-MIB", "a"));
+            assertTrue(loadingParser.getFileParserPhase().getResolvedModuleIds().isEmpty());
+
+            // the module that was found through the resolver has changed
+            writeTestMib(dir, "b");
+            SmiDefaultParser changedParser = createResolvingParser(dir);
+            SmiMib changed = new SmiSnapshotParser(changedParser, snapshotFile).parse();
+            assertNull(changed.getOidValues().find("TEST-MIB", "a"));
+            assertNotNull(changed.getOidValues().find("TEST-MIB", "b"));
+            assertFalse(changedParser.getFileParserPhase().getResolvedModuleIds().isEmpty());
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    private static SmiDefaultParser createResolvingParser(File dir) {
+        SmiDefaultParser result = new SmiDefaultParser();
+        result.setModuleResolver(new DirectoryModuleURLResolver(dir));
+        result.setRootModules(Collections.singletonList("TEST-MIB"));
+        return result;
+    }
+
+    private static void writeTestMib(File dir, String id) throws Exception {
+        Files.write(new File(dir, "TEST-MIB").toPath(), createTestMib(id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String createTestMib(String id) {
+        return "TEST-MIB DEFINITIONS ::= BEGIN\n"
+                + "IMPORTS enterprises FROM SNMPv2-SMI;\n"
+                + id + " OBJECT IDENTIFIER ::= { enterprises 99999 }\n"
+                + "END\n";
+    }
+
+    private static SmiDefaultParser createInMemoryParser(String id) throws Exception {
+        SmiDefaultParser result = new SmiDefaultParser();
+        byte[] smi = Files.readAllBytes(new File(LIBSMI_IETF_DIR, "SNMPv2-SMI").toPath());
+        result.getFileParserPhase().setInputSources(Arrays.asList(
+                SmiSource.forBytes("memory:SNMPv2-SMI", smi), SmiSource.forText("memory:TEST-MIB", createTestMib(id))));
+        return result;
+    }
+
+    private static String computeFingerprint(SmiDefaultParser parser) throws Exception {
+        return SmiMibSnapshot.computeFingerprint(parser.getFileParserPhase().createSources(), null,
+                Collections.<String, URL>emptyMap(), parser.getOptions());
+    }
+
+    private static String readFingerprint(File snapshotFile) throws Exception {
+        try (InputStream is = new FileInputStream(snapshotFile)) {
+            return SmiMibSnapshot.readFingerprint(is);
+        }
+    }
+}
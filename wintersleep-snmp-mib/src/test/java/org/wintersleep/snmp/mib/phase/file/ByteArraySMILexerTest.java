@@ -0,0 +1,212 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.phase.file;
+
+import antlr.Token;
+import antlr.TokenStream;
+import antlr.TokenStreamException;
+import junit.framework.TestCase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wintersleep.snmp.mib.AbstractMibTestCase;
+import org.wintersleep.snmp.mib.parser.LibSmiParserFactory;
+import org.wintersleep.snmp.mib.parser.SmiDefaultParser;
+import org.wintersleep.snmp.mib.phase.file.antlr.SMILexer;
+import org.wintersleep.snmp.mib.phase.file.antlr.SMITokenTypes;
+import org.wintersleep.snmp.mib.smi.SmiMib;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ByteArraySMILexerTest extends TestCase {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ByteArraySMILexerTest.class);
+
+    public void testSameTokensOnCorpus() throws Exception {
+        List<byte[]> files = readCorpus();
+        int tokenCount = 0;
+        for (byte[] file : files) {
+            tokenCount += assertSameTokens(file);
+        }
+        LOGGER.info("Compared " + tokenCount + " tokens in " + files.size() + " files");
+        assertTrue(tokenCount > 500000);
+    }
+
+    public void testSameTokensOnEdgeCases() throws Exception {
+        String[] inputs = {
+                "",
+                "A-MIB DEFINITIONS ::= BEGIN\r\n\tx\tOBJECT IDENTIFIER ::= { iso 3 }\rEND\n",
+                "\t \t\tfoo  \f\t bar-Baz_9 OBJECT-TYPE OBJECT-TYPEx INTEGER32 Integer32",
+                "'0101'B '01'b 'AbCd'H 'ff'h '' 'B 'H ''H ''B '0'",
+                "'01'Bx '1'H '01'X '",
+                "'012'b",
+                "... .. . : :: ::= | , ! ^ < { [ ( + } ] ) ; - -- --\n",
+                "-- a comment\r\n-- another -- still comment\nx",
+                "--",
+                "-- unterminated",
+                "\"a\r\nb\rc\nd\te\"  \"\"",
+                "\"unterminated",
+                "\"ends with newline\n",
+                "\"binary\u0001\"",
+                "#include \"foo\"\nx #include\r\ny",
+                "#inclx",
+                "#include - x\n",
+                "SMI OBJECT-TYPE x SMI\n\tTRAP-TYPE y",
+                "SMIx",
+                "SMI X",
+                "SMI OBJECT-TYPX",
+                "12345 007 1.3.6 -1",
+                "x @ y",
+                "x é y",
+                "x \u0000 y",
+                "Aé",
+        };
+        for (String input : inputs) {
+            assertSameTokens(input.getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    public void testKeywordsShareText() throws Exception {
+        byte[] input = "OBJECT-TYPE OBJECT-TYPE".getBytes(StandardCharsets.ISO_8859_1);
+        ByteArraySMILexer lexer = new ByteArraySMILexer(input);
+        Token first = lexer.nextToken();
+        Token second = lexer.nextToken();
+        assertEquals("OBJECT-TYPE", first.getText());
+        assertSame(first.getText(), second.getText());
+        assertEquals(SMITokenTypes.EOF, lexer.nextToken().getType());
+    }
+
+    public void testOffsetsAreRelativeToRange() throws Exception {
+        byte[] input = "xx foo bar".getBytes(StandardCharsets.ISO_8859_1);
+        ByteArraySMILexer lexer = new ByteArraySMILexer(input, 3, 7);
+        OffsetToken foo = (OffsetToken) lexer.nextToken();
+        assertEquals("foo", foo.getText());
+        assertEquals(0, foo.getOffset());
+        assertEquals(1, foo.getColumn());
+        OffsetToken bar = (OffsetToken) lexer.nextToken();
+        assertEquals(4, bar.getOffset());
+    }
+
+    public void testParseWithByteArrayLexer() throws Exception {
+        SmiMib antlrMib = new LibSmiParserFactory(AbstractMibTestCase.LIBSMI_DIR).create().parse();
+        SmiDefaultParser parser = new LibSmiParserFactory(AbstractMibTestCase.LIBSMI_DIR).create();
+        parser.getFileParserPhase().setByteArrayLexer(true);
+        SmiMib mib = parser.parse();
+        assertEquals(antlrMib.getModules().size(), mib.getModules().size());
+        assertEquals(antlrMib.getVariables().size(), mib.getVariables().size());
+        assertEquals(antlrMib.getRootNode().getTotalChildCount(), mib.getRootNode().getTotalChildCount());
+        assertEquals(antlrMib.getVariables().find("IF-MIB", "ifIndex").getIdToken().getLocation(),
+                mib.getVariables().find("IF-MIB", "ifIndex").getIdToken().getLocation());
+    }
+
+    public void testThroughput() throws Exception {
+        List<byte[]> files = readCorpus();
+        long size = 0;
+        for (byte[] file : files) {
+            size += file.length;
+        }
+        // the first round is only there to warm up the jit
+        for (int round = 0; round < 2; round++) {
+            long antlrTime = System.nanoTime();
+            int antlrTokens = 0;
+            for (byte[] file : files) {
+                antlrTokens += count(new SMILexer(new ByteArrayInputStream(file)));
+            }
+            antlrTime = System.nanoTime() - antlrTime;
+
+            long byteArrayTime = System.nanoTime();
+            int byteArrayTokens = 0;
+            for (byte[] file : files) {
+                byteArrayTokens += count(new ByteArraySMILexer(file));
+            }
+            byteArrayTime = System.nanoTime() - byteArrayTime;
+
+            assertEquals(antlrTokens, byteArrayTokens);
+            LOGGER.info(String.format("Lexing %d bytes: SMILexer %.1f MB/s, ByteArraySMILexer %.1f MB/s",
+                    size, size * 1000.0 / antlrTime, size * 1000.0 / byteArrayTime));
+        }
+    }
+
+    private static List<byte[]> readCorpus() throws Exception {
+        List<byte[]> result = new ArrayList<byte[]>();
+        addFiles(AbstractMibTestCase.LIBSMI_DIR.getParentFile(), result);
+        assertFalse(result.isEmpty());
+        return result;
+    }
+
+    private static void addFiles(File dir, List<byte[]> result) throws Exception {
+        File[] files = dir.listFiles();
+        assertNotNull(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                addFiles(file, result);
+            } else {
+                result.add(Files.readAllBytes(file.toPath()));
+            }
+        }
+    }
+
+    private static int count(TokenStream lexer) throws TokenStreamException {
+        int result = 0;
+        try {
+            while (lexer.nextToken().getType() != SMITokenTypes.EOF) {
+                result++;
+            }
+        } catch (TokenStreamException e) {
+            result++;
+        }
+        return result;
+    }
+
+    private static int assertSameTokens(byte[] input) {
+        SMILexer expectedLexer = new SMILexer(new ByteArrayInputStream(input));
+        ByteArraySMILexer actualLexer = new ByteArraySMILexer(input);
+        String context = new String(input, StandardCharsets.ISO_8859_1);
+        for (int count = 0; ; count++) {
+            Token expected;
+            try {
+                expected = expectedLexer.nextToken();
+            } catch (TokenStreamException e) {
+                try {
+                    Token actual = actualLexer.nextToken();
+                    fail(context + ": expected " + e + ", but got " + actual);
+                } catch (TokenStreamException actualException) {
+                    assertEquals(context, e.getClass(), actualException.getClass());
+                    assertEquals(context, e.toString(), actualException.toString());
+                }
+                return count;
+            }
+            Token actual;
+            try {
+                actual = actualLexer.nextToken();
+            } catch (TokenStreamException e) {
+                throw new AssertionError(context + ": expected " + expected + ", but got " + e, e);
+            }
+            assertEquals(context, expected.getType(), actual.getType());
+            assertEquals(context, expected.getText(), actual.getText());
+            assertEquals(context, expected.getLine(), actual.getLine());
+            assertEquals(context, expected.getColumn(), actual.getColumn());
+            assertEquals(context, ((OffsetToken) expected).getOffset(), ((OffsetToken) actual).getOffset());
+            if (expected.getType() == SMITokenTypes.EOF) {
+                return count;
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.phase.file;
+
+import junit.framework.TestCase;
+import org.wintersleep.snmp.mib.AbstractMibTestCase;
+import org.wintersleep.snmp.mib.parser.SmiDefaultParser;
+import org.wintersleep.snmp.mib.smi.SmiMib;
+import org.wintersleep.snmp.mib.smi.SmiVariable;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SmiSourceTest extends TestCase {
+
+    private static final String[] IF_MIB_MODULES = {
+            "ietf/SNMPv2-SMI", "ietf/SNMPv2-TC", "ietf/SNMPv2-CONF", "ietf/SNMPv2-MIB", "iana/IANAifType-MIB", "ietf/IF-MIB"
+    };
+
+    public void testInMemorySources() throws Exception {
+        testInMemorySources(false);
+        testInMemorySources(true);
+    }
+
+    private void testInMemorySources(boolean byteArrayLexer) throws Exception {
+        List<SmiSource> sources = new ArrayList<SmiSource>();
+        for (int i = 0; i < IF_MIB_MODULES.length; i++) {
+            byte[] bytes = Files.readAllBytes(new File(AbstractMibTestCase.LIBSMI_DIR, IF_MIB_MODULES[i]).toPath());
+            String location = "memory:" + IF_MIB_MODULES[i];
+            if (i % 2 == 0) {
+                sources.add(SmiSource.forBytes(location, bytes));
+            } else {
+                sources.add(SmiSource.forText(location, new StringBuilder(new String(bytes, StandardCharsets.ISO_8859_1))));
+            }
+        }
+        SmiDefaultParser parser = new SmiDefaultParser();
+        parser.getOptions().setLazyText(true);
+        parser.getFileParserPhase().setByteArrayLexer(byteArrayLexer);
+        parser.getFileParserPhase().setInputSources(sources);
+        SmiMib mib = parser.parse();
+        assertTrue(parser.getProblemEventHandler().isOk());
+
+        SmiVariable ifIndex = mib.getVariables().find("IF-MIB", "ifIndex");
+        assertEquals("memory:ietf/IF-MIB", ifIndex.getLocation().getSource());
+        assertEquals("1.3.6.1.2.1.2.2.1.1", ifIndex.getOidStr());
+        // in-memory sources cannot be read again, so the texts must be kept
+        assertNull(ifIndex.getDescriptionRef());
+        assertTrue(ifIndex.getDescription().contains("A unique value"));
+    }
+
+    public void testUrlSource() throws Exception {
+        File file = new File(AbstractMibTestCase.LIBSMI_IETF_DIR, "IF-MIB");
+        URL url = file.toURI().toURL();
+        SmiSource source = SmiSource.forUrl(url);
+        assertEquals("file://" + url.getPath(), source.getLocation());
+        assertTrue(source.isRereadable());
+        assertTrue(Arrays.equals(Files.readAllBytes(file.toPath()), source.readBytes()));
+        assertFalse(SmiSource.forUrl(url, "IF-MIB").isRereadable());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.phase.file;
+
+import junit.framework.TestCase;
+import org.wintersleep.snmp.mib.AbstractMibTestCase;
+import org.wintersleep.snmp.mib.parser.SmiDefaultParser;
+import org.wintersleep.snmp.mib.smi.SmiMib;
+import org.wintersleep.snmp.mib.smi.SmiVariable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ZipSourceListFactoryTest extends TestCase {
+
+    private File tempFile;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (tempFile != null) {
+            tempFile.delete();
+        }
+    }
+
+    public void testArchive() throws Exception {
+        tempFile = File.createTempFile("mibs", ".zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(tempFile))) {
+            zos.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zos.write("Manifest-Version: 1.0\n".getBytes("US-ASCII"));
+            zos.putNextEntry(new ZipEntry("ietf/"));
+            zos.putNextEntry(new ZipEntry("ietf/.hidden"));
+            for (String path : Arrays.asList("ietf/SNMPv2-SMI", "ietf/SNMPv2-TC", "ietf/SNMPv2-CONF", "ietf/SNMPv2-MIB", "iana/IANAifType-MIB")) {
+                zos.putNextEntry(new ZipEntry(path));
+                zos.write(read(path));
+            }
+            zos.putNextEntry(new ZipEntry("ietf/IF-MIB.gz"));
+            zos.write(gzip(read("ietf/IF-MIB")));
+        }
+
+        SmiMib mib;
+        try (ZipSourceListFactory factory = new ZipSourceListFactory(tempFile)) {
+            List<SmiSource> sources = factory.create();
+            assertEquals(6, sources.size());
+            assertEquals("jar:" + tempFile.toURI() + "!/ietf/SNMPv2-SMI", sources.get(0).getLocation());
+
+            SmiDefaultParser parser = new SmiDefaultParser();
+            parser.getOptions().setLazyText(true);
+            parser.getFileParserPhase().setInputSources(sources);
+            parser.getFileParserPhase().setByteArrayLexer(true);
+            mib = parser.parse();
+            assertTrue(parser.getProblemEventHandler().isOk());
+        }
+
+        SmiVariable ifIndex = mib.getVariables().find("IF-MIB", "ifIndex");
+        assertEquals("jar:" + tempFile.toURI() + "!/ietf/IF-MIB.gz", ifIndex.getLocation().getSource());
+        assertNotNull(ifIndex.getDescriptionRef());
+        assertTrue(ifIndex.getDescription().startsWith("A unique value"));
+        SmiVariable sysDescr = mib.getVariables().find("SNMPv2-MIB", "sysDescr");
+        assertTrue(sysDescr.getDescription().startsWith("A textual description"));
+    }
+
+    public void testGzipFile() throws Exception {
+        tempFile = File.createTempFile("IF-MIB", ".gz");
+        byte[] bytes = read("ietf/IF-MIB");
+        Files.write(tempFile.toPath(), gzip(bytes));
+        SmiSource source = SmiSource.forUrl(tempFile.toURI().toURL());
+        assertTrue(Arrays.equals(bytes, source.readBytes()));
+    }
+
+    private static byte[] read(String path) throws IOException {
+        return Files.readAllBytes(new File(AbstractMibTestCase.LIBSMI_DIR, path).toPath());
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (OutputStream os = new GZIPOutputStream(result)) {
+            os.write(bytes);
+        }
+        return result.toByteArray();
+    }
+}
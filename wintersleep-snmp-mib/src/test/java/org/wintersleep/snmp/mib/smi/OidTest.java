@@ -0,0 +1,106 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+public class OidTest extends TestCase {
+
+    public void testParseAndToString() {
+        Oid oid = Oid.parse("1.3.6.1.2.1.2.2.1.10.4294967295");
+        assertEquals(11, oid.length());
+        assertEquals(-1, oid.getLast());
+        assertEquals("1.3.6.1.2.1.2.2.1.10.4294967295", oid.toString());
+        assertEquals(oid, Oid.parse(".1.3.6.1.2.1.2.2.1.10.4294967295"));
+        assertSame(Oid.EMPTY, Oid.parse(""));
+        assertSame(Oid.EMPTY, Oid.parse("."));
+
+        String[] invalidOids = {"1..3", "1.3.", "1.x", "1.-3", "1.4294967296", " 1"};
+        for (String invalidOid : invalidOids) {
+            try {
+                Oid.parse(invalidOid);
+                fail(invalidOid);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    public void testSubOidsShareSubIds() {
+        Oid oid = Oid.of(1, 3, 6, 1, 2, 1);
+        Oid mib2 = Oid.parse("1.3.6.1.2.1");
+        Oid sub = oid.subOid(2, 5);
+        assertEquals(Oid.of(6, 1, 2), sub);
+        assertEquals(Oid.of(6, 1, 2).hashCode(), sub.hashCode());
+        assertTrue(Arrays.equals(new int[]{6, 1, 2}, sub.toArray()));
+        assertEquals(Oid.of(6, 1), sub.getParent());
+        assertEquals(Oid.EMPTY, sub.subOid(1, 1));
+        assertNull(Oid.EMPTY.getParent());
+        assertSame(oid, oid.subOid(0, 6));
+
+        assertTrue(oid.startsWith(mib2.getParent()));
+        assertTrue(oid.startsWith(Oid.EMPTY));
+        assertFalse(mib2.getParent().startsWith(oid));
+        assertFalse(oid.startsWith(sub));
+        assertEquals(Oid.parse("1.3.6.1.2.1.2.2"), mib2.append(2, 2));
+        assertEquals(mib2, oid.append().subOid(0, 6));
+    }
+
+    public void testCompareIsUnsignedAndLexicographic() {
+        List<Oid> expected = Arrays.asList(Oid.EMPTY, Oid.of(1), Oid.of(1, 3), Oid.of(1, 3, 0), Oid.of(1, 3, 6),
+                Oid.parse("1.3.2147483648"), Oid.parse("1.3.4294967295"), Oid.of(1, 4), Oid.of(2));
+        TreeSet<Oid> sorted = new TreeSet<Oid>();
+        for (int i = expected.size() - 1; i >= 0; i--) {
+            sorted.add(expected.get(i));
+        }
+        assertEquals(expected.toString(), sorted.toString());
+        assertEquals(0, Oid.of(1, 3).compareTo(Oid.of(1, 3, 6).getParent()));
+    }
+
+    public void testBer() {
+        byte[] ber = {0x2B, 6, 1, 2, 1, 2, 2, 1, 10, 7, (byte) 0x82, 0x2C};
+        Oid oid = Oid.parse("1.3.6.1.2.1.2.2.1.10.7.300");
+        assertTrue(Arrays.equals(ber, oid.encodeBer()));
+        assertEquals(oid, Oid.decodeBer(ber, 0, ber.length));
+
+        Oid large = Oid.parse("2.999.4294967295");
+        byte[] largeBer = large.encodeBer();
+        assertEquals((byte) 0x88, largeBer[0]);
+        assertEquals(0x37, largeBer[1]);
+        ByteBuffer buffer = ByteBuffer.wrap(largeBer);
+        assertEquals(large, Oid.decodeBer(buffer));
+        assertFalse(buffer.hasRemaining());
+
+        assertEquals(Oid.EMPTY, Oid.decodeBer(new byte[0], 0, 0));
+        try {
+            Oid.decodeBer(new byte[]{0x2B, (byte) 0x81}, 0, 2);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            Oid.of(1).encodeBer();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
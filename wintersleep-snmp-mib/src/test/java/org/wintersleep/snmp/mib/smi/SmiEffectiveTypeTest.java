@@ -0,0 +1,124 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import org.wintersleep.snmp.mib.AbstractMibTestCase;
+import org.wintersleep.snmp.mib.parser.LibSmiParserFactory;
+import org.wintersleep.snmp.mib.parser.SmiDefaultParser;
+import org.wintersleep.snmp.util.location.Location;
+import org.wintersleep.snmp.util.token.IdToken;
+
+import java.util.Collections;
+
+public class SmiEffectiveTypeTest extends AbstractMibTestCase {
+
+    @Override
+    protected SmiDefaultParser createParser() throws Exception {
+        return new LibSmiParserFactory(LIBSMI_DIR).create();
+    }
+
+    public void testSameAsBaseTypeChain() throws Exception {
+        SmiMib mib = getMib();
+        int count = 0;
+        for (SmiVariable variable : mib.getVariables()) {
+            SmiType type = variable.getType();
+            if (type == null) {
+                continue;
+            }
+            SmiEffectiveType effectiveType = variable.getEffectiveType();
+            assertSame(effectiveType, type.getEffectiveType());
+            assertSame(type, effectiveType.getType());
+
+            String context = variable.getModule().getId() + "." + variable.getId();
+            assertSame(context, find(type, Property.ENUM), effectiveType.getEnumType());
+            assertSame(context, find(type, Property.BITS), effectiveType.getBitFieldType());
+            assertSame(context, find(type, Property.RANGE), effectiveType.getRangeConstraintType());
+            assertSame(context, find(type, Property.SIZE), effectiveType.getSizeConstraintType());
+            SmiTextualConvention tc = (SmiTextualConvention) find(type, Property.TEXTUAL_CONVENTION);
+            assertSame(context, tc, effectiveType.getTextualConvention());
+            SmiTextualConvention hintTc = (SmiTextualConvention) find(type, Property.DISPLAY_HINT);
+            assertEquals(context, hintTc != null ? hintTc.getDisplayHint() : null, effectiveType.getDisplayHint());
+
+            SmiPrimitiveType primitiveType = type.determinePrimitiveType(
+                    type.getBaseType() != null ? type.getBaseType().getPrimitiveType() : null);
+            assertSame(context, primitiveType, effectiveType.getPrimitiveType());
+            if (primitiveType != null) {
+                assertSame(context, primitiveType.getVarBindField(), effectiveType.getVarBindField());
+            }
+            count++;
+        }
+        assertTrue(count > 10000);
+    }
+
+    public void testNotStoredBeforeResolution() {
+        SmiMib mib = new SmiMib(new SmiOptions(), new SmiJavaCodeNamingStrategy("test"));
+        SmiModule module = mib.createModule(new IdToken(new Location("test"), "TEST-MIB"));
+        SmiType base = new SmiType(new IdToken(new Location("test"), "Base"), module, SmiPrimitiveType.OCTET_STRING);
+        SmiType type = new SmiType(null, module);
+        type.setBaseType(base);
+        assertNull(type.getEffectiveType().getSizeConstraintType());
+        assertNotSame(type.getEffectiveType(), type.getEffectiveType());
+
+        type.determineEffectiveType();
+        assertSame(type.getEffectiveType(), type.getEffectiveType());
+        assertSame(base.getEffectiveType(), base.getEffectiveType());
+        assertEquals(SmiPrimitiveType.OCTET_STRING, type.getPrimitiveType());
+
+        // changing a type after the fact would leave stale effective types behind
+        try {
+            base.setSizeConstraints(Collections.<SmiRange>emptyList());
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertNull(base.getSizeConstraints());
+        assertNull(type.getEffectiveType().getSizeConstraintType());
+    }
+
+    private enum Property {
+        ENUM, BITS, RANGE, SIZE, TEXTUAL_CONVENTION, DISPLAY_HINT
+    }
+
+    private static SmiType find(SmiType type, Property property) {
+        for (; type != null; type = type.getBaseType()) {
+            boolean found;
+            switch (property) {
+                case ENUM:
+                    found = type.getEnumValues() != null;
+                    break;
+                case BITS:
+                    found = type.getBitFields() != null;
+                    break;
+                case RANGE:
+                    found = type.getRangeConstraints() != null;
+                    break;
+                case SIZE:
+                    found = type.getSizeConstraints() != null;
+                    break;
+                case TEXTUAL_CONVENTION:
+                    found = type instanceof SmiTextualConvention;
+                    break;
+                default:
+                    found = type instanceof SmiTextualConvention
+                            && ((SmiTextualConvention) type).getDisplayHint() != null;
+            }
+            if (found) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -19,6 +19,8 @@ import junit.framework.TestCase;
 import org.wintersleep.snmp.util.token.IdToken;
 import org.wintersleep.snmp.util.location.Location;
 
+import java.util.Collections;
+
 public class SmiModuleTest extends TestCase {
     private SmiMib mib = new SmiMib(new SmiOptions(), new SmiJavaCodeNamingStrategy("test"));
     private SmiModule module = new SmiModule(mib, new IdToken(new Location("IF-MIBsource", 1, 0), "IF-MIB"));
@@ -27,4 +29,38 @@ public class SmiModuleTest extends TestCase {
         assertEquals("IfMib", module.getCodeId());
     }
 
+    public void testResolveReference() {
+        SmiModule a = mib.createModule(token("A-MIB"));
+        SmiModule b = mib.createModule(token("B-MIB"));
+        SmiSymbol ax = addSymbol(a, "x");
+        SmiSymbol ay = addSymbol(a, "y");
+        addSymbol(b, "x");
+        addSymbol(b, "y");
+        SmiSymbol z = addSymbol(module, "z");
+        module.getImports().add(new SmiImports(module, token("A-MIB"), Collections.singletonList(token("x"))));
+        mib.fillTables();
+        module.resolveImports(null);
+
+        for (int i = 0; i < 2; i++) {
+            assertSame(z, module.resolveReference(token("z"), null));
+            assertSame(ax, module.resolveReference(token("x"), null));
+            // not imported, and defined twice: chosen based on the other imports
+            assertSame(ay, module.resolveReference(token("y"), null));
+            assertNull(module.resolveReference(token("unknown"), null));
+        }
+
+        SmiSymbol y = addSymbol(module, "y");
+        assertSame(y, module.resolveReference(token("y"), null));
+    }
+
+    private static IdToken token(String id) {
+        return new IdToken(new Location("test", 1, 1), id);
+    }
+
+    private static SmiSymbol addSymbol(SmiModule module, String id) {
+        SmiSymbol result = new SmiOidValue(token(id), module);
+        module.addSymbol(result);
+        return result;
+    }
+
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import org.wintersleep.snmp.mib.AbstractMibTestCase;
+import org.wintersleep.snmp.mib.parser.LibSmiParserFactory;
+import org.wintersleep.snmp.mib.parser.SmiDefaultParser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class SmiOidCursorTest extends AbstractMibTestCase {
+
+    @Override
+    protected SmiDefaultParser createParser() throws Exception {
+        return new LibSmiParserFactory(LIBSMI_DIR).create();
+    }
+
+    public void testWalkIsInOidOrder() throws Exception {
+        SmiOidCursor cursor = new SmiOidCursor(getMib().freeze());
+        assertFalse(cursor.isValid());
+        assertTrue(cursor.seek(Oid.EMPTY));
+        Oid previous = cursor.getNode().toOid();
+        int count = 1;
+        while (cursor.next()) {
+            Oid oid = cursor.getNode().toOid();
+            assertTrue(previous + " " + oid, previous.compareTo(oid) < 0);
+            previous = oid;
+            count++;
+        }
+        assertEquals(getMib().getRootNode().getTotalChildCount(), count);
+        try {
+            cursor.getNode();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    public void testSeekSameAsSortedList() throws Exception {
+        SmiOidCursor cursor = new SmiOidCursor(getMib().freeze());
+        List<Oid> sorted = new ArrayList<Oid>();
+        addOids(getMib().getRootNode(), sorted);
+        Collections.sort(sorted);
+
+        List<Oid> probes = new ArrayList<Oid>();
+        for (Oid oid : sorted) {
+            probes.add(oid);
+            probes.add(oid.append(7));
+            probes.add(oid.append(-1));
+            probes.add(oid.getParent().append(oid.getLast() + 1));
+        }
+        probes.add(Oid.EMPTY);
+        probes.add(Oid.of(-1));
+        for (Oid probe : probes) {
+            int index = Collections.binarySearch(sorted, probe);
+            int ceiling = index >= 0 ? index : -index - 1;
+            int after = index >= 0 ? index + 1 : -index - 1;
+            assertSeek(sorted, ceiling, cursor.seek(probe), cursor);
+            assertSeek(sorted, after, cursor.seekAfter(probe), cursor);
+        }
+    }
+
+    private static void assertSeek(List<Oid> sorted, int expectedIndex, boolean found, SmiOidCursor cursor) {
+        assertEquals(expectedIndex < sorted.size(), found);
+        if (found) {
+            assertEquals(sorted.get(expectedIndex), cursor.getNode().toOid());
+        }
+    }
+
+    private static void addOids(SmiOidNode node, List<Oid> result) {
+        for (SmiOidNode child : node.getChildren()) {
+            result.add(child.toOid());
+            addOids(child, result);
+        }
+    }
+
+    public void testNextNonLeaf() throws Exception {
+        SmiMib mib = getMib();
+        SmiOidCursor cursor = new SmiOidCursor(mib.freeze());
+        assertTrue(cursor.seek(Oid.EMPTY));
+        int count = cursor.getNode().getChildCount() > 0 ? 1 : 0;
+        while (cursor.nextNonLeaf()) {
+            assertTrue(cursor.getNode().getChildCount() > 0);
+            count++;
+        }
+        assertEquals(countNonLeaves(mib.getRootNode()), count);
+
+        SmiTable ifTable = mib.getTables().find("IF-MIB", "ifTable");
+        assertTrue(cursor.seekSubtree(ifTable.toOid()));
+        assertTrue(cursor.nextNonLeaf());
+        assertSame(ifTable.getRow().getNode(), cursor.getNode());
+        assertFalse(cursor.nextNonLeaf());
+    }
+
+    private static int countNonLeaves(SmiOidNode node) {
+        int result = 0;
+        for (SmiOidNode child : node.getChildren()) {
+            if (child.getChildCount() > 0) {
+                result += 1 + countNonLeaves(child);
+            }
+        }
+        return result;
+    }
+
+    public void testSubtree() throws Exception {
+        SmiMib mib = getMib();
+        SmiOidCursor cursor = new SmiOidCursor(mib.freeze());
+        SmiTable ifTable = mib.getTables().find("IF-MIB", "ifTable");
+        SmiVariable ifIndex = mib.getVariables().find("IF-MIB", "ifIndex");
+        SmiVariable ifInOctets = mib.getVariables().find("IF-MIB", "ifInOctets");
+        SmiVariable ifInUcastPkts = mib.getVariables().find("IF-MIB", "ifInUcastPkts");
+
+        assertTrue(cursor.seekSubtree(ifTable.toOid()));
+        assertSame(ifTable.getNode(), cursor.getNode());
+        assertTrue(cursor.nextValue(SmiVariable.class));
+        assertSame(ifIndex.getNode(), cursor.getNode());
+
+        // GETNEXT on an instance goes to the next column
+        assertTrue(cursor.seekAfter(ifInOctets.toOid().append(7)));
+        assertSame(ifInUcastPkts.getNode(), cursor.getNode());
+        assertTrue(cursor.seekAfter(Oid.of(1)));
+        assertSame(ifTable.getNode(), cursor.getNode());
+
+        int count = 0;
+        for (boolean found = cursor.seekAfter(ifIndex.toOid().append(1)); found; found = cursor.nextValue(SmiVariable.class)) {
+            count++;
+        }
+        assertEquals(21, count);
+        assertFalse(cursor.seekAfter(ifTable.toOid().append(2)));
+
+        cursor.clearLimit();
+        assertTrue(cursor.seek(ifTable.toOid()));
+        assertTrue(cursor.skipSubtree());
+        assertTrue(cursor.getNode().toOid().compareTo(ifTable.toOid()) > 0);
+        assertFalse(cursor.getNode().toOid().startsWith(ifTable.toOid()));
+
+        assertFalse(cursor.seekSubtree(Oid.of(1, 3, 6, 1, 4, 1, 999999999)));
+        assertFalse(cursor.isValid());
+    }
+}
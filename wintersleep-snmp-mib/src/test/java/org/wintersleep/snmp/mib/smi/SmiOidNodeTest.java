@@ -0,0 +1,106 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import junit.framework.TestCase;
+import org.wintersleep.snmp.util.location.Location;
+import org.wintersleep.snmp.util.token.IdToken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+public class SmiOidNodeTest extends TestCase {
+
+    public void testChildrenAreSorted() {
+        SmiOidNode root = SmiOidNode.createRootNode();
+        int[] subIds = {7, 1, 1000000, 3, 0, 42, 2, 5};
+        for (int subId : subIds) {
+            assertSame(root.findOrCreateChild(subId), root.findOrCreateChild(subId));
+        }
+        int[] sorted = subIds.clone();
+        Arrays.sort(sorted);
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int subId : sorted) {
+            expected.add(subId);
+        }
+        List<Integer> actual = new ArrayList<Integer>();
+        for (SmiOidNode child : root.getChildren()) {
+            actual.add(child.getValue());
+            assertSame(child, root.findChild(child.getValue()));
+            assertTrue(root.contains(child));
+        }
+        assertEquals(expected, actual);
+        assertEquals(subIds.length, root.getChildCount());
+        assertNull(root.findChild(4));
+        assertNull(root.findChild(1000001));
+
+        try {
+            new SmiOidNode(root, 42);
+            fail();
+        } catch (IllegalStateException expectedException) {
+            // ok
+        }
+    }
+
+    public void testValues() {
+        SmiMib mib = new SmiMib(new SmiOptions(), new SmiJavaCodeNamingStrategy("test"));
+        SmiModule module = mib.createModule(new IdToken(new Location("test"), "TEST-MIB"));
+        SmiOidNode node = SmiOidNode.createRootNode().findOrCreateChild(1);
+        assertEquals(Collections.<SmiOidValue>emptyList(), node.getValues());
+
+        SmiOidValue first = new SmiOidValue(new IdToken(new Location("test"), "first"), module);
+        node.addValue(first);
+        assertEquals(Collections.singletonList(first), node.getValues());
+        assertSame(first, node.getSingleValue());
+        assertFalse(node.hasMultipleValues(SmiOidValue.class, module));
+
+        SmiOidValue second = new SmiOidValue(new IdToken(new Location("test"), "second"), module);
+        node.addValue(second);
+        assertEquals(Arrays.asList(first, second), node.getValues());
+        assertTrue(node.hasMultipleValues(SmiOidValue.class, module));
+        assertFalse(node.hasMultipleValues(SmiRow.class, module));
+        try {
+            node.getValues().remove(0);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        node.sortValues(new Comparator<SmiOidValue>() {
+            public int compare(SmiOidValue v1, SmiOidValue v2) {
+                return v2.getId().compareTo(v1.getId());
+            }
+        });
+        assertEquals(Arrays.asList(second, first), node.getValues());
+    }
+
+    public void testOidIsDerivedFromParents() {
+        SmiOidNode root = SmiOidNode.createRootNode();
+        SmiOidNode node = root.findOrCreateChild(1).findOrCreateChild(3).findOrCreateChild(6);
+        assertNull(root.getOid());
+        assertNull(root.getOidStr());
+        assertEquals(0, root.getDepth());
+        assertEquals(3, node.getDepth());
+        assertTrue(Arrays.equals(new int[]{1, 3, 6}, node.getOid()));
+        assertNotSame(node.getOid(), node.getOid());
+        assertEquals("1.3.6", node.getOidStr());
+        assertSame(node.getOidStr(), node.getOidStr());
+        assertEquals("1.3", node.getParent().getOidStr());
+    }
+}
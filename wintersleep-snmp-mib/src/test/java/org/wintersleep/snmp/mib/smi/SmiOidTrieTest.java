@@ -0,0 +1,103 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import org.wintersleep.snmp.mib.AbstractMibTestCase;
+import org.wintersleep.snmp.mib.parser.LibSmiParserFactory;
+import org.wintersleep.snmp.mib.parser.SmiDefaultParser;
+
+public class SmiOidTrieTest extends AbstractMibTestCase {
+
+    @Override
+    protected SmiDefaultParser createParser() throws Exception {
+        return new LibSmiParserFactory(LIBSMI_DIR).create();
+    }
+
+    public void testSameAsTree() throws Exception {
+        SmiMib mib = getMib();
+        int[][] oids = {
+                {1, 3, 6, 1, 2, 1, 2, 2, 1, 7, 0x1101},
+                {1, 3, 6, 1, 2, 1, 2, 2, 1, 7},
+                {1, 3, 6, 1, 4, 1, 999999, 1},
+                {2, 12345},
+                {1},
+                {}
+        };
+        SmiOidNode[] byOid = new SmiOidNode[oids.length];
+        SmiOidNode[] byOidPrefix = new SmiOidNode[oids.length];
+        String[] longestMatches = new String[oids.length];
+        SmiOidMatch match = new SmiOidMatch();
+        for (int i = 0; i < oids.length; i++) {
+            byOid[i] = mib.findByOid(oids[i]);
+            byOidPrefix[i] = mib.findByOidPrefix(oids[i]);
+            mib.findLongestMatch(oids[i], 0, oids[i].length, match);
+            longestMatches[i] = match.getDepth() + " " + match;
+            assertEquals(longestMatches[i], findLongestMatch(mib, oids[i], match));
+        }
+
+        assertNull(mib.getOidTrie());
+        SmiOidTrie trie = mib.freeze();
+        assertSame(trie, mib.freeze());
+        assertSame(trie, mib.getOidTrie());
+        assertEquals(mib.getRootNode().getTotalChildCount() + 1, trie.size());
+        assertSame(mib.getRootNode(), trie.getNode(SmiOidTrie.ROOT_ID));
+        assertEquals(SmiOidTrie.NOT_FOUND, trie.getParent(SmiOidTrie.ROOT_ID));
+        assertEquals(trie.size(), checkSubtree(trie, mib.getRootNode(), SmiOidTrie.ROOT_ID));
+
+        for (int i = 0; i < oids.length; i++) {
+            assertSame(byOid[i], mib.findByOid(oids[i]));
+            assertSame(byOidPrefix[i], mib.findByOidPrefix(oids[i]));
+            mib.findLongestMatch(oids[i], 0, oids[i].length, match);
+            assertEquals(longestMatches[i], match.getDepth() + " " + match);
+            assertEquals(longestMatches[i], findLongestMatch(mib, oids[i], match));
+        }
+        assertEquals(SmiOidTrie.NOT_FOUND, trie.find(1, 3, 6, 1, 4, 1, 999999, 1));
+        int[] padded = {42, 1, 3, 6, 1, 2, 1, 2, 2, 1, 7, 42};
+        assertSame(byOid[1], trie.getNode(trie.find(padded, 1, 10)));
+    }
+
+    private static String findLongestMatch(SmiMib mib, int[] oid, SmiOidMatch match) {
+        StringBuilder text = new StringBuilder();
+        for (int subId : oid) {
+            text.append('.').append(subId & 0xFFFFFFFFL);
+        }
+        mib.findLongestMatch(text, match);
+        assertEquals(text.length(), match.getSourceEnd());
+        return match.getDepth() + " " + match;
+    }
+
+    /**
+     * @return The id after the subtree.
+     */
+    private static int checkSubtree(SmiOidTrie trie, SmiOidNode node, int id) {
+        assertSame(node, trie.getNode(id));
+        if (node.getOid() != null) {
+            assertEquals(id, trie.find(node.getOid()));
+        }
+        SmiOidValue expectedValue = node.getValues().isEmpty() ? null : node.getValues().get(0);
+        assertSame(expectedValue, trie.getOidValue(id));
+        assertEquals(node.getChildCount(), trie.getChildCount(id));
+
+        int nextId = id + 1;
+        for (SmiOidNode child : node.getChildren()) {
+            assertEquals(nextId, trie.findChild(id, child.getValue()));
+            assertEquals(id, trie.getParent(nextId));
+            nextId = checkSubtree(trie, child, nextId);
+        }
+        assertEquals(nextId, trie.getSubtreeEnd(id));
+        return nextId;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import org.wintersleep.snmp.mib.AbstractMibTestCase;
+import org.wintersleep.snmp.mib.parser.LibSmiParserFactory;
+import org.wintersleep.snmp.mib.parser.SmiDefaultParser;
+import org.wintersleep.snmp.mib.phase.file.SmiSource;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class SmiRowIndexCodecTest extends AbstractMibTestCase {
+
+    @Override
+    protected SmiDefaultParser createParser() throws Exception {
+        return new LibSmiParserFactory(LIBSMI_DIR).create();
+    }
+
+    public void testInteger() {
+        SmiRowIndexCodec codec = getCodec("IF-MIB", "ifEntry");
+        assertSame(codec, getCodec("IF-MIB", "ifEntry"));
+        int[] oid = {1, 3, 6, 1, 2, 1, 2, 2, 1, 10, 7};
+        SmiOidMatch match = new SmiOidMatch();
+        assertTrue(getMib().findLongestMatch(oid, 0, oid.length, match));
+        Object[] values = codec.decode(match);
+        assertEquals(1, values.length);
+        assertEquals(7, values[0]);
+        assertTrue(Arrays.equals(new int[]{7}, codec.encode(7)));
+    }
+
+    public void testAugments() {
+        SmiRowIndexCodec codec = getCodec("IF-MIB", "ifXEntry");
+        assertEquals("ifIndex", codec.getIndexes().get(0).getColumn().getId());
+        assertEquals(3, codec.decode(new int[]{3}, 0, 1)[0]);
+    }
+
+    public void testIpAddress() throws Exception {
+        SmiRowIndexCodec codec = getCodec("IP-MIB", "ipNetToMediaEntry");
+        Object[] values = codec.decode(new int[]{5, 192, 168, 1, 20}, 0, 5);
+        assertEquals(5, values[0]);
+        assertEquals(InetAddress.getByName("192.168.1.20"), values[1]);
+        assertTrue(Arrays.equals(new int[]{5, 10, 0, 0, 1}, codec.encode(5, InetAddress.getByName("10.0.0.1"))));
+    }
+
+    public void testFixedLengthString() {
+        SmiRowIndexCodec codec = getCodec("BRIDGE-MIB", "dot1dTpFdbEntry");
+        int[] suffix = {0, 17, 34, 51, 68, 255};
+        byte[] mac = (byte[]) codec.decode(suffix, 0, suffix.length)[0];
+        assertTrue(Arrays.equals(new byte[]{0, 17, 34, 51, 68, (byte) 255}, mac));
+        assertTrue(Arrays.equals(suffix, codec.encode((Object) mac)));
+        try {
+            codec.encode((Object) new byte[5]);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+    }
+
+    public void testImpliedString() {
+        SmiRowIndexCodec codec = getCodec("SNMP-TARGET-MIB", "snmpTargetAddrEntry");
+        int[] suffix = {'n', 'm', 's'};
+        assertEquals("nms", new String((byte[]) codec.decode(suffix, 0, 3)[0], StandardCharsets.ISO_8859_1));
+        assertTrue(Arrays.equals(suffix, codec.encode("nms")));
+        // augments snmpTargetAddrEntry
+        assertEquals(codec.getIndexes(), getCodec("SNMP-COMMUNITY-MIB", "snmpTargetAddrExtEntry").getIndexes());
+    }
+
+    public void testStringAndOid() {
+        SmiRowIndexCodec codec = getCodec("SNMP-VIEW-BASED-ACM-MIB", "vacmViewTreeFamilyEntry");
+        int[] suffix = {3, 'a', 'l', 'l', 2, 1, 3};
+        Object[] values = codec.decode(suffix, 0, suffix.length);
+        assertEquals("all", new String((byte[]) values[0], StandardCharsets.ISO_8859_1));
+        assertTrue(Arrays.equals(new int[]{1, 3}, (int[]) values[1]));
+        assertTrue(Arrays.equals(suffix, codec.encode("all", new int[]{1, 3})));
+    }
+
+    public void testInvalidSuffixes() {
+        SmiRowIndexCodec codec = getCodec("SNMP-VIEW-BASED-ACM-MIB", "vacmViewTreeFamilyEntry");
+        int[][] suffixes = {
+                {},
+                {3, 'a', 'l'},
+                {1, 'a', 5, 1},
+                {1, 256, 0},
+                {1, 'a', 0, 42},
+        };
+        for (int[] suffix : suffixes) {
+            try {
+                codec.decode(suffix, 0, suffix.length);
+                fail(Arrays.toString(suffix));
+            } catch (IllegalArgumentException expected) {
+                // ok
+            }
+        }
+    }
+
+    public void testLongIndexFromText() {
+        SmiRowIndexCodec codec = getCodec("SNMP-VIEW-BASED-ACM-MIB", "vacmViewTreeFamilyEntry");
+        SmiOidMatch match = new SmiOidMatch();
+        assertTrue(getMib().findLongestMatch("1.3.6.1.6.3.16.1.2.1.3.3.97.108.108.12.1.3.6.1.2.1.2.2.1.10.1.2", match));
+        Object[] values = codec.decode(match);
+        assertEquals("all", new String((byte[]) values[0], StandardCharsets.ISO_8859_1));
+        assertTrue(Arrays.equals(new int[]{1, 3, 6, 1, 2, 1, 2, 2, 1, 10, 1, 2}, (int[]) values[1]));
+    }
+
+    public void testInvalidIndexTypes() throws Exception {
+        String text = "TEST-MIB DEFINITIONS ::= BEGIN\n"
+                + "IMPORTS MODULE-IDENTITY, OBJECT-TYPE, Opaque, enterprises FROM SNMPv2-SMI;\n"
+                + "testMib MODULE-IDENTITY LAST-UPDATED \"200501010000Z\" ORGANIZATION \"\" CONTACT-INFO \"\"\n"
+                + "    DESCRIPTION \"\" ::= { enterprises 99999 }\n"
+                + "opaqueTable OBJECT-TYPE SYNTAX SEQUENCE OF OpaqueEntry MAX-ACCESS not-accessible STATUS current\n"
+                + "    DESCRIPTION \"\" ::= { testMib 1 }\n"
+                + "opaqueEntry OBJECT-TYPE SYNTAX OpaqueEntry MAX-ACCESS not-accessible STATUS current\n"
+                + "    DESCRIPTION \"\" INDEX { opaqueIndex } ::= { opaqueTable 1 }\n"
+                + "OpaqueEntry ::= SEQUENCE { opaqueIndex Opaque }\n"
+                + "opaqueIndex OBJECT-TYPE SYNTAX Opaque MAX-ACCESS not-accessible STATUS current\n"
+                + "    DESCRIPTION \"\" ::= { opaqueEntry 1 }\n"
+                + "impliedTable OBJECT-TYPE SYNTAX SEQUENCE OF ImpliedEntry MAX-ACCESS not-accessible STATUS current\n"
+                + "    DESCRIPTION \"\" ::= { testMib 2 }\n"
+                + "impliedEntry OBJECT-TYPE SYNTAX ImpliedEntry MAX-ACCESS not-accessible STATUS current\n"
+                + "    DESCRIPTION \"\" INDEX { IMPLIED impliedIndex } ::= { impliedTable 1 }\n"
+                + "ImpliedEntry ::= SEQUENCE { impliedIndex OCTET STRING }\n"
+                + "impliedIndex OBJECT-TYPE SYNTAX OCTET STRING (SIZE (4)) MAX-ACCESS not-accessible STATUS current\n"
+                + "    DESCRIPTION \"\" ::= { impliedEntry 1 }\n"
+                + "END\n";
+        SmiDefaultParser parser = new SmiDefaultParser();
+        parser.getFileParserPhase().setInputSources(Arrays.asList(
+                SmiSource.forUrl(new File(LIBSMI_IETF_DIR, "SNMPv2-SMI").toURI().toURL()),
+                SmiSource.forText("memory:TEST-MIB", text)));
+        SmiMib testMib = parser.parse();
+
+        for (String rowId : new String[]{"opaqueEntry", "impliedEntry"}) {
+            SmiRow row = testMib.getRows().find("TEST-MIB", rowId);
+            assertNotNull(rowId, row);
+            try {
+                row.getIndexCodec();
+                fail(rowId);
+            } catch (IllegalStateException expected) {
+                // ok
+            }
+        }
+    }
+
+    private SmiRowIndexCodec getCodec(String moduleId, String rowId) {
+        SmiRow row = getMib().getRows().find(moduleId, rowId);
+        assertNotNull(rowId, row);
+        return row.getIndexCodec();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.mib.smi;
+
+import junit.framework.TestCase;
+import org.wintersleep.snmp.util.location.Location;
+import org.wintersleep.snmp.util.token.IdToken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SmiSymbolTableTest extends TestCase {
+
+    public void testSingleAndDuplicateIds() {
+        SmiMib mib = new SmiMib(new SmiOptions(), new SmiJavaCodeNamingStrategy("test"));
+        SmiModule module = mib.createModule(new IdToken(new Location("test"), "TEST-MIB"));
+        SmiOidValue a1 = new SmiOidValue(new IdToken(new Location("test"), "a"), module);
+        SmiOidValue a2 = new SmiOidValue(new IdToken(new Location("test"), "a"), module);
+        SmiOidValue a3 = new SmiOidValue(new IdToken(new Location("test"), "a"), module);
+        SmiOidValue b = new SmiOidValue(new IdToken(new Location("test"), "b"), module);
+        SmiType c = new SmiType(new IdToken(new Location("test"), "c"), module);
+        SmiType a4 = new SmiType(new IdToken(new Location("test"), "a"), module);
+
+        SmiSymbolTable table = new SmiSymbolTable();
+        Map<String, SmiModule> moduleMap = new LinkedHashMap<String, SmiModule>();
+        SmiSymbolMapImpl<SmiOidValue> map = new SmiSymbolMapImpl<SmiOidValue>(SmiOidValue.class, moduleMap, table, SmiSymbolTable.OID_VALUE);
+        SmiSymbolMapImpl<SmiType> types = new SmiSymbolMapImpl<SmiType>(SmiType.class, moduleMap, table, SmiSymbolTable.TYPE);
+        assertTrue(map.isEmpty());
+        assertFalse(map.iterator().hasNext());
+        table.add(a1);
+        table.add(b);
+        table.add(c);
+
+        assertSame(a1, map.find("a"));
+        assertEquals(Collections.singletonList(a1), map.findAll("a"));
+        assertSame(b, map.find("b"));
+        assertNull(map.find("c"));
+        assertSame(c, types.find("c"));
+        assertEquals(Collections.<SmiOidValue>emptyList(), map.findAll("c"));
+
+        table.add(a2);
+        table.add(a4);
+        table.add(a3);
+        assertEquals(Arrays.asList(a1, a2, a3), map.findAll("a"));
+        assertSame(a4, types.find("a"));
+        try {
+            map.find("a");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        assertEquals(4, map.size());
+        assertEquals(2, types.size());
+        assertEquals(6, table.count(SmiSymbolTable.SYMBOL));
+        List<SmiOidValue> all = new ArrayList<SmiOidValue>();
+        for (SmiOidValue value : map) {
+            all.add(value);
+        }
+        assertEquals(Arrays.asList(a1, b, a2, a3), all);
+        assertEquals(all, new ArrayList<SmiOidValue>(map.getAll()));
+
+        table.add(a1);
+        table.add(a3);
+        table.add(b);
+        assertEquals(6, table.size());
+        assertEquals(Arrays.asList(a1, a2, a3), map.findAll("a"));
+        assertSame(b, map.find("b"));
+    }
+
+    public void testFillTablesTwice() {
+        SmiMib mib = new SmiMib(new SmiOptions(), new SmiJavaCodeNamingStrategy("test"));
+        SmiModule module = mib.createModule(new IdToken(new Location("test"), "TEST-MIB"));
+        SmiOidValue a = new SmiOidValue(new IdToken(new Location("test"), "a"), module);
+        module.addSymbol(a);
+
+        mib.fillTables();
+        mib.fillTables();
+        assertSame(a, mib.getOidValues().find("a"));
+        assertEquals(1, mib.getOidValues().size());
+    }
+}
@@ -15,10 +15,12 @@
  */
 package org.wintersleep.snmp.util.location;
 
+import java.io.Serializable;
+
 /**
  * Line and column numbers are 1-based (not 0-based).
  */
-public class Location {
+public class Location implements Serializable {
 
     public static final char SEPARATOR = ':';
     public static final int INVALID_LINE = -1;
@@ -67,6 +69,28 @@ public class Location {
         this.column = column;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Location other = (Location) o;
+        return line == other.line
+                && column == other.column
+                && (source != null ? source.equals(other.source) : other.source == null);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = source != null ? source.hashCode() : 0;
+        result = 31 * result + line;
+        result = 31 * result + column;
+        return result;
+    }
+
     public String toString() {
         StringBuilder result = new StringBuilder();
         if (source != null) {
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2005 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.util.problem;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the calls made on a problem reporter interface, so that they can be replayed later on
+ * the real reporter. This allows work that is done concurrently to report its problems in a
+ * deterministic order.
+ */
+public class DeferredProblemReporter<T> {
+
+    private final Class<T> reporterClass;
+    private final T reporter;
+    private final List<Invocation> invocations = new ArrayList<Invocation>();
+
+    public DeferredProblemReporter(Class<T> reporterClass) {
+        this.reporterClass = reporterClass;
+        Class[] classArray = {reporterClass};
+        reporter = reporterClass.cast(Proxy.newProxyInstance(reporterClass.getClassLoader(), classArray, new RecordingInvocationHandler()));
+    }
+
+    public Class<T> getReporterClass() {
+        return reporterClass;
+    }
+
+    /**
+     * @return The reporter that records all problems, to be used instead of the real reporter.
+     */
+    public T getReporter() {
+        return reporter;
+    }
+
+    public int getInvocationCount() {
+        return invocations.size();
+    }
+
+    /**
+     * Replays all recorded problems, in the order in which they were reported, and then clears them.
+     */
+    public void replay(T target) {
+        for (Invocation invocation : invocations) {
+            try {
+                invocation.method.invoke(target, invocation.args);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+        invocations.clear();
+    }
+
+    private static class Invocation {
+        private final Method method;
+        private final Object[] args;
+
+        private Invocation(Method method, Object[] args) {
+            this.method = method;
+            this.args = args;
+        }
+    }
+
+    private class RecordingInvocationHandler implements InvocationHandler {
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(this, args);
+            }
+            invocations.add(new Invocation(method, args));
+            return null;
+        }
+    }
+}
@@ -17,16 +17,59 @@ package org.wintersleep.snmp.util.token;
 
 import org.wintersleep.snmp.util.location.Location;
 
-public abstract class AbstractToken implements Token {
+import java.io.Serializable;
 
-    private Location location;
+/**
+ * Tokens don't keep a Location object: they keep the source String, which is shared by all the tokens of the
+ * same file, and the line and column packed in one int. The Location is only created when it is asked for.
+ */
+public abstract class AbstractToken implements Token, Serializable {
+
+    private static final int COLUMN_BITS = 12;
+    private static final int MAX_LINE = (1 << (32 - COLUMN_BITS)) - 2;
+    private static final int MAX_COLUMN = (1 << COLUMN_BITS) - 2;
+
+    // the source String, or the Location itself when it has no source, or the line or column don't fit
+    private Object source;
+    private int position;
 
     protected AbstractToken(Location location) {
-        this.location = location;
+        if (location != null) {
+            if (location.getSource() != null && fits(location.getLine(), location.getColumn())) {
+                source = location.getSource();
+                position = pack(location.getLine(), location.getColumn());
+            } else {
+                source = location;
+            }
+        }
+    }
+
+    protected AbstractToken(String source, int line, int column) {
+        if (source != null && fits(line, column)) {
+            this.source = source;
+            position = pack(line, column);
+        } else {
+            this.source = new Location(source, line, column);
+        }
+    }
+
+    private static boolean fits(int line, int column) {
+        return line >= Location.INVALID_LINE && line <= MAX_LINE
+                && column >= Location.INVALID_COLUMN && column <= MAX_COLUMN;
+    }
+
+    // the +1 makes INVALID_LINE and INVALID_COLUMN fit
+    private static int pack(int line, int column) {
+        return ((line + 1) << COLUMN_BITS) | (column + 1);
     }
 
     public Location getLocation() {
-        return location;
+        if (source instanceof String) {
+            int line = (position >>> COLUMN_BITS) - 1;
+            int column = (position & ((1 << COLUMN_BITS) - 1)) - 1;
+            return new Location((String) source, line, column);
+        }
+        return (Location) source;
     }
 
     public String toString() {
@@ -25,6 +25,10 @@ public class BigIntegerToken extends GenericToken<BigInteger> {
     public BigIntegerToken(Location location, boolean negate, String value) {
         super(location, negate ? new BigInteger(value).negate() : new BigInteger(value));
     }
+
+    public BigIntegerToken(String source, int line, int column, boolean negate, String value) {
+        super(source, line, column, negate ? new BigInteger(value).negate() : new BigInteger(value));
+    }
     
     public BigIntegerToken(int value) {
         super(new Location("hardcoded", 0), new BigInteger(Integer.toString(value)));
@@ -25,6 +25,11 @@ public class GenericToken<Value> extends AbstractToken {
         this.value = value;
     }
 
+    public GenericToken(String source, int line, int column, Value value) {
+        super(source, line, column);
+        this.value = value;
+    }
+
     public Value getValue() {
         return value;
     }
@@ -23,6 +23,10 @@ public class IdToken extends StringToken {
         super(location, value);
     }
 
+    public IdToken(String source, int line, int column, String value) {
+        super(source, line, column, value);
+    }
+
     public String getId() {
         return getValue();
     }
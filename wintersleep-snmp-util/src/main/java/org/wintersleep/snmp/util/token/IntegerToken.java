@@ -26,6 +26,11 @@ public class IntegerToken extends AbstractToken {
         this.value = value;
     }
 
+    public IntegerToken(String source, int line, int column, int value) {
+        super(source, line, column);
+        this.value = value;
+    }
+
     public int getValue() {
         return value;
     }
@@ -22,4 +22,8 @@ public class StringToken extends GenericToken<String> {
     public StringToken(Location location, String value) {
         super(location, value);
     }
+
+    public StringToken(String source, int line, int column, String value) {
+        super(source, line, column, value);
+    }
 }
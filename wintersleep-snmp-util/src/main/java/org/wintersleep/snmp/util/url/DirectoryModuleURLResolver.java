@@ -0,0 +1,67 @@
+/*
+ * Copyright 2007 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.util.url;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Looks for a module in a list of directories, like the MIBDIRS of net-snmp: the first directory that contains
+ * a file with the module id as name, optionally followed by one of the extensions, wins.
+ */
+public class DirectoryModuleURLResolver implements ModuleURLResolver {
+
+    public static final List<String> DEFAULT_EXTENSIONS = Arrays.asList("", ".txt", ".mib", ".my", ".smi");
+
+    private final List<File> dirs;
+    private List<String> extensions = DEFAULT_EXTENSIONS;
+
+    public DirectoryModuleURLResolver(File... dirs) {
+        this(Arrays.asList(dirs));
+    }
+
+    public DirectoryModuleURLResolver(List<File> dirs) {
+        this.dirs = new ArrayList<File>(dirs);
+    }
+
+    public List<File> getDirs() {
+        return dirs;
+    }
+
+    public List<String> getExtensions() {
+        return extensions;
+    }
+
+    public void setExtensions(List<String> extensions) {
+        this.extensions = extensions;
+    }
+
+    public URL findModule(String moduleId) throws Exception {
+        for (File dir : dirs) {
+            for (String extension : extensions) {
+                File file = new File(dir, moduleId + extension);
+                if (file.isFile()) {
+                    return file.toURI().toURL();
+                }
+            }
+        }
+        return null;
+    }
+
+}
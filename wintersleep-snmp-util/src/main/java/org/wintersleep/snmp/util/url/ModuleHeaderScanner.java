@@ -0,0 +1,247 @@
+/*
+ * Copyright 2007 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.util.url;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A quick scan over the contents of a mib file that only recognizes comments, quoted strings, identifiers and
+ * the few symbols that are needed to find the <code>NAME DEFINITIONS ::= BEGIN</code> headers and the
+ * IMPORTS clauses of the modules in the file. Everything else is skipped without looking at it.
+ */
+class ModuleHeaderScanner {
+
+    private static final int EOF = -1;
+    private static final int IDENTIFIER = 1;
+    private static final int ASSIGN = 2;
+    private static final int SEMICOLON = 3;
+    private static final int LEFT_BRACE = 4;
+    private static final int RIGHT_BRACE = 5;
+    private static final int OTHER = 6;
+
+    private final byte[] bytes;
+    private int pos;
+
+    private int tokenStart;
+    private int tokenEnd;
+
+    ModuleHeaderScanner(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    static class Header {
+        final String moduleId;
+        final int offset;
+        final List<String> imports;
+
+        Header(String moduleId, int offset, List<String> imports) {
+            this.moduleId = moduleId;
+            this.offset = offset;
+            this.imports = imports;
+        }
+    }
+
+    List<Header> scan() {
+        List<Header> result = new ArrayList<Header>();
+        String name = null;
+        int nameOffset = 0;
+        int type = next();
+        while (type != EOF) {
+            if (type == IDENTIFIER) {
+                if (name != null && isToken("DEFINITIONS")) {
+                    if (skipToBegin()) {
+                        result.add(new Header(name, nameOffset, scanImports()));
+                    }
+                    name = null;
+                } else {
+                    name = tokenText();
+                    nameOffset = tokenStart;
+                }
+            } else if (type == LEFT_BRACE) {
+                // the optional object identifier of the module: NAME { ... } DEFINITIONS
+                skipBraces();
+            } else {
+                name = null;
+            }
+            type = next();
+        }
+        return result;
+    }
+
+    /**
+     * Skips the optional tag default between DEFINITIONS and ::=.
+     */
+    private boolean skipToBegin() {
+        int type = next();
+        while (type == IDENTIFIER) {
+            type = next();
+        }
+        return type == ASSIGN && next() == IDENTIFIER && isToken("BEGIN");
+    }
+
+    private List<String> scanImports() {
+        Set<String> result = new LinkedHashSet<String>();
+        int start = pos;
+        int type = next();
+        if (type == IDENTIFIER && isToken("EXPORTS")) {
+            skipTo(SEMICOLON);
+            start = pos;
+            type = next();
+        }
+        if (type == IDENTIFIER && isToken("IMPORTS")) {
+            type = next();
+            while (type != EOF && type != SEMICOLON) {
+                if (type == IDENTIFIER && isToken("FROM")) {
+                    type = next();
+                    if (type == IDENTIFIER) {
+                        result.add(tokenText());
+                    } else {
+                        continue;
+                    }
+                } else if (type == LEFT_BRACE) {
+                    skipBraces();
+                }
+                type = next();
+            }
+        } else {
+            pos = start;
+        }
+        return new ArrayList<String>(result);
+    }
+
+    private void skipTo(int tokenType) {
+        int type = next();
+        while (type != EOF && type != tokenType) {
+            type = next();
+        }
+    }
+
+    private void skipBraces() {
+        int depth = 1;
+        while (depth > 0) {
+            int type = next();
+            if (type == EOF) {
+                return;
+            } else if (type == LEFT_BRACE) {
+                depth++;
+            } else if (type == RIGHT_BRACE) {
+                depth--;
+            }
+        }
+    }
+
+    private boolean isToken(String text) {
+        int length = tokenEnd - tokenStart;
+        if (length != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[tokenStart + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String tokenText() {
+        return new String(bytes, tokenStart, tokenEnd - tokenStart, StandardCharsets.ISO_8859_1);
+    }
+
+    private int next() {
+        while (pos < bytes.length) {
+            int c = bytes[pos];
+            tokenStart = pos;
+            if (isLetter(c)) {
+                pos++;
+                while (pos < bytes.length && isIdentifierPart(bytes[pos]) && !isCommentStart(pos)) {
+                    pos++;
+                }
+                tokenEnd = pos;
+                return IDENTIFIER;
+            } else if (isCommentStart(pos)) {
+                skipComment();
+            } else if (c == '"' || c == '\'') {
+                skipQuoted(c);
+            } else if (c == ':' && pos + 2 < bytes.length && bytes[pos + 1] == ':' && bytes[pos + 2] == '=') {
+                pos += 3;
+                return ASSIGN;
+            } else {
+                pos++;
+                switch (c) {
+                    case ';':
+                        return SEMICOLON;
+                    case '{':
+                        return LEFT_BRACE;
+                    case '}':
+                        return RIGHT_BRACE;
+                    case ' ':
+                    case '\t':
+                    case '\r':
+                    case '\n':
+                    case '\f':
+                        break;
+                    default:
+                        if (!isIdentifierPart(c)) {
+                            return OTHER;
+                        }
+                }
+            }
+        }
+        return EOF;
+    }
+
+    /**
+     * A comment ends at the end of the line, or at the next "--".
+     */
+    private void skipComment() {
+        pos += 2;
+        while (pos < bytes.length) {
+            int c = bytes[pos];
+            if (c == '\n' || c == '\r') {
+                return;
+            }
+            if (isCommentStart(pos)) {
+                pos += 2;
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private boolean isCommentStart(int index) {
+        return bytes[index] == '-' && index + 1 < bytes.length && bytes[index + 1] == '-';
+    }
+
+    private void skipQuoted(int quote) {
+        pos++;
+        while (pos < bytes.length && bytes[pos] != quote) {
+            pos++;
+        }
+        pos++;
+    }
+
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isIdentifierPart(int c) {
+        return isLetter(c) || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2007 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.util.url;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the modules in a list of mib directories: for each module, the file that contains it, the offset
+ * of its header in that file, and the modules it imports. The index is built by a quick header scan instead of
+ * a full parse, and can be stored in an index file, together with the size and the modification time of each
+ * mib file, so that only the files that changed need to be scanned again.
+ * <p>
+ * As a URLListFactory, it returns the urls of the root modules and all the modules they import, or of all the
+ * files when no root modules are set. As a ModuleURLResolver, it finds the file of a module without looking
+ * at the file names.
+ * <p>
+ * When a module is defined in more than one file, the first directory wins, like with the MIBDIRS of net-snmp.
+ */
+public class ModuleIndex implements URLListFactory, ModuleURLResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModuleIndex.class);
+
+    private static final int MAGIC = 0x534D4958; // SMIX
+    private static final int FORMAT_VERSION = 1;
+
+    private final List<File> dirs;
+    private File indexFile;
+    private List<String> rootModules;
+
+    private Map<String, FileEntry> files;
+    private final Map<String, Entry> modules = new HashMap<String, Entry>();
+
+    public ModuleIndex(File... dirs) {
+        this(Arrays.asList(dirs));
+    }
+
+    public ModuleIndex(List<File> dirs) {
+        this.dirs = new ArrayList<File>(dirs);
+    }
+
+    public List<File> getDirs() {
+        return dirs;
+    }
+
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * The file in which the index is stored between runs. Without an index file, all files are scanned
+     * on the first refresh.
+     */
+    public void setIndexFile(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    public List<String> getRootModules() {
+        return rootModules;
+    }
+
+    public void setRootModules(List<String> rootModules) {
+        this.rootModules = rootModules;
+    }
+
+    /**
+     * Brings the index up to date with the contents of the directories: new and changed files are scanned,
+     * and removed files are dropped. If anything changed, the index file is written again.
+     *
+     * @return The number of files that were scanned.
+     */
+    public int refresh() throws IOException {
+        Map<String, FileEntry> previousFiles = files;
+        if (previousFiles == null) {
+            previousFiles = load();
+        }
+        Map<String, FileEntry> newFiles = new LinkedHashMap<String, FileEntry>();
+        int scanCount = 0;
+        for (File dir : dirs) {
+            File[] dirFiles = dir.listFiles();
+            if (dirFiles == null) {
+                continue;
+            }
+            Arrays.sort(dirFiles);
+            for (File file : dirFiles) {
+                if (!file.isFile() || file.getName().startsWith(".")) {
+                    continue;
+                }
+                String path = file.getAbsolutePath();
+                FileEntry fileEntry = previousFiles.get(path);
+                if (fileEntry == null || fileEntry.size != file.length() || fileEntry.lastModified != file.lastModified()) {
+                    fileEntry = scan(file);
+                    scanCount++;
+                }
+                newFiles.put(path, fileEntry);
+            }
+        }
+        boolean changed = scanCount > 0 || !newFiles.keySet().equals(previousFiles.keySet());
+        files = newFiles;
+
+        modules.clear();
+        for (FileEntry fileEntry : files.values()) {
+            for (Entry entry : fileEntry.entries) {
+                if (!modules.containsKey(entry.moduleId)) {
+                    modules.put(entry.moduleId, entry);
+                }
+            }
+        }
+        if (changed && indexFile != null) {
+            save();
+        }
+        LOGGER.debug("Scanned " + scanCount + " of " + files.size() + " files; found " + modules.size() + " modules");
+        return scanCount;
+    }
+
+    private void ensureRefreshed() throws IOException {
+        if (files == null) {
+            refresh();
+        }
+    }
+
+    /**
+     * @return The entry for the module, or null if no file in the directories contains the module.
+     */
+    public Entry find(String moduleId) throws IOException {
+        ensureRefreshed();
+        return modules.get(moduleId);
+    }
+
+    public Collection<Entry> getEntries() throws IOException {
+        ensureRefreshed();
+        return Collections.unmodifiableCollection(modules.values());
+    }
+
+    public URL findModule(String moduleId) throws Exception {
+        Entry entry = find(moduleId);
+        return entry != null ? entry.getUrl() : null;
+    }
+
+    public List<URL> create() throws Exception {
+        ensureRefreshed();
+        Set<File> result = new LinkedHashSet<File>();
+        if (rootModules == null) {
+            for (FileEntry fileEntry : files.values()) {
+                if (!fileEntry.entries.isEmpty()) {
+                    result.add(new File(fileEntry.path));
+                }
+            }
+        } else {
+            Set<String> visited = new LinkedHashSet<String>();
+            List<String> todo = new ArrayList<String>(rootModules);
+            while (!todo.isEmpty()) {
+                String moduleId = todo.remove(todo.size() - 1);
+                Entry entry = modules.get(moduleId);
+                if (visited.add(moduleId) && entry != null) {
+                    result.add(entry.file);
+                    todo.addAll(entry.imports);
+                }
+            }
+        }
+        List<URL> urls = new ArrayList<URL>(result.size());
+        for (File file : result) {
+            urls.add(file.toURI().toURL());
+        }
+        return urls;
+    }
+
+    private static FileEntry scan(File file) throws IOException {
+        List<Entry> entries = new ArrayList<Entry>();
+        for (ModuleHeaderScanner.Header header : new ModuleHeaderScanner(Files.readAllBytes(file.toPath())).scan()) {
+            entries.add(new Entry(header.moduleId, file, header.offset, header.imports));
+        }
+        return new FileEntry(file.getAbsolutePath(), file.length(), file.lastModified(), entries);
+    }
+
+    private Map<String, FileEntry> load() {
+        Map<String, FileEntry> result = new HashMap<String, FileEntry>();
+        if (indexFile == null || !indexFile.isFile()) {
+            return result;
+        }
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (dis.readInt() != MAGIC || dis.readInt() != FORMAT_VERSION) {
+                LOGGER.warn("Ignoring index file with unknown format: " + indexFile);
+                return result;
+            }
+            int fileCount = dis.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                String path = dis.readUTF();
+                long size = dis.readLong();
+                long lastModified = dis.readLong();
+                File file = new File(path);
+                int entryCount = dis.readInt();
+                List<Entry> entries = new ArrayList<Entry>(entryCount);
+                for (int j = 0; j < entryCount; j++) {
+                    String moduleId = dis.readUTF();
+                    int offset = dis.readInt();
+                    int importCount = dis.readInt();
+                    List<String> imports = new ArrayList<String>(importCount);
+                    for (int k = 0; k < importCount; k++) {
+                        imports.add(dis.readUTF());
+                    }
+                    entries.add(new Entry(moduleId, file, offset, imports));
+                }
+                result.put(path, new FileEntry(path, size, lastModified, entries));
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Ignoring unreadable index file " + indexFile + ": " + e.getMessage());
+            result.clear();
+        }
+        return result;
+    }
+
+    private void save() throws IOException {
+        File tmpFile = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            dos.writeInt(MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            dos.writeInt(files.size());
+            for (FileEntry fileEntry : files.values()) {
+                dos.writeUTF(fileEntry.path);
+                dos.writeLong(fileEntry.size);
+                dos.writeLong(fileEntry.lastModified);
+                dos.writeInt(fileEntry.entries.size());
+                for (Entry entry : fileEntry.entries) {
+                    dos.writeUTF(entry.moduleId);
+                    dos.writeInt(entry.offset);
+                    dos.writeInt(entry.imports.size());
+                    for (String importedModuleId : entry.imports) {
+                        dos.writeUTF(importedModuleId);
+                    }
+                }
+            }
+        }
+        Files.move(tmpFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static class FileEntry {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final List<Entry> entries;
+
+        private FileEntry(String path, long size, long lastModified, List<Entry> entries) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.entries = entries;
+        }
+    }
+
+    public static class Entry {
+        private final String moduleId;
+        private final File file;
+        private final int offset;
+        private final List<String> imports;
+
+        Entry(String moduleId, File file, int offset, List<String> imports) {
+            this.moduleId = moduleId;
+            this.file = file;
+            this.offset = offset;
+            this.imports = Collections.unmodifiableList(imports);
+        }
+
+        public String getModuleId() {
+            return moduleId;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return The offset in bytes of the module name in the file.
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return The ids of the imported modules, in the order of the IMPORTS clause.
+         */
+        public List<String> getImports() {
+            return imports;
+        }
+
+        public URL getUrl() {
+            try {
+                return file.toURI().toURL();
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return moduleId + "@" + file + ":" + offset;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2007 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.util.url;
+
+import java.net.URL;
+
+/**
+ * Finds the URL of the file that contains a module, given the id of the module.
+ * Used by the FileParserPhase to load the imported modules on demand.
+ */
+public interface ModuleURLResolver {
+
+    /**
+     * @return The URL of the file that contains the module, or null if the module cannot be found.
+     */
+    URL findModule(String moduleId) throws Exception;
+
+}
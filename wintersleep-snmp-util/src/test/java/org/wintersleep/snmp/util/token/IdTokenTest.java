@@ -0,0 +1,47 @@
+/*
+ * Copyright 2007 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.util.token;
+
+import junit.framework.TestCase;
+import org.wintersleep.snmp.util.location.Location;
+
+public class IdTokenTest extends TestCase {
+
+    public void testLocation() {
+        IdToken token = new IdToken("file:///mibs/IF-MIB", 12, 4, "ifIndex");
+        assertEquals(new Location("file:///mibs/IF-MIB", 12, 4), token.getLocation());
+        assertEquals(token.getLocation(), new IdToken(new Location("file:///mibs/IF-MIB", 12, 4), "ifIndex").getLocation());
+        assertEquals("file:///mibs/IF-MIB:12:4:ifIndex", token.toString());
+    }
+
+    public void testInvalidLineAndColumn() {
+        Location location = new IdToken(new Location("file"), "ifIndex").getLocation();
+        assertEquals("file", location.getSource());
+        assertEquals(Location.INVALID_LINE, location.getLine());
+        assertEquals(Location.INVALID_COLUMN, location.getColumn());
+    }
+
+    public void testLargeLocation() {
+        Location location = new Location("file", 5000000, 10000);
+        assertSame(location, new IdToken(location, "ifIndex").getLocation());
+        assertEquals(location, new IdToken("file", 5000000, 10000, "ifIndex").getLocation());
+    }
+
+    public void testNoLocation() {
+        assertNull(new IdToken(null, "ifIndex").getLocation());
+        assertNull(new IdToken(new Location(null, 1, 1), "ifIndex").getLocation().getSource());
+    }
+}
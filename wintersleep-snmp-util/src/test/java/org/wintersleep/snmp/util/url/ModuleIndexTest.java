@@ -0,0 +1,123 @@
+/*
+ * Copyright 2007 Davy Verstappen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wintersleep.snmp.util.url;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ModuleIndexTest extends TestCase {
+
+    private File dir;
+    private File indexFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("mibs").toFile();
+        indexFile = new File(dir, ".index");
+        write("a.txt",
+                "-- A-MIB DEFINITIONS ::= BEGIN in a comment\n" +
+                "A-MIB DEFINITIONS ::= BEGIN\n" +
+                "IMPORTS\n" +
+                "    a, b FROM B-MIB\n" +
+                "    c FROM C-MIB;\n" +
+                "x OBJECT IDENTIFIER ::= { a 1 }\n" +
+                "y OBJECT-TYPE DESCRIPTION \"D-MIB DEFINITIONS ::= BEGIN\" ::= { x 1 }\n" +
+                "END\n");
+        write("b",
+                "B-MIB { iso 3 } DEFINITIONS ::= BEGIN\n" +
+                "EXPORTS a, b;\n" +
+                "IMPORTS c FROM C-MIB;\n" +
+                "END\n" +
+                "C-MIB DEFINITIONS ::= BEGIN\n" +
+                "END\n");
+        write("README", "Nothing to see here.\n");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private void write(String name, String contents) throws IOException {
+        Files.write(new File(dir, name).toPath(), contents.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public void testScan() throws Exception {
+        ModuleIndex index = new ModuleIndex(dir);
+        assertEquals(3, index.refresh());
+        assertEquals(3, index.getEntries().size());
+
+        ModuleIndex.Entry a = index.find("A-MIB");
+        assertEquals(new File(dir, "a.txt"), a.getFile());
+        assertEquals(44, a.getOffset());
+        assertEquals(Arrays.asList("B-MIB", "C-MIB"), a.getImports());
+
+        ModuleIndex.Entry b = index.find("B-MIB");
+        assertEquals(0, b.getOffset());
+        assertEquals(Collections.singletonList("C-MIB"), b.getImports());
+
+        ModuleIndex.Entry c = index.find("C-MIB");
+        assertEquals(b.getFile(), c.getFile());
+        assertTrue(c.getImports().isEmpty());
+
+        assertNull(index.find("D-MIB"));
+        assertNull(index.findModule("D-MIB"));
+        assertEquals(new File(dir, "b").toURI().toURL(), index.findModule("C-MIB"));
+    }
+
+    public void testCreate() throws Exception {
+        ModuleIndex index = new ModuleIndex(dir);
+        assertEquals(2, index.create().size());
+
+        index.setRootModules(Collections.singletonList("B-MIB"));
+        List<URL> urls = index.create();
+        assertEquals(Collections.singletonList(new File(dir, "b").toURI().toURL()), urls);
+    }
+
+    public void testRefresh() throws Exception {
+        ModuleIndex index = new ModuleIndex(dir);
+        index.setIndexFile(indexFile);
+        assertEquals(3, index.refresh());
+        assertTrue(indexFile.isFile());
+        assertEquals(0, index.refresh());
+
+        ModuleIndex reloaded = new ModuleIndex(dir);
+        reloaded.setIndexFile(indexFile);
+        assertEquals(0, reloaded.refresh());
+        assertEquals(Arrays.asList("B-MIB", "C-MIB"), reloaded.find("A-MIB").getImports());
+
+        write("b", "E-MIB DEFINITIONS ::= BEGIN\nEND\n");
+        assertTrue(new File(dir, "README").delete());
+        assertEquals(1, reloaded.refresh());
+        assertNull(reloaded.find("B-MIB"));
+        assertNotNull(reloaded.find("E-MIB"));
+        assertEquals(2, reloaded.getEntries().size());
+    }
+}